@@ -0,0 +1,47 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * {@link BodyPublisher} that knows the digest of the exact bytes it publishes.
+ * <p>
+ * The digest is computed at most once, and only when the signed headers include it. Create
+ * instances through {@link SignedBodyPublishers}.
+ */
+public final class SignedBodyPublisher implements BodyPublisher {
+  private final BodyPublisher delegate;
+  private final Supplier<String> digestSupplier;
+  private volatile String digest;
+
+  SignedBodyPublisher(BodyPublisher delegate, Supplier<String> digestSupplier) {
+    this.delegate = delegate;
+    this.digestSupplier = digestSupplier;
+  }
+
+  /**
+   * Value of the {@code digest} header for the published bytes.
+   *
+   * @return digest header value
+   */
+  public String digest() {
+    String result = digest;
+    if (null == result) {
+      result = digestSupplier.get();
+      digest = result;
+    }
+    return result;
+  }
+
+  @Override
+  public long contentLength() {
+    return delegate.contentLength();
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    delegate.subscribe(subscriber);
+  }
+}
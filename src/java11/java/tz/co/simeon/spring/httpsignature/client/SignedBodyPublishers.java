@@ -0,0 +1,191 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.Util;
+
+/**
+ * Factories of {@link SignedBodyPublisher}s for {@link SignedHttpRequestBuilder}.
+ * <p>
+ * Byte array and file bodies are digested in a single pass over their source, without copying a
+ * file onto the heap. Any other {@link BodyPublisher} is drained once through
+ * {@link #of(BodyPublisher)}, digesting each buffer as it is published.
+ */
+public final class SignedBodyPublishers {
+  private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+  private SignedBodyPublishers() {
+  }
+
+  public static SignedBodyPublisher noBody() {
+    return new SignedBodyPublisher(BodyPublishers.noBody(),
+        () -> OutboundRequestSigner.digest(new byte[0]));
+  }
+
+  public static SignedBodyPublisher ofByteArray(byte[] body) {
+    return new SignedBodyPublisher(BodyPublishers.ofByteArray(body),
+        () -> OutboundRequestSigner.digest(body));
+  }
+
+  public static SignedBodyPublisher ofString(String body) {
+    return ofByteArray(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A file body. When the digest is signed, the file is read once through a direct buffer to
+   * digest it before the request is sent.
+   *
+   * @param path the file to send
+   * @return signed body publisher
+   * @throws FileNotFoundException if the file does not exist
+   */
+  public static SignedBodyPublisher ofFile(Path path) throws FileNotFoundException {
+    return new SignedBodyPublisher(BodyPublishers.ofFile(path), () -> digestFile(path));
+  }
+
+  /**
+   * Drain an arbitrary publisher once, digesting its buffers as they are published and keeping
+   * them to be published again with the request.
+   *
+   * @param publisher the body publisher
+   * @return signed body publisher completed when the publisher completes
+   */
+  public static CompletableFuture<SignedBodyPublisher> of(BodyPublisher publisher) {
+    DigestingSubscriber subscriber = new DigestingSubscriber();
+    publisher.subscribe(subscriber);
+    return subscriber.result;
+  }
+
+  private static String digestFile(Path path) {
+    MessageDigest digest = Util.sha256();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to digest " + path, e);
+    }
+    return OutboundRequestSigner.digestHeaderValue(digest.digest());
+  }
+
+  private static final class DigestingSubscriber implements Flow.Subscriber<ByteBuffer> {
+    private final CompletableFuture<SignedBodyPublisher> result = new CompletableFuture<>();
+    private final MessageDigest digest = Util.sha256();
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long length;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer) {
+      length += buffer.remaining();
+      digest.update(buffer.duplicate());
+      buffers.add(buffer);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      String value = OutboundRequestSigner.digestHeaderValue(digest.digest());
+      result.complete(new SignedBodyPublisher(
+          BodyPublishers.fromPublisher(new ReplayPublisher(buffers), length), () -> value));
+    }
+  }
+
+  /**
+   * Publishes the same buffers to every subscriber, honoring demand.
+   */
+  private static final class ReplayPublisher implements Flow.Publisher<ByteBuffer> {
+    private final List<ByteBuffer> buffers;
+
+    private ReplayPublisher(List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      subscriber.onSubscribe(new Replay(subscriber));
+    }
+
+    private final class Replay implements Flow.Subscription {
+      private final Flow.Subscriber<? super ByteBuffer> subscriber;
+      private long demand;
+      private int next;
+      private boolean emitting;
+      private boolean done;
+
+      private Replay(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          cancel();
+          subscriber.onError(new IllegalArgumentException("Demand must be positive: " + n));
+          return;
+        }
+        synchronized (this) {
+          demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+          if (emitting) {
+            return;
+          }
+          emitting = true;
+        }
+        while (true) {
+          ByteBuffer buffer;
+          synchronized (this) {
+            if (done) {
+              emitting = false;
+              return;
+            }
+            if (next == buffers.size()) {
+              done = true;
+              buffer = null;
+            } else if (demand == 0) {
+              emitting = false;
+              return;
+            } else {
+              demand--;
+              buffer = buffers.get(next++).duplicate();
+            }
+          }
+          if (null == buffer) {
+            subscriber.onComplete();
+            return;
+          }
+          subscriber.onNext(buffer);
+        }
+      }
+
+      @Override
+      public synchronized void cancel() {
+        done = true;
+      }
+    }
+  }
+}
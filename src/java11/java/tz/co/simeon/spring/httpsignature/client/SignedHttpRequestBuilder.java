@@ -0,0 +1,152 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+
+/**
+ * Builds signed {@link HttpRequest}s for {@link java.net.http.HttpClient}.
+ * <p>
+ * Unlike {@link HttpRequest.Builder}, this builder can read back the headers it was given, which
+ * the signature needs. The body digest comes from the {@link SignedBodyPublisher}, so it is
+ * computed over exactly the published bytes. Signing reuses the per-thread signature instances of
+ * the target's signer, so one builder per target can be shared by any number of threads building
+ * concurrent requests, e.g. on a multiplexed HTTP/2 client.
+ * <p>
+ * {@code java.net.http} treats {@code Date} as a restricted header: when {@code date} is signed,
+ * run with {@code -Djdk.httpclient.allowRestrictedHeaders=date}.
+ *
+ * <pre>
+ * SignedHttpRequestBuilder.newBuilder(signer)
+ *     .uri(uri)
+ *     .header("Content-Type", "application/json")
+ *     .POST(SignedBodyPublishers.ofByteArray(json))
+ *     .build();
+ * </pre>
+ */
+public final class SignedHttpRequestBuilder {
+  private final OutboundRequestSigner signer;
+  private final HttpRequest.Builder delegate = HttpRequest.newBuilder();
+  private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+  private URI uri;
+  private String method = "GET";
+  private SignedBodyPublisher body = SignedBodyPublishers.noBody();
+
+  private SignedHttpRequestBuilder(OutboundRequestSigner signer) {
+    this.signer = signer;
+  }
+
+  /**
+   * Builder signing with a shared signer.
+   *
+   * @param signer signer of the outbound target
+   * @return new builder
+   */
+  public static SignedHttpRequestBuilder newBuilder(@NonNull OutboundRequestSigner signer) {
+    return new SignedHttpRequestBuilder(signer);
+  }
+
+  /**
+   * Builder signing for the target. Prefer {@link #newBuilder(OutboundRequestSigner)} with a
+   * shared signer when building many requests.
+   *
+   * @param target outbound target
+   * @return new builder
+   */
+  public static SignedHttpRequestBuilder newBuilder(OutboundTargetDefinition target) {
+    return newBuilder(new OutboundRequestSigner(target));
+  }
+
+  public SignedHttpRequestBuilder uri(@NonNull URI uri) {
+    this.uri = uri;
+    return this;
+  }
+
+  public SignedHttpRequestBuilder header(String name, String value) {
+    headers.computeIfAbsent(name, it -> new ArrayList<>()).add(value);
+    return this;
+  }
+
+  public SignedHttpRequestBuilder setHeader(String name, String value) {
+    List<String> values = new ArrayList<>();
+    values.add(value);
+    headers.put(name, values);
+    return this;
+  }
+
+  public SignedHttpRequestBuilder timeout(Duration timeout) {
+    delegate.timeout(timeout);
+    return this;
+  }
+
+  public SignedHttpRequestBuilder version(HttpClient.Version version) {
+    delegate.version(version);
+    return this;
+  }
+
+  public SignedHttpRequestBuilder expectContinue(boolean enable) {
+    delegate.expectContinue(enable);
+    return this;
+  }
+
+  public SignedHttpRequestBuilder GET() {
+    return method("GET", SignedBodyPublishers.noBody());
+  }
+
+  public SignedHttpRequestBuilder DELETE() {
+    return method("DELETE", SignedBodyPublishers.noBody());
+  }
+
+  public SignedHttpRequestBuilder POST(SignedBodyPublisher body) {
+    return method("POST", body);
+  }
+
+  public SignedHttpRequestBuilder PUT(SignedBodyPublisher body) {
+    return method("PUT", body);
+  }
+
+  public SignedHttpRequestBuilder method(@NonNull String method,
+      @NonNull SignedBodyPublisher body) {
+    this.method = method;
+    this.body = body;
+    return this;
+  }
+
+  /**
+   * Sign and build the request.
+   *
+   * @return signed request
+   * @throws HttpSignatureException if a header required for the signature is missing or cannot be
+   *                                set
+   */
+  public HttpRequest build() {
+    if (null == uri) {
+      throw new IllegalStateException("uri is required");
+    }
+    String digest = signer.requiresDigest(method, headers::get) ? body.digest() : null;
+    Map<String, String> signatureHeaders = signer.sign(method, uri, headers::get, digest);
+
+    headers.forEach((name, values) -> values.forEach(value -> delegate.header(name, value)));
+    signatureHeaders.forEach((name, value) -> {
+      try {
+        delegate.setHeader(name, value);
+      } catch (IllegalArgumentException e) {
+        throw new HttpSignatureException("Cannot set signed header " + name
+            + ", restricted headers may need -Djdk.httpclient.allowRestrictedHeaders: "
+            + e.getMessage());
+      }
+    });
+
+    return delegate.uri(uri).method(method, body).build();
+  }
+}
@@ -0,0 +1,179 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.ServletInputStream;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import com.sun.management.ThreadMXBean;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+import tz.co.simeon.spring.httpsignature.signer.SHA256PSSSigner;
+import tz.co.simeon.spring.httpsignature.verifier.SHA256PSSVerifier;
+
+/**
+ * Allocation budgets of the verification and signing hot paths.
+ * <p>
+ * Every path is warmed up, then run repeatedly on a single thread while
+ * {@link ThreadMXBean#getThreadAllocatedBytes(long)} measures the bytes it allocates. A path
+ * exceeding its budget fails the {@code allocationBudget} task (and so {@code check}), so that
+ * string joins or header map copies sneaking back onto the hot path fail the build rather than
+ * show up as GC pressure in production.
+ * <p>
+ * Each budget is the highest of three measurements on JDK 11 times {@value #MARGIN}, rounded up
+ * to 64 bytes: the margin absorbs JVM and dependency upgrades, not a new copy of the request.
+ * When a path legitimately changes, measure it again and reset its budget the same way.
+ * <p>
+ * A budget can be overridden with {@code -Dallocation.budget.<path>=<bytes>}; run with
+ * {@code -Dallocation.record=true} to print measurements without failing.
+ */
+public final class AllocationBudgets {
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int MEASURED_ITERATIONS = 2_000;
+  private static final String KEY_ID = "allocation-budget";
+  private static final double MARGIN = 1.5;
+
+  private static volatile Object sink;
+
+  private AllocationBudgets() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+
+    String body = "{\"id\":1,\"name\":\"allocation budget\",\"amount\":1000}";
+    String date = ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    String digest = "SHA-256=" + Util.sha256Digest(body);
+    String signingString = "(request-target): post /payments\n"
+        + "host: localhost:8080\n"
+        + "date: " + date + "\n"
+        + "digest: " + digest + "\n"
+        + "content-type: application/json";
+    byte[] signedBytes = signingString.getBytes(StandardCharsets.UTF_8);
+    byte[] signatureBytes = new SHA256PSSSigner(keyPair.getPrivate()).sign(signedBytes);
+    String header = "keyId=\"" + KEY_ID + "\",algorithm=\"rsa-sha256-pss\",signature=\""
+        + Base64.getEncoder().encodeToString(signatureBytes) + "\"";
+
+    ReplayableRequest request = new ReplayableRequest(body);
+    request.addHeader("host", "localhost:8080");
+    request.addHeader("date", date);
+    request.addHeader("digest", digest);
+    request.addHeader("content-type", "application/json");
+    request.addHeader("authorization", "Signature " + header);
+    HttpSignature signature = HttpSignature.fromHeader(header);
+
+    ResponseSignageService responses = new ResponseSignageService(new OutboundTargetDefinition(
+        KEY_ID, Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build()));
+    Payment payment = new Payment(1, "allocation budget", 1000);
+
+    List<Budget> budgets = new ArrayList<>();
+    // measured bytes per operation, see the class documentation
+    budgets.add(new Budget("fromHeader", 2_128, () -> HttpSignature.fromHeader(header)));
+    budgets.add(new Budget("signingString", 10_905, () -> signature
+        .getHeaderBytesToSign(new ResettableStreamHttpServletRequest(request), null)));
+    budgets.add(new Budget("digest", 4_688, () -> Util.sha256Digest(body)));
+    budgets.add(new Budget("verify", 8_344,
+        () -> new SHA256PSSVerifier(signatureBytes, keyPair.getPublic()).verify(signedBytes)));
+    budgets.add(new Budget("signedResponse", 75_253,
+        () -> responses.response(payment, MediaTypeMapper.JSON, HttpStatus.OK)));
+
+    boolean record = Boolean.getBoolean("allocation.record");
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    int failures = 0;
+    System.out.println(String.format("%-16s %12s %12s", "path", "bytes/op", "budget"));
+    for (Budget budget : budgets) {
+      long perOperation = budget.measure(threads);
+      boolean exceeded = perOperation > budget.bytes;
+      System.out.println(String.format("%-16s %12d %12d%s", budget.name, perOperation,
+          budget.bytes, exceeded ? "  EXCEEDED" : ""));
+      if (exceeded) {
+        failures++;
+      }
+    }
+
+    if (failures > 0 && !record) {
+      System.err.println(failures + " allocation budget(s) exceeded");
+      System.exit(1);
+    }
+  }
+
+  private static final class Budget {
+    private final String name;
+    private final long bytes;
+    private final Operation operation;
+
+    private Budget(String name, long measured, Operation operation) {
+      this.name = name;
+      this.bytes = Long.getLong("allocation.budget." + name,
+          ((long) Math.ceil(measured * MARGIN) + 63) / 64 * 64);
+      this.operation = operation;
+    }
+
+    private long measure(ThreadMXBean threads) throws Exception {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        sink = operation.run();
+      }
+      long thread = Thread.currentThread().getId();
+      long before = threads.getThreadAllocatedBytes(thread);
+      for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+        sink = operation.run();
+      }
+      return (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_ITERATIONS;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+    Object run() throws Exception;
+  }
+
+  /**
+   * Mock request whose body can be read again by every iteration.
+   */
+  private static final class ReplayableRequest extends MockHttpServletRequest {
+    private ReplayableRequest(String body) {
+      super("POST", "/payments");
+      setContent(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      return new DelegatingServletInputStream(new ByteArrayInputStream(getContentAsByteArray()));
+    }
+  }
+
+  /**
+   * Response body serialized by the signed response path.
+   */
+  public static final class Payment {
+    public final long id;
+    public final String name;
+    public final long amount;
+
+    Payment(long id, String name, long amount) {
+      this.id = id;
+      this.name = name;
+      this.amount = amount;
+    }
+  }
+}
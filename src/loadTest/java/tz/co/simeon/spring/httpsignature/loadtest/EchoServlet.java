@@ -0,0 +1,31 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Consumes the (re-readable) request body like a real handler would and answers with a tiny body.
+ */
+final class EchoServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+  private static final byte[] OK = "ok".getBytes(StandardCharsets.US_ASCII);
+
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    byte[] buffer = new byte[8192];
+    try (InputStream in = request.getInputStream()) {
+      while (in.read(buffer) != -1) {
+        // discard
+      }
+    }
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType("text/plain");
+    response.setContentLength(OK.length);
+    response.getOutputStream().write(OK);
+  }
+}
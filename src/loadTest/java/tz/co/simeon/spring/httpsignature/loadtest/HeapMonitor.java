@@ -0,0 +1,81 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples heap usage and garbage collector activity of the JVM running both client and server.
+ */
+final class HeapMonitor {
+  private static final long MB = 1024 * 1024;
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+  private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "heap-sampler");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private volatile long maxUsed;
+  private volatile long samples;
+  private volatile long usedSum;
+  private long startCollections;
+  private long startCollectionMillis;
+  private long startUsed;
+
+  void start() {
+    startCollections = collections();
+    startCollectionMillis = collectionMillis();
+    startUsed = memory.getHeapMemoryUsage().getUsed();
+    maxUsed = startUsed;
+    samples = 0;
+    usedSum = 0;
+    sampler.scheduleAtFixedRate(this::sample, 0, 100, TimeUnit.MILLISECONDS);
+  }
+
+  String stop(long elapsedMillis) {
+    sampler.shutdownNow();
+    long collections = collections() - startCollections;
+    long collectionMillis = collectionMillis() - startCollectionMillis;
+    long average = samples == 0 ? 0 : usedSum / samples;
+
+    return String.format(
+        "heap: start %d MB, avg %d MB, max %d MB, committed %d MB, max %d MB%n"
+            + "gc: %d collections, %d ms total (%.2f%% of wall time)",
+        startUsed / MB, average / MB, maxUsed / MB,
+        memory.getHeapMemoryUsage().getCommitted() / MB, memory.getHeapMemoryUsage().getMax() / MB,
+        collections, collectionMillis, 100.0 * collectionMillis / Math.max(1, elapsedMillis));
+  }
+
+  private void sample() {
+    long used = memory.getHeapMemoryUsage().getUsed();
+    if (used > maxUsed) {
+      maxUsed = used;
+    }
+    usedSum += used;
+    samples++;
+  }
+
+  private long collections() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : collectors) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+
+  private long collectionMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : collectors) {
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    return millis;
+  }
+}
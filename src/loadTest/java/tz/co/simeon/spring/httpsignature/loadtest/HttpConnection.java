@@ -0,0 +1,130 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Minimal keep-alive HTTP/1.1 client connection. Sends pre-built request bytes and reads the
+ * status code, discarding the response body.
+ * <p>
+ * A raw socket is used rather than {@link java.net.HttpURLConnection} so the harness controls
+ * header names and adds next to no client-side overhead.
+ */
+final class HttpConnection implements Closeable {
+  private final InetSocketAddress address;
+  private final StringBuilder line = new StringBuilder(128);
+  private final byte[] skipBuffer = new byte[8192];
+
+  private Socket socket;
+  private InputStream in;
+  private OutputStream out;
+
+  HttpConnection(InetSocketAddress address) {
+    this.address = address;
+  }
+
+  int exchange(byte[] request) throws IOException {
+    if (null == socket) {
+      connect();
+    }
+    try {
+      out.write(request);
+      out.flush();
+      return readResponse();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (null != socket) {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // nothing to do when closing
+      }
+      socket = null;
+    }
+  }
+
+  private void connect() throws IOException {
+    socket = new Socket();
+    socket.setTcpNoDelay(true);
+    socket.connect(address, 5_000);
+    in = new BufferedInputStream(socket.getInputStream(), 8192);
+    out = socket.getOutputStream();
+  }
+
+  private int readResponse() throws IOException {
+    String statusLine = readLine();
+    int status = Integer.parseInt(statusLine.substring(9, 12));
+
+    long contentLength = 0;
+    boolean chunked = false;
+    boolean close = false;
+    String header;
+    while (!(header = readLine()).isEmpty()) {
+      int colon = header.indexOf(':');
+      String name = header.substring(0, colon).trim();
+      String value = header.substring(colon + 1).trim();
+      if ("content-length".equalsIgnoreCase(name)) {
+        contentLength = Long.parseLong(value);
+      } else if ("transfer-encoding".equalsIgnoreCase(name)) {
+        chunked = value.equalsIgnoreCase("chunked");
+      } else if ("connection".equalsIgnoreCase(name)) {
+        close = value.equalsIgnoreCase("close");
+      }
+    }
+
+    if (chunked) {
+      long chunk;
+      while ((chunk = Long.parseLong(readLine().trim(), 16)) > 0) {
+        skip(chunk);
+        readLine();
+      }
+      while (!readLine().isEmpty()) {
+        // trailers
+      }
+    } else {
+      skip(contentLength);
+    }
+
+    if (close) {
+      close();
+    }
+    return status;
+  }
+
+  private void skip(long bytes) throws IOException {
+    long remaining = bytes;
+    while (remaining > 0) {
+      int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+      if (read < 0) {
+        throw new EOFException("Connection closed in response body");
+      }
+      remaining -= read;
+    }
+  }
+
+  private String readLine() throws IOException {
+    line.setLength(0);
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        throw new EOFException("Connection closed in response head");
+      }
+      if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+}
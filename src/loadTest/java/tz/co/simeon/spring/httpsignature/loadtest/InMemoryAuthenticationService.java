@@ -0,0 +1,68 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.security.PublicKey;
+import java.util.Optional;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureAuthenticationException;
+import tz.co.simeon.spring.httpsignature.HttpSignatureAuthenticationService;
+import tz.co.simeon.spring.httpsignature.InboundClientConfig;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+/**
+ * Authentication service that knows a single client, so key lookup costs nothing and the harness
+ * measures the filter alone.
+ */
+final class InMemoryAuthenticationService implements HttpSignatureAuthenticationService {
+  private final InboundClientConfig client;
+
+  InMemoryAuthenticationService(String keyId, Algorithm algorithm, PublicKey publicKey) {
+    this.client = new Client(keyId, algorithm, new KeyConfig(publicKey));
+  }
+
+  @Override
+  public InboundClientConfig loadByKeyId(String keyId) {
+    if (!client.keyId().equals(keyId)) {
+      throw new HttpSignatureAuthenticationException("Unknown key id");
+    }
+    return client;
+  }
+
+  private static final class Client implements InboundClientConfig {
+    private static final long serialVersionUID = 1L;
+
+    private final String keyId;
+    private final Algorithm algorithm;
+    private final transient KeyConfig keyConfig;
+
+    private Client(String keyId, Algorithm algorithm, KeyConfig keyConfig) {
+      this.keyId = keyId;
+      this.algorithm = algorithm;
+      this.keyConfig = keyConfig;
+    }
+
+    @Override
+    public String keyId() {
+      return keyId;
+    }
+
+    @Override
+    public Algorithm algorithm() {
+      return algorithm;
+    }
+
+    @Override
+    public Optional<KeyConfig> keyConfig() {
+      return Optional.ofNullable(keyConfig);
+    }
+
+    @Override
+    public Optional<byte[]> hmacSharedSecret() {
+      return Optional.empty();
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+  }
+}
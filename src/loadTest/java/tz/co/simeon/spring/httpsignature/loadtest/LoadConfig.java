@@ -0,0 +1,53 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+/**
+ * Configuration of a load run, read from {@code loadtest.*} system properties.
+ */
+final class LoadConfig {
+  final int port;
+  final int serverThreads;
+  final int concurrency;
+  final int warmupSeconds;
+  final int durationSeconds;
+  final int validPercent;
+  final int invalidPercent;
+  final int bodyBytes;
+  final int largeBodyBytes;
+
+  private LoadConfig() {
+    this.port = intProperty("port", 0);
+    this.serverThreads = intProperty("serverThreads", 200);
+    this.concurrency = intProperty("concurrency", 32);
+    this.warmupSeconds = intProperty("warmupSeconds", 10);
+    this.durationSeconds = intProperty("durationSeconds", 30);
+    this.validPercent = intProperty("validPercent", 80);
+    this.invalidPercent = intProperty("invalidPercent", 15);
+    this.bodyBytes = intProperty("bodyBytes", 512);
+    this.largeBodyBytes = intProperty("largeBodyBytes", 1024 * 1024);
+
+    if (validPercent + invalidPercent > 100) {
+      throw new IllegalArgumentException(
+          "loadtest.validPercent + loadtest.invalidPercent must not exceed 100");
+    }
+  }
+
+  static LoadConfig fromSystemProperties() {
+    return new LoadConfig();
+  }
+
+  int largePercent() {
+    return 100 - validPercent - invalidPercent;
+  }
+
+  @Override
+  public String toString() {
+    return "concurrency=" + concurrency + ", serverThreads=" + serverThreads + ", warmup="
+        + warmupSeconds + "s, duration=" + durationSeconds + "s, mix=" + validPercent + "% valid/"
+        + invalidPercent + "% invalid/" + largePercent() + "% large, bodyBytes=" + bodyBytes
+        + ", largeBodyBytes=" + largeBodyBytes;
+  }
+
+  private static int intProperty(String name, int defaultValue) {
+    return Integer.getInteger("loadtest." + name, defaultValue);
+  }
+}
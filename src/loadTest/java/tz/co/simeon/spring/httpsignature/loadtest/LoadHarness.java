@@ -0,0 +1,227 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.security.authentication.ProviderManager;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureAuthenticationFilter;
+import tz.co.simeon.spring.httpsignature.HttpSignatureAuthenticationProvider;
+
+/**
+ * End-to-end load harness for {@link HttpSignatureAuthenticationFilter}.
+ * <p>
+ * Boots an embedded Tomcat with the filter in front of a servlet that consumes the body, drives it
+ * from local client threads with a configurable mix of valid, invalid and large signed requests,
+ * and reports throughput, latency percentiles and heap behaviour. Client and server share the JVM,
+ * so the numbers are meant for comparing releases and sizing nodes relative to each other, not as
+ * absolute capacity.
+ * <p>
+ * Configured through {@code loadtest.*} system properties, see {@link LoadConfig}.
+ */
+public final class LoadHarness {
+  private static final String KEY_ID = "load-test";
+  private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  private LoadHarness() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    LoadConfig config = LoadConfig.fromSystemProperties();
+
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+
+    Tomcat tomcat = startServer(config, keyPair.getPublic());
+    try {
+      int port = tomcat.getConnector().getLocalPort();
+      SignedRequestFactory requests = new SignedRequestFactory(config, "localhost:" + port,
+          KEY_ID, keyPair.getPrivate());
+      InetSocketAddress address = new InetSocketAddress("localhost", port);
+
+      System.out.println("Load harness on port " + port + ": " + config);
+
+      System.out.println("Warming up for " + config.warmupSeconds + "s");
+      run(config, requests, address, config.warmupSeconds);
+
+      System.out.println("Measuring for " + config.durationSeconds + "s");
+      HeapMonitor heap = new HeapMonitor();
+      heap.start();
+      long started = System.nanoTime();
+      Result result = run(config, requests, address, config.durationSeconds);
+      long elapsedNanos = System.nanoTime() - started;
+
+      System.out.println(result.report(elapsedNanos));
+      System.out.println(heap.stop(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    } finally {
+      tomcat.stop();
+      tomcat.destroy();
+    }
+  }
+
+  private static Tomcat startServer(LoadConfig config, PublicKey publicKey)
+      throws IOException, LifecycleException {
+    HttpSignatureAuthenticationProvider provider = new HttpSignatureAuthenticationProvider(
+        new InMemoryAuthenticationService(KEY_ID, Algorithm.RSA_SHA256_PSS, publicKey));
+    HttpSignatureAuthenticationFilter filter = new HttpSignatureAuthenticationFilter(
+        new ProviderManager(Collections.singletonList(provider)));
+
+    Tomcat tomcat = new Tomcat();
+    tomcat.setBaseDir(Files.createTempDirectory("http-signature-loadtest").toString());
+    tomcat.setPort(config.port);
+    Connector connector = tomcat.getConnector();
+    connector.setProperty("maxThreads", String.valueOf(config.serverThreads));
+    connector.setProperty("maxKeepAliveRequests", "-1");
+
+    Context context = tomcat.addContext("", null);
+    Tomcat.addServlet(context, "echo", new EchoServlet());
+    context.addServletMappingDecoded(SignedRequestFactory.PATH, "echo");
+
+    FilterDef filterDef = new FilterDef();
+    filterDef.setFilterName("httpSignature");
+    filterDef.setFilter(filter);
+    context.addFilterDef(filterDef);
+    FilterMap filterMap = new FilterMap();
+    filterMap.setFilterName("httpSignature");
+    filterMap.addURLPattern("/*");
+    context.addFilterMap(filterMap);
+
+    tomcat.start();
+    return tomcat;
+  }
+
+  private static Result run(LoadConfig config, SignedRequestFactory requests,
+      InetSocketAddress address, int seconds) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    ExecutorService clients = Executors.newFixedThreadPool(config.concurrency);
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (int i = 0; i < config.concurrency; i++) {
+        futures.add(clients.submit(() -> drive(config, requests, address, deadline)));
+      }
+      Result total = new Result();
+      for (Future<Result> future : futures) {
+        total.add(future.get());
+      }
+      return total;
+    } finally {
+      clients.shutdownNow();
+    }
+  }
+
+  private static Result drive(LoadConfig config, SignedRequestFactory requests,
+      InetSocketAddress address, long deadline) {
+    Result result = new Result();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int sequence = random.nextInt(1024);
+
+    try (HttpConnection connection = new HttpConnection(address)) {
+      while (System.nanoTime() < deadline) {
+        RequestType type = pick(config, random.nextInt(100));
+        byte[] request = requests.request(type, sequence++);
+
+        long start = System.nanoTime();
+        try {
+          int status = connection.exchange(request);
+          result.record(type, System.nanoTime() - start, status);
+        } catch (IOException e) {
+          result.errors++;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static RequestType pick(LoadConfig config, int percent) {
+    if (percent < config.validPercent) {
+      return RequestType.VALID;
+    }
+    if (percent < config.validPercent + config.invalidPercent) {
+      return RequestType.INVALID;
+    }
+    return RequestType.LARGE;
+  }
+
+  private static final class Result {
+    private final Map<RequestType, Histogram> latencies = new EnumMap<>(RequestType.class);
+    private final Map<RequestType, Long> unexpected = new EnumMap<>(RequestType.class);
+    private long errors;
+
+    private Result() {
+      for (RequestType type : RequestType.values()) {
+        latencies.put(type, new Histogram(MAX_LATENCY_NANOS, 3));
+        unexpected.put(type, 0L);
+      }
+    }
+
+    private void record(RequestType type, long nanos, int status) {
+      latencies.get(type).recordValue(Math.min(nanos, MAX_LATENCY_NANOS));
+      if (status != type.expectedStatus()) {
+        unexpected.merge(type, 1L, Long::sum);
+      }
+    }
+
+    private void add(Result other) {
+      for (RequestType type : RequestType.values()) {
+        latencies.get(type).add(other.latencies.get(type));
+        unexpected.merge(type, other.unexpected.get(type), Long::sum);
+      }
+      errors += other.errors;
+    }
+
+    private String report(long elapsedNanos) {
+      double seconds = elapsedNanos / 1e9;
+      Histogram all = new Histogram(MAX_LATENCY_NANOS, 3);
+      StringBuilder report = new StringBuilder();
+      report.append(String.format("%-8s %10s %10s %9s %9s %9s %9s %9s %10s%n", "type", "count",
+          "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "unexpected"));
+      for (RequestType type : RequestType.values()) {
+        Histogram histogram = latencies.get(type);
+        all.add(histogram);
+        line(report, type.name().toLowerCase(), histogram, seconds, unexpected.get(type));
+      }
+      line(report, "total", all, seconds,
+          unexpected.values().stream().mapToLong(Long::longValue).sum());
+      report.append("connection errors: ").append(errors);
+      return report.toString();
+    }
+
+    private static void line(StringBuilder report, String name, Histogram histogram,
+        double seconds, long unexpected) {
+      report.append(String.format("%-8s %10d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f %10d%n", name,
+          histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+          millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+          millis(histogram.getValueAtPercentile(99)),
+          millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+          unexpected));
+    }
+
+    private static double millis(long nanos) {
+      return nanos / 1e6;
+    }
+  }
+}
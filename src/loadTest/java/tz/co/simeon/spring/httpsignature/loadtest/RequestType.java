@@ -0,0 +1,31 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+/**
+ * Kinds of requests in the load mix.
+ */
+enum RequestType {
+  /**
+   * Correctly signed request with a small body.
+   */
+  VALID(200),
+
+  /**
+   * Small body with a signature that does not verify.
+   */
+  INVALID(401),
+
+  /**
+   * Correctly signed request with a large body.
+   */
+  LARGE(200);
+
+  private final int expectedStatus;
+
+  RequestType(int expectedStatus) {
+    this.expectedStatus = expectedStatus;
+  }
+
+  int expectedStatus() {
+    return expectedStatus;
+  }
+}
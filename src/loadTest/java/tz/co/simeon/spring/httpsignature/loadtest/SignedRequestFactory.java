@@ -0,0 +1,97 @@
+package tz.co.simeon.spring.httpsignature.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.SignatureException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import tz.co.simeon.spring.httpsignature.Util;
+import tz.co.simeon.spring.httpsignature.signer.SHA256PSSSigner;
+import tz.co.simeon.spring.httpsignature.signer.Signer;
+
+/**
+ * Pre-builds raw HTTP/1.1 requests for every {@link RequestType}, so that client threads spend no
+ * CPU on signing while the server is measured.
+ * <p>
+ * Header names are sent in lower case, as the filter looks them up that way.
+ */
+final class SignedRequestFactory {
+  static final String PATH = "/signed";
+
+  private static final int VARIANTS = 64;
+  private static final String CONTENT_TYPE = "application/json";
+  private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+  private final Map<RequestType, byte[][]> requests = new EnumMap<>(RequestType.class);
+
+  SignedRequestFactory(LoadConfig config, String host, String keyId, PrivateKey privateKey)
+      throws SignatureException {
+    Signer signer = new SHA256PSSSigner(privateKey);
+    Random random = new Random(42);
+
+    for (RequestType type : RequestType.values()) {
+      int bodyBytes = type == RequestType.LARGE ? config.largeBodyBytes : config.bodyBytes;
+      byte[][] variants = new byte[VARIANTS][];
+      for (int i = 0; i < VARIANTS; i++) {
+        variants[i] = build(type, body(random, i, bodyBytes), host, keyId, signer);
+      }
+      requests.put(type, variants);
+    }
+  }
+
+  byte[] request(RequestType type, int sequence) {
+    byte[][] variants = requests.get(type);
+    return variants[sequence % variants.length];
+  }
+
+  private static byte[] build(RequestType type, String body, String host, String keyId,
+      Signer signer) throws SignatureException {
+    String date = ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    String digest = "SHA-256=" + Util.sha256Digest(body);
+
+    String signingString = "(request-target): post " + PATH + "\n"
+        + "host: " + host + "\n"
+        + "date: " + date + "\n"
+        + "digest: " + digest + "\n"
+        + "content-type: " + CONTENT_TYPE;
+
+    byte[] signature = signer.sign(signingString.getBytes(StandardCharsets.UTF_8));
+    if (type == RequestType.INVALID) {
+      signature[signature.length / 2] ^= 0x01;
+    }
+
+    byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    String head = "POST " + PATH + " HTTP/1.1\r\n"
+        + "host: " + host + "\r\n"
+        + "date: " + date + "\r\n"
+        + "digest: " + digest + "\r\n"
+        + "content-type: " + CONTENT_TYPE + "\r\n"
+        + "content-length: " + bodyBytes.length + "\r\n"
+        + "authorization: Signature keyId=\"" + keyId + "\",algorithm=\"rsa-sha256-pss\","
+        + "signature=\"" + Base64.getEncoder().encodeToString(signature) + "\"\r\n"
+        + "\r\n";
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(head.length() + bodyBytes.length);
+    byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+    out.write(headBytes, 0, headBytes.length);
+    out.write(bodyBytes, 0, bodyBytes.length);
+    return out.toByteArray();
+  }
+
+  /**
+   * A single line JSON body, the filter digests the body line by line.
+   */
+  private static String body(Random random, int id, int size) {
+    StringBuilder payload = new StringBuilder(size);
+    payload.append("{\"id\":").append(id).append(",\"payload\":\"");
+    while (payload.length() < size - 2) {
+      payload.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+    }
+    return payload.append("\"}").toString();
+  }
+}
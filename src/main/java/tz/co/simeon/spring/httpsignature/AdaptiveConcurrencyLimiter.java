@@ -0,0 +1,280 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit adapting to the latency of the work it guards, used to shed excess requests
+ * before any expensive work instead of letting every request slow down together under overload.
+ * <p>
+ * The limit follows a gradient algorithm: a long term, exponentially averaged latency is compared
+ * with each new sample. While samples stay within {@link Builder#tolerance(double)} of the long
+ * term latency, the limit grows by roughly its square root; when samples get slower, indicating
+ * queueing on the CPU, the limit shrinks in proportion. The limit only grows while at least half of
+ * it is in use, and always stays between {@link Builder#minLimit(int)} and
+ * {@link Builder#maxLimit(int)}.
+ * <p>
+ * Samples are recorded without locking: the long term latency and the limit are each a double
+ * updated with compare and set, so releasing permits never serializes the guarded work.
+ *
+ * <pre>
+ * AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+ * if (permit == null) {
+ *   // shed
+ * }
+ * try {
+ *   // guarded work
+ * } finally {
+ *   permit.release();
+ * }
+ * </pre>
+ */
+public final class AdaptiveConcurrencyLimiter {
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final int minLimit;
+  private final int maxLimit;
+  private final double smoothing;
+  private final double tolerance;
+  private final double longTermWeight;
+  private final Duration retryAfter;
+
+  /**
+   * Bits of the estimated limit, a double.
+   */
+  private final AtomicLong estimatedLimit;
+
+  /**
+   * Bits of the long term latency, a double, {@code 0} before the first sample.
+   */
+  private final AtomicLong longTermNanos = new AtomicLong();
+
+  private AdaptiveConcurrencyLimiter(Builder builder) {
+    this.minLimit = builder.minLimit;
+    this.maxLimit = builder.maxLimit;
+    this.smoothing = builder.smoothing;
+    this.tolerance = builder.tolerance;
+    this.longTermWeight = 2.0 / (builder.longTermWindow + 1);
+    this.retryAfter = builder.retryAfter;
+    this.estimatedLimit = new AtomicLong(Double.doubleToRawLongBits(builder.initialLimit));
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Try to start guarded work.
+   *
+   * @return permit to release once the work is done, or {@code null} if the limit is reached and
+   *         the work should be shed
+   */
+  public Permit tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit()) {
+        return null;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return new Permit(current + 1);
+  }
+
+  /**
+   * Whether new work would currently be shed, to turn work away before paying for its setup. A
+   * permit may still be refused afterwards, see {@link #tryAcquire()}.
+   *
+   * @return whether the limit is reached
+   */
+  public boolean isSaturated() {
+    return inFlight.get() >= limit();
+  }
+
+  /**
+   * Current concurrency limit.
+   *
+   * @return limit
+   */
+  public int limit() {
+    return (int) Double.longBitsToDouble(estimatedLimit.get());
+  }
+
+  /**
+   * Number of permits currently held.
+   *
+   * @return work in flight
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Delay suggested to shed clients before retrying.
+   *
+   * @return retry after delay
+   */
+  public Duration retryAfter() {
+    return retryAfter;
+  }
+
+  /**
+   * Record the latency of guarded work, adapting the limit.
+   *
+   * @param latencyNanos    latency of the work
+   * @param inFlightAtStart permits held when the work started, including its own
+   */
+  void sample(long latencyNanos, int inFlightAtStart) {
+    long bits;
+    double longTerm;
+    do {
+      bits = longTermNanos.get();
+      double previous = Double.longBitsToDouble(bits);
+      longTerm = 0 == bits ? latencyNanos
+          : previous * (1 - longTermWeight) + latencyNanos * longTermWeight;
+    } while (!longTermNanos.compareAndSet(bits, Double.doubleToRawLongBits(longTerm)));
+
+    double gradient = latencyNanos <= 0 ? 1.0
+        : Math.max(0.5, Math.min(1.0, tolerance * longTerm / latencyNanos));
+    double estimate;
+    double newLimit;
+    do {
+      bits = estimatedLimit.get();
+      estimate = Double.longBitsToDouble(bits);
+      if (inFlightAtStart < estimate / 2) {
+        // not using the limit, latency says nothing about it
+        return;
+      }
+      newLimit = estimate * gradient + Math.sqrt(estimate);
+      newLimit = estimate * (1 - smoothing) + newLimit * smoothing;
+      newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    } while (!estimatedLimit.compareAndSet(bits, Double.doubleToRawLongBits(newLimit)));
+  }
+
+  /**
+   * Permit to run guarded work, see {@link AdaptiveConcurrencyLimiter#tryAcquire()}.
+   */
+  public final class Permit {
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final long start = System.nanoTime();
+    private final int inFlightAtStart;
+
+    private Permit(int inFlightAtStart) {
+      this.inFlightAtStart = inFlightAtStart;
+    }
+
+    /**
+     * Release the permit, sampling the latency of the guarded work. Only the first call has any
+     * effect.
+     */
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        inFlight.decrementAndGet();
+        sample(System.nanoTime() - start, inFlightAtStart);
+      }
+    }
+  }
+
+  /**
+   * Fluent API builder to create {@link AdaptiveConcurrencyLimiter} instances. Call
+   * {@link #build()} to create a new instance.
+   */
+  public static final class Builder {
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    private double smoothing = 0.2;
+    private double tolerance = 1.5;
+    private int longTermWindow = 600;
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private Builder() {
+    }
+
+    public AdaptiveConcurrencyLimiter build() {
+      return new AdaptiveConcurrencyLimiter(this);
+    }
+
+    /**
+     * Limit to start with.
+     *
+     * @param initialLimit initial concurrency limit
+     * @return updated builder instance
+     */
+    public Builder initialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /**
+     * Lowest limit, should allow for at least one request per CPU.
+     *
+     * @param minLimit minimal concurrency limit
+     * @return updated builder instance
+     */
+    public Builder minLimit(int minLimit) {
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    /**
+     * Highest limit.
+     *
+     * @param maxLimit maximal concurrency limit
+     * @return updated builder instance
+     */
+    public Builder maxLimit(int maxLimit) {
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Weight of each new limit estimate, between 0 and 1, lower values adapt more slowly.
+     *
+     * @param smoothing smoothing factor
+     * @return updated builder instance
+     */
+    public Builder smoothing(double smoothing) {
+      this.smoothing = smoothing;
+      return this;
+    }
+
+    /**
+     * Ratio of a sample to the long term latency tolerated before the limit shrinks.
+     *
+     * @param tolerance latency tolerance
+     * @return updated builder instance
+     */
+    public Builder tolerance(double tolerance) {
+      this.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Number of samples the long term latency is averaged over.
+     *
+     * @param longTermWindow long term window, in samples
+     * @return updated builder instance
+     */
+    public Builder longTermWindow(int longTermWindow) {
+      this.longTermWindow = longTermWindow;
+      return this;
+    }
+
+    /**
+     * Delay suggested to shed clients in the {@code Retry-After} header.
+     *
+     * @param retryAfter retry after delay
+     * @return updated builder instance
+     */
+    public Builder retryAfter(Duration retryAfter) {
+      this.retryAfter = retryAfter;
+      return this;
+    }
+  }
+}
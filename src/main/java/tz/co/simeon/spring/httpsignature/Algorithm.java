@@ -3,13 +3,17 @@ package tz.co.simeon.spring.httpsignature;
 import java.security.Signature;
 import java.util.HashMap;
 import java.util.Map;
+import javax.crypto.Mac;
 
 public enum Algorithm {
 
   // rsa
   RSA_SHA256("SHA256withRSA", "rsa-sha256", Signature.class),
 
-  RSA_SHA256_PSS("SHA256withRSA/PSS", "rsa-sha256-pss", Signature.class);
+  RSA_SHA256_PSS("SHA256withRSA/PSS", "rsa-sha256-pss", Signature.class),
+
+  // hmac
+  HMAC_SHA256("HmacSHA256", "hmac-sha256", Mac.class);
 
   private static final Map<String, Algorithm> aliases = new HashMap<>();
 
@@ -22,7 +26,7 @@ public enum Algorithm {
 
   private final String portableName;
   private final String jmvName;
-  private final Class<Signature> type;
+  private final Class<?> type;
 
   public static String toPortableName(final String name) {
     return get(name).getPortableName();
@@ -51,7 +55,7 @@ public enum Algorithm {
     return getJmvName();
   }
 
-  private Algorithm(String portableName, String jmvName, Class<Signature> type) {
+  private Algorithm(String portableName, String jmvName, Class<?> type) {
     this.portableName = portableName;
     this.jmvName = jmvName;
     this.type = type;
@@ -69,7 +73,13 @@ public enum Algorithm {
     return jmvName;
   }
 
-  public Class<Signature> getType() {
+  /**
+   * JCA engine class of the algorithm, {@link Signature} for public key algorithms or {@link Mac}
+   * for shared secret algorithms.
+   *
+   * @return engine class
+   */
+  public Class<?> getType() {
     return type;
   }
 }
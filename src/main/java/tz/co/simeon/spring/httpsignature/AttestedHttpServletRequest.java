@@ -0,0 +1,59 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Request wrapper replacing, or removing, the {@link GatewayAttestation} header.
+ */
+class AttestedHttpServletRequest extends HttpServletRequestWrapper {
+  private final String headerName;
+  private final String attestation;
+
+  /**
+   * Create a new wrapper.
+   *
+   * @param request     the request to wrap
+   * @param headerName  name of the attestation header
+   * @param attestation attestation header value, {@code null} to remove the header
+   */
+  AttestedHttpServletRequest(HttpServletRequest request, String headerName, String attestation) {
+    super(request);
+    this.headerName = headerName;
+    this.attestation = attestation;
+  }
+
+  @Override
+  public String getHeader(String name) {
+    return headerName.equalsIgnoreCase(name) ? attestation : super.getHeader(name);
+  }
+
+  @Override
+  public Enumeration<String> getHeaders(String name) {
+    if (!headerName.equalsIgnoreCase(name)) {
+      return super.getHeaders(name);
+    }
+    return null == attestation ? Collections.emptyEnumeration()
+        : Collections.enumeration(Collections.singletonList(attestation));
+  }
+
+  @Override
+  public Enumeration<String> getHeaderNames() {
+    Set<String> names = new LinkedHashSet<>();
+    Enumeration<String> original = super.getHeaderNames();
+    while (null != original && original.hasMoreElements()) {
+      String name = original.nextElement();
+      if (!headerName.equalsIgnoreCase(name)) {
+        names.add(name);
+      }
+    }
+    if (null != attestation) {
+      names.add(headerName);
+    }
+    return Collections.enumeration(names);
+  }
+}
@@ -0,0 +1,17 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+
+/**
+ * A {@link SignedChunks} body is malformed, or one of its chunks fails verification.
+ * <p>
+ * It is thrown while the application reads the body, so it is an {@link IOException}: frameworks
+ * reading the body report it as an unreadable request rather than a server error.
+ */
+public class ChunkSignatureException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public ChunkSignatureException(String message) {
+    super(message);
+  }
+}
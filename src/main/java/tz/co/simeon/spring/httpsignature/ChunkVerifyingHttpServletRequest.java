@@ -0,0 +1,134 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.function.Function;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import tz.co.simeon.spring.httpsignature.verifier.Verifier;
+
+/**
+ * Request wrapper handing the application the decoded body of a {@link SignedChunks} request,
+ * verifying each chunk as it is read, see {@link SignedChunkInputStream}.
+ */
+public class ChunkVerifyingHttpServletRequest extends HttpServletRequestWrapper {
+  private final Function<byte[], Verifier> verifiers;
+  private final String seedSignature;
+  private ServletInputStream inputStream;
+  private BufferedReader reader;
+
+  /**
+   * Create a new wrapper.
+   *
+   * @param request       the chunk signed request
+   * @param algorithm     algorithm of the request signature
+   * @param publicKey     public key of the request signature
+   * @param seedSignature base64 signature of the request
+   */
+  public ChunkVerifyingHttpServletRequest(HttpServletRequest request, Algorithm algorithm,
+      PublicKey publicKey, String seedSignature) {
+    this(request, signature -> SignatureService.verifier(algorithm, signature, publicKey),
+        seedSignature);
+  }
+
+  /**
+   * Create a new wrapper of a request signed with a shared secret.
+   *
+   * @param request       the chunk signed request
+   * @param algorithm     algorithm of the request signature
+   * @param sharedSecret  shared secret of the request signature
+   * @param seedSignature base64 signature of the request
+   */
+  public ChunkVerifyingHttpServletRequest(HttpServletRequest request, Algorithm algorithm,
+      byte[] sharedSecret, String seedSignature) {
+    this(request, signature -> SignatureService.verifier(algorithm, signature, sharedSecret),
+        seedSignature);
+  }
+
+  private ChunkVerifyingHttpServletRequest(HttpServletRequest request,
+      Function<byte[], Verifier> verifiers, String seedSignature) {
+    super(request);
+    this.verifiers = verifiers;
+    this.seedSignature = seedSignature;
+  }
+
+  @Override
+  public int getContentLength() {
+    long length = getContentLengthLong();
+    return length > Integer.MAX_VALUE ? -1 : (int) length;
+  }
+
+  @Override
+  public long getContentLengthLong() {
+    String decoded = getHeader(SignedChunks.DECODED_CONTENT_LENGTH);
+    if (null == decoded) {
+      return -1L;
+    }
+    try {
+      return Long.parseLong(decoded.trim());
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  @Override
+  public ServletInputStream getInputStream() throws IOException {
+    if (null == inputStream) {
+      SignedChunkInputStream chunks =
+          new SignedChunkInputStream(super.getInputStream(), verifiers, seedSignature);
+      inputStream = new ServletInputStream() {
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+          int b = chunks.read();
+          finished = b == -1;
+          return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          int read = chunks.read(b, off, len);
+          finished = read == -1;
+          return read;
+        }
+
+        @Override
+        public int available() {
+          return chunks.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+          return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+          throw new IllegalStateException("Chunk signed bodies only support blocking reads");
+        }
+      };
+    }
+    return inputStream;
+  }
+
+  @Override
+  public BufferedReader getReader() throws IOException {
+    if (null == reader) {
+      String encoding = getCharacterEncoding();
+      reader = new BufferedReader(new InputStreamReader(getInputStream(),
+          null == encoding ? StandardCharsets.UTF_8.name() : encoding));
+    }
+    return reader;
+  }
+}
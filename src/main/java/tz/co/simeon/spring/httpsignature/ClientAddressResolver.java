@@ -0,0 +1,29 @@
+package tz.co.simeon.spring.httpsignature;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A strategy for resolving the address of the client sending a request, which
+ * {@link VerificationFailureLimiter} limits failures by.
+ * <p>
+ * The default, {@link #REMOTE_ADDRESS}, is the address of the connection. Behind a reverse proxy or
+ * load balancer that is the address of the proxy, so every client would share one bucket: either
+ * install Spring's {@code ForwardedHeaderFilter} in front of the signature filter, so the remote
+ * address is taken from the {@code Forwarded} headers of trusted proxies, or resolve the address
+ * from the header set by the proxy. Never trust a forwarding header a client could set itself.
+ */
+@FunctionalInterface
+public interface ClientAddressResolver {
+  /**
+   * The remote address of the connection.
+   */
+  ClientAddressResolver REMOTE_ADDRESS = HttpServletRequest::getRemoteAddr;
+
+  /**
+   * Resolve the address of the client.
+   *
+   * @param request the request
+   * @return address of the client
+   */
+  String resolve(HttpServletRequest request);
+}
@@ -1,5 +1,6 @@
 package tz.co.simeon.spring.httpsignature;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -10,6 +11,7 @@ import org.springframework.http.HttpHeaders;
 public final class DefaultHttpSignatureResolver implements HttpSignatureResolver {
 
   private static final String SIGNATURE_PREFIX = "signature ";
+  private static final String SIGNATURE_HEADER = "Signature";
 
   /**
    * {@inheritDoc}
@@ -17,10 +19,18 @@ public final class DefaultHttpSignatureResolver implements HttpSignatureResolver
   @Override
   public HttpSignature resolve(HttpServletRequest request) {
     HttpSignature signature = resolveFromAuthorizationHeader(request);
+    if (null == signature) {
+      signature = resolveFromSignatureHeader(request);
+    }
 
     return signature;
   }
 
+  private HttpSignature resolveFromSignatureHeader(HttpServletRequest request) {
+    Optional<Collection<String>> signature = Util.values(request, SIGNATURE_HEADER);
+    return signature.isPresent() ? signatureHeader(new ArrayList<>(signature.get())) : null;
+  }
+
   private HttpSignature resolveFromAuthorizationHeader(HttpServletRequest request) {
     Collection<String> authorization =
         Util.values(request, HttpHeaders.AUTHORIZATION).orElse(Collections.emptySet());
@@ -44,9 +54,9 @@ public final class DefaultHttpSignatureResolver implements HttpSignatureResolver
      */
     for (String signature : signatures) {
       HttpSignature httpSignature = HttpSignature.fromHeader(signature);
-      Optional<String> validate = httpSignature.validate();
+      Optional<HttpSignatureError> validate = httpSignature.validate();
       if (validate.isPresent()) {
-        throw new HttpSignatureAuthenticationException(validate.get());
+        throw validate.get().exception();
       } else {
         return httpSignature;
       }
@@ -0,0 +1,332 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.springframework.util.FastByteArrayOutputStream;
+
+/**
+ * Response wrapper that updates a SHA-256 digest with the body bytes as they are written.
+ * <p>
+ * When the signature is sent in headers, they must precede the body, so the body is held back
+ * (without copying it into a single array) until {@link #getDigest()} has been signed, then written
+ * to the wrapped response with {@link #copyBodyToResponse()}. Flushing is deferred until then, as
+ * it would commit the response.
+ * <p>
+ * When the signature is sent in trailers, the body is streamed to the wrapped response as it is
+ * written and only the digest is kept, so memory use does not depend on the body size.
+ * <p>
+ * When compressing, the body is gzip encoded as it is written and the digest covers the encoded
+ * bytes as sent, so the body is compressed and digested in a single pass.
+ */
+public class DigestingHttpServletResponse extends HttpServletResponseWrapper {
+  private final MessageDigest digest = Util.sha256();
+  private final FastByteArrayOutputStream content = new FastByteArrayOutputStream(1024);
+  private final boolean holdBack;
+  private final boolean gzip;
+
+  private ServletOutputStream outputStream;
+  private GZIPOutputStream compressor;
+  private PrintWriter writer;
+  private boolean bypassed;
+  private boolean finished;
+
+  public DigestingHttpServletResponse(HttpServletResponse response) {
+    this(response, true);
+  }
+
+  /**
+   * Create a new wrapper.
+   *
+   * @param response the response to wrap
+   * @param holdBack {@code true} to hold the body back until {@link #copyBodyToResponse()},
+   *                 {@code false} to stream it
+   */
+  public DigestingHttpServletResponse(HttpServletResponse response, boolean holdBack) {
+    this(response, holdBack, false);
+  }
+
+  /**
+   * Create a new wrapper.
+   *
+   * @param response the response to wrap
+   * @param holdBack {@code true} to hold the body back until {@link #copyBodyToResponse()},
+   *                 {@code false} to stream it
+   * @param gzip     {@code true} to gzip encode the body, the client must accept it
+   */
+  public DigestingHttpServletResponse(HttpServletResponse response, boolean holdBack,
+      boolean gzip) {
+    super(response);
+    this.holdBack = holdBack;
+    this.gzip = gzip;
+  }
+
+  /**
+   * Value of the {@code digest} header for the body written so far.
+   *
+   * @return digest header value
+   * @throws IOException if flushing a pending writer fails
+   */
+  public String getDigest() throws IOException {
+    finishContent();
+    try {
+      MessageDigest copy = (MessageDigest) digest.clone();
+      return OutboundRequestSigner.digestHeaderValue(copy.digest());
+    } catch (CloneNotSupportedException e) {
+      return OutboundRequestSigner.digest(content.toByteArrayUnsafe());
+    }
+  }
+
+  /**
+   * Number of body bytes held back so far.
+   *
+   * @return held back body length, always 0 when streaming
+   */
+  public int getContentSize() {
+    return content.size();
+  }
+
+  /**
+   * Whether the body is held back until {@link #copyBodyToResponse()}, or streamed.
+   *
+   * @return {@code true} if the body is held back
+   */
+  public boolean isHoldingBack() {
+    return holdBack;
+  }
+
+  /**
+   * Whether the body was sent to the wrapped response directly, because an error or redirect was
+   * sent, and can no longer be signed.
+   *
+   * @return {@code true} if the response is not held back
+   */
+  public boolean isBypassed() {
+    return bypassed;
+  }
+
+  /**
+   * Write the held back body to the wrapped response, setting its content length. When streaming,
+   * only flushes the pending writer and the wrapped response.
+   *
+   * @throws IOException if writing fails
+   */
+  public void copyBodyToResponse() throws IOException {
+    finishContent();
+    if (content.size() > 0) {
+      HttpServletResponse response = (HttpServletResponse) getResponse();
+      if (!response.isCommitted()) {
+        response.setContentLength(content.size());
+      }
+      content.writeTo(response.getOutputStream());
+      content.reset();
+    }
+    getResponse().flushBuffer();
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (null == outputStream) {
+      DigestingOutputStream sink = new DigestingOutputStream(getResponse().getOutputStream());
+      if (gzip && !bypassed) {
+        super.setHeader("Content-Encoding", "gzip");
+        super.addHeader("Vary", "Accept-Encoding");
+        compressor = new GZIPOutputStream(sink, 8192, !holdBack);
+        outputStream = new CompressingOutputStream(compressor, sink);
+      } else {
+        outputStream = sink;
+      }
+    }
+    return outputStream;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (null == writer) {
+      writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), characterEncoding()));
+    }
+    return writer;
+  }
+
+  @Override
+  public void setContentLength(int len) {
+    // set from the held back body once it is complete
+  }
+
+  @Override
+  public void setContentLengthLong(long len) {
+    // set from the held back body once it is complete
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    // committing would send the headers before the body is signed
+    if (bypassed || !holdBack) {
+      super.flushBuffer();
+    }
+  }
+
+  @Override
+  public void resetBuffer() {
+    super.resetBuffer();
+    content.reset();
+    digest.reset();
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    content.reset();
+    digest.reset();
+  }
+
+  @Override
+  public void sendError(int sc) throws IOException {
+    bypass();
+    super.sendError(sc);
+  }
+
+  @Override
+  public void sendError(int sc, String msg) throws IOException {
+    bypass();
+    super.sendError(sc, msg);
+  }
+
+  @Override
+  public void sendRedirect(String location) throws IOException {
+    bypass();
+    super.sendRedirect(location);
+  }
+
+  private void bypass() {
+    bypassed = true;
+    content.reset();
+    digest.reset();
+    if (null != compressor && !isCommitted()) {
+      super.setHeader("Content-Encoding", "identity");
+    }
+  }
+
+  private void finishContent() throws IOException {
+    flushWriter();
+    if (null != compressor && !finished && !bypassed) {
+      compressor.finish();
+    }
+    finished = true;
+  }
+
+  private void flushWriter() {
+    if (null != writer) {
+      writer.flush();
+    }
+  }
+
+  private String characterEncoding() throws UnsupportedEncodingException {
+    String encoding = getCharacterEncoding();
+    return null == encoding ? "ISO-8859-1" : encoding;
+  }
+
+  private final class CompressingOutputStream extends ServletOutputStream {
+    private final GZIPOutputStream compressor;
+    private final DigestingOutputStream sink;
+
+    private CompressingOutputStream(GZIPOutputStream compressor, DigestingOutputStream sink) {
+      this.compressor = compressor;
+      this.sink = sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (bypassed) {
+        sink.write(b);
+      } else {
+        compressor.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (bypassed) {
+        sink.write(b, off, len);
+      } else {
+        compressor.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (bypassed) {
+        sink.flush();
+      } else if (!holdBack) {
+        // sync flush, so the client can inflate what was written so far
+        compressor.flush();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return sink.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      sink.setWriteListener(writeListener);
+    }
+  }
+
+  private final class DigestingOutputStream extends ServletOutputStream {
+    private final ServletOutputStream os;
+
+    private DigestingOutputStream(ServletOutputStream os) {
+      this.os = os;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (!bypassed) {
+        digest.update((byte) b);
+        if (holdBack) {
+          content.write(b);
+          return;
+        }
+      }
+      os.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (!bypassed) {
+        digest.update(b, off, len);
+        if (holdBack) {
+          content.write(b, off, len);
+          return;
+        }
+      }
+      os.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (bypassed || !holdBack) {
+        os.flush();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return os.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      os.setWriteListener(writeListener);
+    }
+  }
+}
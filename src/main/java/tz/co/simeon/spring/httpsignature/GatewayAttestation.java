@@ -0,0 +1,339 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import lombok.NonNull;
+import lombok.Value;
+import tz.co.simeon.spring.httpsignature.signer.HmacSHA256Signer;
+import tz.co.simeon.spring.httpsignature.verifier.HmacSHA256Verifier;
+
+/**
+ * Attestation that an edge gateway verified the signature of a request, so services behind it can
+ * trust the request after a single HMAC instead of repeating the public key verification.
+ * <p>
+ * The gateway ({@link HttpSignatureAuthenticationFilter#setAttestation(GatewayAttestation)})
+ * forwards verified requests with a header:
+ *
+ * <pre>
+ * Signature-Attestation: keyId=partner;alg=rsa-sha256;auth=ROLE_PAYER,ROLE_PAYEE;ts=1577836800;
+ *     method=POST;target=%2Fpay%3Fid%3D1;digest=SHA-256=...;sig=...
+ * </pre>
+ *
+ * (on one line) where {@code keyId} is url encoded, {@code alg} is the algorithm of the verified
+ * signature, {@code auth} the comma separated, url encoded authorities granted to the client,
+ * {@code ts} is the time of verification in epoch seconds, {@code method} and {@code target} are
+ * the method and the url encoded raw request target (path and query) of the verified request,
+ * {@code digest} is the SHA-256 of the body as received and {@code sig} the base64url HMAC-SHA256,
+ * with a secret shared by the gateway and the internal services, over everything preceding
+ * {@code ;sig=}. Attestation headers sent by clients are always removed by the gateway.
+ * <p>
+ * Internal services accept the attestation with {@link GatewayAttestationFilter}, which checks the
+ * HMAC, the age of the attestation, and that the method, request target and body digest are those
+ * of the request it is attached to. An attestation therefore cannot be moved to another request,
+ * and the gateway must forward requests without rewriting their path or query.
+ */
+public final class GatewayAttestation {
+  /**
+   * Default name of the attestation header.
+   */
+  public static final String DEFAULT_HEADER = "Signature-Attestation";
+
+  private static final String SIGNATURE = ";sig=";
+
+  private final HmacSHA256Signer signer;
+  private final String headerName;
+  private final long maxAgeSeconds;
+  private final Clock clock;
+
+  private GatewayAttestation(Builder builder) {
+    this.signer = new HmacSHA256Signer(builder.sharedSecret);
+    this.headerName = builder.headerName;
+    this.maxAgeSeconds = builder.maxAge.getSeconds();
+    this.clock = builder.clock;
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @param sharedSecret secret shared by the gateway and the internal services
+   * @return new builder
+   */
+  public static Builder builder(@NonNull byte[] sharedSecret) {
+    return new Builder(sharedSecret.clone());
+  }
+
+  /**
+   * Name of the attestation header.
+   *
+   * @return header name
+   */
+  public String headerName() {
+    return headerName;
+  }
+
+  /**
+   * Create the attestation of a verified request.
+   *
+   * @param keyId       key id of the verified signature
+   * @param algorithm   algorithm of the verified signature
+   * @param authorities authorities granted to the client
+   * @param method      method of the verified request
+   * @param target      raw request target (path and query) of the verified request, see
+   *                    {@link #requestTarget(HttpServletRequest)}
+   * @param digest      digest of the body as received, {@code SHA-256=} followed by lower case hex
+   * @return attestation header value
+   */
+  public String attest(@NonNull String keyId, @NonNull Algorithm algorithm,
+      @NonNull Collection<? extends GrantedAuthority> authorities, @NonNull String method,
+      @NonNull String target, @NonNull String digest) {
+    StringBuilder attested = new StringBuilder(256).append("keyId=").append(encode(keyId))
+        .append(";alg=").append(algorithm.getPortableName()).append(";auth=");
+    String separator = "";
+    for (GrantedAuthority authority : authorities) {
+      attested.append(separator).append(encode(authority.getAuthority()));
+      separator = ",";
+    }
+    attested.append(";ts=").append(clock.millis() / 1000L).append(";method=").append(method)
+        .append(";target=").append(encode(target)).append(";digest=").append(digest);
+    return sign(attested.toString());
+  }
+
+  private String sign(String attested) {
+    byte[] signature = signer.sign(attested.getBytes(StandardCharsets.UTF_8));
+    return attested + SIGNATURE + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+  }
+
+  /**
+   * Verify an attestation header value.
+   *
+   * @param header the attestation header value
+   * @return the attested request
+   * @throws HttpSignatureAuthenticationException if the attestation is not valid or too old
+   */
+  public Attested verify(@NonNull String header) {
+    int index = header.lastIndexOf(SIGNATURE);
+    if (index < 0) {
+      throw new HttpSignatureAuthenticationException("Attestation is not signed");
+    }
+    byte[] signature;
+    try {
+      signature = Base64.getUrlDecoder().decode(header.substring(index + SIGNATURE.length()));
+    } catch (IllegalArgumentException e) {
+      throw new HttpSignatureAuthenticationException("Attestation signature is not valid");
+    }
+
+    String attested = header.substring(0, index);
+    String keyId = null;
+    Algorithm algorithm = null;
+    List<GrantedAuthority> authorities = null;
+    String method = null;
+    String target = null;
+    String digest = null;
+    long timestamp = -1;
+    for (String field : attested.split(";")) {
+      if (field.startsWith("keyId=")) {
+        keyId = decode(field.substring("keyId=".length()));
+      } else if (field.startsWith("alg=")) {
+        try {
+          algorithm = Algorithm.get(field.substring("alg=".length()));
+        } catch (UnsupportedAlgorithmException e) {
+          throw new HttpSignatureAuthenticationException("Attestation algorithm is not valid");
+        }
+      } else if (field.startsWith("auth=")) {
+        authorities = authorities(field.substring("auth=".length()));
+      } else if (field.startsWith("method=")) {
+        method = field.substring("method=".length());
+      } else if (field.startsWith("target=")) {
+        target = decode(field.substring("target=".length()));
+      } else if (field.startsWith("ts=")) {
+        try {
+          timestamp = Long.parseLong(field.substring("ts=".length()));
+        } catch (NumberFormatException e) {
+          throw new HttpSignatureAuthenticationException("Attestation timestamp is not valid");
+        }
+      } else if (field.startsWith("digest=")) {
+        digest = field.substring("digest=".length());
+      }
+    }
+    if (null == keyId || null == algorithm || null == authorities || null == method
+        || null == target || null == digest || timestamp < 0) {
+      throw new HttpSignatureAuthenticationException("Attestation is not valid");
+    }
+    long age = clock.millis() / 1000L - timestamp;
+    if (age > maxAgeSeconds || age < -maxAgeSeconds) {
+      throw new HttpSignatureAuthenticationException("Attestation has expired");
+    }
+
+    Optional<HttpSignatureError> error = new HmacSHA256Verifier(signature, signer)
+        .verify(attested.getBytes(StandardCharsets.UTF_8));
+    if (error.isPresent()) {
+      throw error.get().exception();
+    }
+    return new Attested(keyId, algorithm, authorities, method, target, digest, timestamp);
+  }
+
+  /**
+   * Raw request target of a request, its path and query as sent, as attested.
+   *
+   * @param request the request
+   * @return request target
+   */
+  public static String requestTarget(HttpServletRequest request) {
+    String query = request.getQueryString();
+    return null == query ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+  }
+
+  /**
+   * Request forwarded with the attestation of a verified request, replacing any attestation
+   * header sent by the client.
+   */
+  HttpServletRequest attach(HttpServletRequest request, String keyId, Algorithm algorithm,
+      Collection<? extends GrantedAuthority> authorities, String digest) {
+    return new AttestedHttpServletRequest(request, headerName, attest(keyId, algorithm,
+        authorities, request.getMethod(), requestTarget(request), digest));
+  }
+
+  /**
+   * Request forwarded without any attestation header sent by the client.
+   */
+  HttpServletRequest strip(HttpServletRequest request) {
+    if (null == request.getHeader(headerName)) {
+      return request;
+    }
+    return new AttestedHttpServletRequest(request, headerName, null);
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, "UTF-8");
+    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      throw new HttpSignatureAuthenticationException("Attestation is not valid");
+    }
+  }
+
+  private static List<GrantedAuthority> authorities(String value) {
+    if (value.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<GrantedAuthority> authorities = new ArrayList<>();
+    for (String authority : value.split(",")) {
+      authorities.add(new SimpleGrantedAuthority(decode(authority)));
+    }
+    return Collections.unmodifiableList(authorities);
+  }
+
+  /**
+   * A request attested by the gateway.
+   */
+  @Value
+  public static class Attested {
+    /**
+     * Key id of the signature verified by the gateway.
+     */
+    String keyId;
+
+    /**
+     * Algorithm of the signature verified by the gateway.
+     */
+    Algorithm algorithm;
+
+    /**
+     * Authorities granted to the client by the gateway.
+     */
+    List<GrantedAuthority> authorities;
+
+    /**
+     * Method of the request verified by the gateway.
+     */
+    String method;
+
+    /**
+     * Raw request target (path and query) of the request verified by the gateway.
+     */
+    String target;
+
+    /**
+     * Digest of the body as received by the gateway.
+     */
+    String digest;
+
+    /**
+     * Time of verification, in seconds since the epoch.
+     */
+    long timestamp;
+  }
+
+  /**
+   * Fluent API builder to create {@link GatewayAttestation} instances. Call {@link #build()} to
+   * create a new instance.
+   */
+  public static final class Builder {
+    private final byte[] sharedSecret;
+    private String headerName = DEFAULT_HEADER;
+    private Duration maxAge = Duration.ofSeconds(30);
+    private Clock clock = Clock.systemUTC();
+
+    private Builder(byte[] sharedSecret) {
+      this.sharedSecret = sharedSecret;
+    }
+
+    public GatewayAttestation build() {
+      return new GatewayAttestation(this);
+    }
+
+    /**
+     * Name of the attestation header.
+     *
+     * @param headerName header name
+     * @return updated builder instance
+     */
+    public Builder headerName(@NonNull String headerName) {
+      this.headerName = headerName;
+      return this;
+    }
+
+    /**
+     * How long after verification by the gateway an attestation is accepted, covering the time
+     * to reach the service and clock skew between hosts.
+     *
+     * @param maxAge maximal age of an attestation
+     * @return updated builder instance
+     */
+    public Builder maxAge(@NonNull Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    /**
+     * Clock to timestamp attestations and check their age.
+     *
+     * @param clock the clock
+     * @return updated builder instance
+     */
+    public Builder clock(@NonNull Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+  }
+}
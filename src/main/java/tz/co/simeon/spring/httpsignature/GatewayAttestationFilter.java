@@ -0,0 +1,84 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Authenticates requests forwarded by an edge gateway with a {@link GatewayAttestation}, instead
+ * of verifying the signature of the request again.
+ * <p>
+ * The method and raw request target must be the attested ones, and the body is digested as
+ * received and compared with the attested digest, so a request cannot be altered between the
+ * gateway and the service, nor its attestation replayed on another request. The client is
+ * authenticated with the algorithm it signed with and the authorities the gateway granted it.
+ * Requests without an attestation header are passed on untouched, so this filter can sit in front
+ * of {@link HttpSignatureAuthenticationFilter}, which then verifies only the requests this filter
+ * did not authenticate.
+ * <p>
+ * Only deploy this filter on services reachable exclusively through the gateway.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+public class GatewayAttestationFilter extends OncePerRequestFilter {
+  @NonNull
+  private final GatewayAttestation attestation;
+
+  @NonNull
+  private AuthenticationEntryPoint authenticationEntryPoint =
+      new HttpSignatureAuthenticationEntryPoint();
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String header = request.getHeader(attestation.headerName());
+    if (null == header) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    ResettableStreamHttpServletRequest wrappedRequest =
+        new ResettableStreamHttpServletRequest(request);
+    GatewayAttestation.Attested attested;
+    try {
+      attested = attestation.verify(header);
+      if (!attested.getMethod().equals(request.getMethod())
+          || !attested.getTarget().equals(GatewayAttestation.requestTarget(request))) {
+        throw new HttpSignatureAuthenticationException("Request does not match attestation");
+      }
+      String digest = OutboundRequestSigner.DIGEST_PREFIX + wrappedRequest.getReceivedBodyDigest();
+      if (!MessageDigest.isEqual(digest.getBytes(StandardCharsets.US_ASCII),
+          attested.getDigest().getBytes(StandardCharsets.US_ASCII))) {
+        throw new HttpSignatureAuthenticationException("Body does not match attested digest");
+      }
+    } catch (HttpSignatureAuthenticationException failed) {
+      SecurityContextHolder.clearContext();
+      if (this.logger.isDebugEnabled()) {
+        this.logger.debug("Attestation authentication failed: " + failed);
+      }
+      this.authenticationEntryPoint.commence(request, response, failed);
+      return;
+    }
+    wrappedRequest.resetInputStream();
+
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(HttpSignatureAuthentication.verified(attested.getKeyId(),
+        attested.getAlgorithm(), attested.getAuthorities()));
+    SecurityContextHolder.setContext(context);
+
+    filterChain.doFilter(wrappedRequest, response);
+  }
+}
@@ -0,0 +1,67 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Source of {@code date} header values, formatting the current time at most once per second.
+ * <p>
+ * The header has a resolution of one second, so every message signed within the same second
+ * shares the same string instead of formatting a new {@link ZonedDateTime}.
+ */
+public final class HttpDateClock {
+  private static final ZoneId GMT = ZoneId.of("GMT");
+  private static final HttpDateClock SYSTEM = new HttpDateClock(Clock.systemUTC());
+
+  private final Clock clock;
+  private volatile Formatted current = new Formatted(Long.MIN_VALUE, null);
+
+  /**
+   * Create a clock over a time source, mainly useful with a fixed clock.
+   *
+   * @param clock time source
+   */
+  public HttpDateClock(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Shared clock over the system time.
+   *
+   * @return system clock
+   */
+  public static HttpDateClock system() {
+    return SYSTEM;
+  }
+
+  /**
+   * Value of the {@code date} header for the current time.
+   *
+   * @return RFC 1123 date in GMT
+   */
+  public String now() {
+    long second = Math.floorDiv(clock.millis(), 1000L);
+    Formatted formatted = current;
+    if (formatted.second != second) {
+      formatted = new Formatted(second, ZonedDateTime
+          .ofInstant(Instant.ofEpochSecond(second), GMT)
+          .format(DateTimeFormatter.RFC_1123_DATE_TIME));
+      // racing threads format the same second, the last write wins
+      current = formatted;
+    }
+    return formatted.value;
+  }
+
+  private static final class Formatted {
+    private final long second;
+    private final String value;
+
+    private Formatted(long second, String value) {
+      this.second = second;
+      this.value = value;
+    }
+  }
+}
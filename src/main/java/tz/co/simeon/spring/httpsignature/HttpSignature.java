@@ -3,7 +3,9 @@ package tz.co.simeon.spring.httpsignature;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,12 +15,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import tz.co.simeon.spring.httpsignature.signer.Signer;
-import tz.co.simeon.spring.httpsignature.verifier.Verifier;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
 
 /**
  * Class wrapping signature and fields needed to build and validate it.
@@ -65,12 +65,15 @@ class HttpSignature {
 
   static HttpSignature fromHeader(String header) {
     /*
-     * keyId="key-master-01",algorithm="rsa-sha256", signature="Base64(RSA-SHA256(signing string))"
+     * keyId="key-master-01",algorithm="rsa-sha256",headers="(request-target) host date",
+     * signature="Base64(RSA-SHA256(signing string))"
      */
     // required
     String keyId = null;
     // required
     String algorithm = null;
+    // optional, defaults to DEFAULT_HEADERS
+    List<String> headers = DEFAULT_HEADERS;
     // required
     String signature = null;
 
@@ -80,18 +83,18 @@ class HttpSignature {
       int c = header.indexOf(',', b);
       int eq = header.indexOf('=', b);
       if (eq == -1) {
-        return new HttpSignature(keyId, Algorithm.get(algorithm), DEFAULT_HEADERS, signature);
+        return new HttpSignature(keyId, Algorithm.get(algorithm), headers, signature);
       }
       if (eq > c) {
         b = c + 1;
       }
       int qb = header.indexOf('"', eq);
       if (qb == -1) {
-        return new HttpSignature(keyId, Algorithm.get(algorithm), DEFAULT_HEADERS, signature);
+        return new HttpSignature(keyId, Algorithm.get(algorithm), headers, signature);
       }
       int qe = header.indexOf('"', qb + 1);
       if (qe == -1) {
-        return new HttpSignature(keyId, Algorithm.get(algorithm), DEFAULT_HEADERS, signature);
+        return new HttpSignature(keyId, Algorithm.get(algorithm), headers, signature);
       }
 
       String name = header.substring(b, eq).trim();
@@ -103,6 +106,9 @@ class HttpSignature {
         case "algorithm":
           algorithm = unquotedValue;
           break;
+        case "headers":
+          headers = signedHeaders(unquotedValue);
+          break;
         case "signature":
           signature = unquotedValue;
           break;
@@ -114,9 +120,19 @@ class HttpSignature {
       }
       b = qe + 1;
       if (b >= header.length()) {
-        return new HttpSignature(keyId, Algorithm.get(algorithm), DEFAULT_HEADERS, signature);
+        return new HttpSignature(keyId, Algorithm.get(algorithm), headers, signature);
+      }
+    }
+  }
+
+  private static List<String> signedHeaders(String value) {
+    List<String> headers = new ArrayList<>();
+    for (String header : value.trim().split("\\s+")) {
+      if (!header.isEmpty()) {
+        headers.add(header.toLowerCase());
       }
     }
+    return headers.isEmpty() ? DEFAULT_HEADERS : Collections.unmodifiableList(headers);
   }
 
   public HttpSignature sign(ResettableStreamHttpServletRequest request,
@@ -126,11 +142,9 @@ class HttpSignature {
         outboundDefinition.algorithm(), outboundDefinition.signedHeadersConfig()
             .headers(request.getMethod(), Util.headers(request)));
 
-    // validate algorithm is OK
-    // let's try to validate the signature
-    byte[] toBeSigned = getHeaderBytesToSign(request, newHeaders);
+    byte[] toBeSigned = signature.getHeaderBytesToSign(request, newHeaders);
 
-    signature.signatureBytes = signer.sign(toBeSigned);
+    signature.signatureBytes = SignatureService.signer(outboundDefinition).sign(toBeSigned);
 
     signature.base64Signature = Base64.getEncoder().encodeToString(signature.signatureBytes);
     return signature;
@@ -154,79 +168,138 @@ class HttpSignature {
     return Collections.unmodifiableList(headers);
   }
 
-  Optional<String> validate() {
-    List<String> problems = new ArrayList<>();
-
+  Optional<HttpSignatureError> validate() {
     if (null == keyId) {
-      problems.add("keyId is a mandatory signature header component");
+      return Optional.of(HttpSignatureError.MISSING_KEY_ID);
     }
     if (null == algorithm) {
-      problems.add("algorithm is a mandatory signature header component");
+      return Optional.of(HttpSignatureError.MISSING_ALGORITHM);
     }
     if (null == base64Signature) {
-      problems.add("signature is a mandatory signature header component");
+      return Optional.of(HttpSignatureError.MISSING_SIGNATURE);
     }
 
     try {
-      this.signatureBytes = Base64.getDecoder().decode(base64Signature.getBytes());
-    } catch (Exception e) {
-      LOGGER.log(Level.FINEST, "Cannot get bytes from base64: " + base64Signature, e);
-      problems.add("cannot get bytes from base64 encoded signature: " + e.getMessage());
-    }
-
-    if (problems.isEmpty()) {
-      return Optional.empty();
+      this.signatureBytes = Base64.getDecoder().decode(base64Signature);
+    } catch (IllegalArgumentException e) {
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "Cannot get bytes from base64: " + base64Signature, e);
+      }
+      return Optional.of(HttpSignatureError.MALFORMED_SIGNATURE);
     }
-    return Optional.of("HttpSignature is not valid. Problems: " + String.join(", ", problems));
+    return Optional.empty();
   }
 
-  Optional<String> verify(byte[] signedBytes, InboundClientConfig clientDefinition,
+  Optional<HttpSignatureError> verify(byte[] signedBytes, InboundClientConfig clientDefinition,
       List<String> requiredHeaders) {
 
     for (String requiredHeader : requiredHeaders) {
       if (!this.headers.contains(requiredHeader)) {
-        return Optional.of("Header " + requiredHeader + " is required, yet not signed");
+        if (LOGGER.isLoggable(Level.FINE)) {
+          LOGGER.fine("Header " + requiredHeader + " is required, yet not signed");
+        }
+        return Optional.of(HttpSignatureError.UNSIGNED_HEADER);
       }
     }
 
-    return verifier.verify(signedBytes);
+    if (algorithm == Algorithm.HMAC_SHA256) {
+      Optional<byte[]> secret = clientDefinition.hmacSharedSecret();
+      if (!secret.isPresent()) {
+        LOGGER.warning(() -> "No shared secret configured for key id " + keyId);
+        return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+      }
+      return SignatureService.verifier(algorithm, signatureBytes, secret.get())
+          .verify(signedBytes);
+    }
+    Optional<PublicKey> publicKey = clientDefinition.keyConfig().flatMap(KeyConfig::publicKey);
+    if (!publicKey.isPresent()) {
+      LOGGER.warning(() -> "No public key configured for key id " + keyId);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+    }
+    return SignatureService.verifier(algorithm, signatureBytes, publicKey.get())
+        .verify(signedBytes);
+  }
+
+  /**
+   * Sign with the private key of a target.
+   *
+   * @param bytesToSign the signing string
+   * @param target      the target whose private key signs
+   * @param algorithm   the signature algorithm
+   * @return signature bytes
+   * @throws GeneralSecurityException if the target has no private key
+   */
+  static byte[] signRsaSha256(byte[] bytesToSign, OutboundTargetDefinition target,
+      Algorithm algorithm) throws GeneralSecurityException {
+    PrivateKey privateKey = target.keyConfig().flatMap(KeyConfig::privateKey)
+        .orElseThrow(() -> new GeneralSecurityException(
+            "Private key is required to sign for key id " + target.keyId()));
+    return SignatureService.signer(algorithm, privateKey).sign(bytesToSign);
   }
 
   public byte[] getHeaderBytesToSign(ResettableStreamHttpServletRequest request,
       Map<String, Collection<String>> newHeaders) {
+    return getHeaderBytesToSign(request, newHeaders, HttpSignatureMetrics.NOOP);
+  }
+
+  /**
+   * Signing string of a request.
+   *
+   * @param request    the request, its body is buffered if a digest is signed
+   * @param newHeaders headers added to the request while signing, {@code null} when verifying
+   * @param metrics    metrics to record body buffering, digest and canonicalization to
+   * @return UTF-8 encoded signing string
+   * @throws HttpSignatureAuthenticationException with {@link HttpSignatureError#MALFORMED_BODY} if
+   *                                              the body cannot be read or decoded
+   */
+  public byte[] getHeaderBytesToSign(ResettableStreamHttpServletRequest request,
+      Map<String, Collection<String>> newHeaders, HttpSignatureMetrics metrics) {
     try {
-      return getSignedString(newHeaders, request).getBytes(StandardCharsets.UTF_8);
-    } catch (NoSuchAlgorithmException | IOException | SignatureException e) {
-      e.printStackTrace();
-      return null;
+      return getSignedString(newHeaders, request, metrics).getBytes(StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      if (LOGGER.isLoggable(Level.FINE)) {
+        LOGGER.log(Level.FINE, "Request body cannot be read or decoded", e);
+      }
+      throw HttpSignatureError.MALFORMED_BODY.exception();
     }
   }
 
   private String getSignedString(Map<String, Collection<String>> newHeaders,
-      ResettableStreamHttpServletRequest request)
-      throws NoSuchAlgorithmException, IOException, SignatureException {
-
-    String message =
-        request.getReader().lines().map(Function.identity()).collect(Collectors.joining("\n"));
+      ResettableStreamHttpServletRequest request, HttpSignatureMetrics metrics)
+      throws IOException {
+
+    long start = metrics.start();
+    String sha256sum = null;
+    if (SignedChunks.isSignedChunks(request)) {
+      // chunks are verified one by one as the application reads them
+      sha256sum = SignedChunks.STREAMING_DIGEST.substring(
+          OutboundRequestSigner.DIGEST_PREFIX.length());
+    } else {
+      // the digest covers the body bytes exactly as received, also when they are inflated on read
+      request.getInputStream();
+      metrics.stop(HttpSignatureMetrics.Stage.BODY_BUFFERING, algorithm, start);
+      metrics.bodySize(request.getBufferedLength());
+
+      if (this.headers.contains("digest")) {
+        start = metrics.start();
+        sha256sum = request.getReceivedBodyDigest();
+        metrics.stop(HttpSignatureMetrics.Stage.DIGEST, algorithm, start);
+      }
+    }
+    String digest = sha256sum;
 
-    Map<String, Collection<String>> requestHeaders = Util.headers(request);
+    start = metrics.start();
+    // as signed by the client, even if hidden from the application
+    Map<String, Collection<String>> requestHeaders = request.getReceivedHeaders();
 
-    return this.headers.stream().map(header -> {
+    String signedString = this.headers.stream().map(header -> {
       if ("(request-target)".equals(header)) {
         // special case
         return header + HEADER_SEPARATOR + request.getMethod().toLowerCase() + " "
             + request.getRequestURI();
       } else if ("digest".equals(header)) {
         // special case
-        try {
-          String sha256sum = Util.sha256Digest(message);
-          return header + HEADER_SEPARATOR + "SHA-256=" + sha256sum;
-        } catch (SignatureException e) {
-          // TODO Auto-generated catch block
-          e.printStackTrace();
-          return null;
-        }
-
+        return header + HEADER_SEPARATOR + "SHA-256=" + digest;
       } else {
         Collection<String> headerValues = requestHeaders.get(header);
         if (null == headerValues && null == newHeaders) {
@@ -260,6 +333,9 @@ class HttpSignature {
         return header + HEADER_SEPARATOR + String.join(" ", headerValues);
       }
     }).collect(Collectors.joining("\n"));
+    metrics.stop(HttpSignatureMetrics.Stage.CANONICALIZATION, algorithm, start);
+
+    return signedString;
   }
 
   public static <T> String createCannonicalRequestString(URI uri, String contentType, byte[] body,
@@ -0,0 +1,80 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Instant;
+import java.util.Collection;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+
+/**
+ * Immutable {@link Authentication} of a client whose signature was verified, kept in the security
+ * context for the rest of the request, and in the session if any.
+ * <p>
+ * Unlike the {@link HttpSignatureAuthenticationToken} it replaces, it only holds a
+ * {@link HttpSignaturePrincipal} and the authorities of the client, not the signature or the
+ * signed bytes of the request.
+ */
+public final class HttpSignatureAuthentication extends AbstractAuthenticationToken {
+  private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+  private final HttpSignaturePrincipal principal;
+
+  /**
+   * Create an authentication.
+   *
+   * @param principal   the authenticated client
+   * @param authorities authorities granted to the client
+   */
+  public HttpSignatureAuthentication(HttpSignaturePrincipal principal,
+      Collection<? extends GrantedAuthority> authorities) {
+    super(authorities);
+    this.principal = principal;
+    super.setAuthenticated(true);
+  }
+
+  /**
+   * Create an authentication of a client verified now.
+   *
+   * @param keyId       key id of the verified signature
+   * @param algorithm   algorithm of the verified signature
+   * @param authorities authorities granted to the client
+   * @return authentication
+   */
+  public static HttpSignatureAuthentication verified(String keyId, Algorithm algorithm,
+      Collection<? extends GrantedAuthority> authorities) {
+    return new HttpSignatureAuthentication(
+        new HttpSignaturePrincipal(keyId, algorithm, Instant.now()), authorities);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public HttpSignaturePrincipal getPrincipal() {
+    return principal;
+  }
+
+  /**
+   * There are no credentials left once the signature is verified.
+   *
+   * @return {@code null}
+   */
+  @Override
+  public Object getCredentials() {
+    return null;
+  }
+
+  /**
+   * An authentication cannot be made authenticated after creation.
+   *
+   * @param authenticated must be {@code false}
+   */
+  @Override
+  public void setAuthenticated(boolean authenticated) {
+    if (authenticated) {
+      throw new IllegalArgumentException("Cannot mark an authentication as authenticated");
+    }
+    super.setAuthenticated(false);
+  }
+}
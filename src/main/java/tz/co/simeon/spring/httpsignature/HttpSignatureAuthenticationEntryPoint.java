@@ -1,9 +1,10 @@
 package tz.co.simeon.spring.httpsignature;
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -17,7 +18,8 @@ import org.springframework.security.web.AuthenticationEntryPoint;
  * resource requests using {@link HttpSignatureAuthenticationFilter}.
  * <p>
  * Uses information provided by {@link HttpSignatureException} to set HTTP response status code and
- * populate {@code WWW-Authenticate} HTTP header.
+ * populate {@code WWW-Authenticate} HTTP header. The header of each {@link HttpSignatureError} is
+ * rendered once, when the realm is set.
  *
  * @author Simeon Mugisha
  * @since 5.1
@@ -25,12 +27,18 @@ import org.springframework.security.web.AuthenticationEntryPoint;
  *      The WWW-Authenticate Response Header Field</a>
  */
 public final class HttpSignatureAuthenticationEntryPoint implements AuthenticationEntryPoint {
+  private static final Logger LOGGER =
+      Logger.getLogger(HttpSignatureAuthenticationEntryPoint.class.getName());
 
   private String realmName;
 
+  private volatile String challenge = render(null, null, null);
+
+  private volatile Map<HttpSignatureError, String> challenges = render(null);
+
   /**
    * Collect error details from the provided parameters and format according to RFC 6750,
-   * specifically error, error_description, error_uri, and scope.
+   * specifically error and error_description.
    *
    * @param request       that resulted in an <code>AuthenticationException</code>
    * @param response      so that the user agent can begin authentication
@@ -42,19 +50,20 @@ public final class HttpSignatureAuthenticationEntryPoint implements Authenticati
 
     HttpStatus status = HttpStatus.UNAUTHORIZED;
 
-    Map<String, String> parameters = new LinkedHashMap<>();
-
-    if (this.realmName != null) {
-      parameters.put("realm", this.realmName);
-    }
-
+    String wwwAuthenticate = this.challenge;
     if (authException instanceof HttpSignatureAuthenticationException) {
-      parameters.put("error", "401");
-      parameters.put("error_description", authException.getMessage());
-      parameters.put("error_uri", request.getRequestURI());
+      HttpSignatureError error = ((HttpSignatureAuthenticationException) authException).getError();
+      if (null != error) {
+        status = error.getStatus();
+        wwwAuthenticate = this.challenges.get(error);
+      } else {
+        wwwAuthenticate = render(this.realmName, "invalid_request", authException.getMessage());
+      }
+    }
+    if (LOGGER.isLoggable(Level.FINE)) {
+      LOGGER.fine("Authentication of " + request.getRequestURI() + " failed: "
+          + authException.getMessage());
     }
-
-    String wwwAuthenticate = computeWWWAuthenticateHeaderValue(parameters);
 
     response.addHeader(HttpHeaders.WWW_AUTHENTICATE, wwwAuthenticate);
     response.setStatus(status.value());
@@ -67,16 +76,29 @@ public final class HttpSignatureAuthenticationEntryPoint implements Authenticati
    */
   public final void setRealmName(String realmName) {
     this.realmName = realmName;
+    this.challenge = render(realmName, null, null);
+    this.challenges = render(realmName);
   }
 
-  private static String computeWWWAuthenticateHeaderValue(Map<String, String> parameters) {
-    String wwwAuthenticate = "Signature";
-    if (!parameters.isEmpty()) {
-      wwwAuthenticate += parameters.entrySet().stream()
-          .map(attribute -> attribute.getKey() + "=\"" + attribute.getValue() + "\"")
-          .collect(Collectors.joining(", ", " ", ""));
+  private static Map<HttpSignatureError, String> render(String realmName) {
+    Map<HttpSignatureError, String> challenges = new EnumMap<>(HttpSignatureError.class);
+    for (HttpSignatureError error : HttpSignatureError.values()) {
+      challenges.put(error, render(realmName, error.getError(), error.getDescription()));
     }
+    return challenges;
+  }
 
-    return wwwAuthenticate;
+  private static String render(String realmName, String error, String description) {
+    StringBuilder wwwAuthenticate = new StringBuilder("Signature");
+    String separator = " ";
+    if (null != realmName) {
+      wwwAuthenticate.append(separator).append("realm=\"").append(realmName).append('"');
+      separator = ", ";
+    }
+    if (null != error) {
+      wwwAuthenticate.append(separator).append("error=\"").append(error).append('"')
+          .append(", error_description=\"").append(description).append('"');
+    }
+    return wwwAuthenticate.toString();
   }
 }
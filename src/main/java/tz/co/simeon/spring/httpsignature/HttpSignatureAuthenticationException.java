@@ -18,10 +18,66 @@ import org.springframework.security.core.AuthenticationException;
  */
 public class HttpSignatureAuthenticationException extends AuthenticationException {
 
+  private final HttpSignatureError error;
+
   public HttpSignatureAuthenticationException(String msg) {
     super(msg);
+    this.error = null;
+  }
+
+  private HttpSignatureAuthenticationException(HttpSignatureError error) {
+    super(error.getDescription());
+    this.error = error;
+  }
+
+  /**
+   * Create the shared exception of an error, see {@link HttpSignatureError#exception()}.
+   *
+   * @param error the error
+   * @return the shared exception
+   */
+  static HttpSignatureAuthenticationException shared(HttpSignatureError error) {
+    return new Shared(error);
+  }
+
+  /**
+   * The error, if this exception is the shared exception of one.
+   *
+   * @return error, or {@code null} for exceptions with an arbitrary message
+   */
+  public HttpSignatureError getError() {
+    return error;
   }
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * Exception shared by every request failing with the same error: it never captures a stack
+   * trace, not even while being constructed, and its cause and stack trace cannot be set.
+   * {@link Throwable#addSuppressed(Throwable)} is final and cannot be disabled through the
+   * constructors of {@link AuthenticationException}, so code catching a shared exception must
+   * not add suppressed exceptions to it.
+   */
+  private static final class Shared extends HttpSignatureAuthenticationException {
+    private static final long serialVersionUID = 1L;
+
+    private Shared(HttpSignatureError error) {
+      super(error);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+
+    @Override
+    public synchronized Throwable initCause(Throwable cause) {
+      throw new IllegalStateException("Shared exception of " + getError() + " cannot have a cause");
+    }
+
+    @Override
+    public void setStackTrace(StackTraceElement[] stackTrace) {
+      // shared, stays without stack trace
+    }
+  }
 }
\ No newline at end of file
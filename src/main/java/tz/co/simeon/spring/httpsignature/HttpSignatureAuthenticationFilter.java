@@ -1,10 +1,15 @@
 package tz.co.simeon.spring.httpsignature;
 
 import java.io.IOException;
+import java.security.PublicKey;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationDetailsSource;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
@@ -18,6 +23,9 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import tz.co.simeon.spring.httpsignature.jfr.HttpSignatureFilterEvent;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
 
 /**
  * Authenticates requests that contain a
@@ -25,7 +33,9 @@ import lombok.Setter;
  * Signature</a>.
  *
  * This filter should be wired with an {@link AuthenticationManager} that can authenticate a
- * {@link HttpSignatureAuthenticationToken}.
+ * {@link HttpSignatureAuthenticationToken}. Requests already authenticated with a
+ * {@link HttpSignatureAuthentication}, such as by a {@link GatewayAttestationFilter} in front of
+ * this filter, are passed on without their signature being verified again.
  *
  * @author Simeon Mugisha
  * @see <a href="https://tools.ietf.org/id/draft-cavage-http-signatures-11.html" target=
@@ -48,6 +58,49 @@ public class HttpSignatureAuthenticationFilter extends OncePerRequestFilter {
   private AuthenticationEntryPoint authenticationEntryPoint =
       new HttpSignatureAuthenticationEntryPoint();
 
+  @NonNull
+  private HttpSignatureMetrics metrics = HttpSignatureMetrics.NOOP;
+
+  /**
+   * Whether {@code gzip} and {@code deflate} encoded bodies are digested as received and inflated
+   * for the application, see {@link ResettableStreamHttpServletRequest#isContentDecoded()}.
+   */
+  private boolean decodeContent;
+
+  /**
+   * Attestation forwarded with verified requests to the services behind this filter, see
+   * {@link GatewayAttestationFilter}, {@code null} unless running on an edge gateway.
+   */
+  private GatewayAttestation attestation;
+
+  /**
+   * Limiter of failed verifications per key id and client address, {@code null} for no limit.
+   * Invalid signatures and bodies that cannot be read or decoded count as failures. Clients over
+   * the limit are answered {@code 429 Too Many Requests} before their body is read.
+   */
+  private VerificationFailureLimiter failureLimiter;
+
+  /**
+   * Address of the client for {@link #failureLimiter}, the remote address of the connection by
+   * default. Set it when running behind a reverse proxy, see {@link ClientAddressResolver}.
+   */
+  @NonNull
+  private ClientAddressResolver clientAddressResolver = ClientAddressResolver.REMOTE_ADDRESS;
+
+  /**
+   * Adaptive limit of requests having their signature verified concurrently, {@code null} for no
+   * limit. Requests arriving over the limit are answered {@code 503 Service Unavailable} before
+   * their body is read. The permit itself is only held while the signature is verified, so the
+   * time clients take to send the body neither holds a permit nor counts as latency.
+   */
+  private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+  /**
+   * Routes requiring a signature, {@code null} for all routes. Other routes are passed on before
+   * any header is read.
+   */
+  private SignatureRouteMatcher routeMatcher;
+
   /**
    * Extract any <a href="https://tools.ietf.org/html/rfc6750#section-1.2" target= "_blank">Bearer
    * Token</a> from the request and attempt an authentication.
@@ -61,49 +114,242 @@ public class HttpSignatureAuthenticationFilter extends OncePerRequestFilter {
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
       FilterChain filterChain) throws ServletException, IOException {
+    if (null != routeMatcher && !routeMatcher.requiresSignature(request)) {
+      filterChain.doFilter(null == attestation ? request : attestation.strip(request), response);
+      return;
+    }
+
+    if (isAuthenticated()) {
+      filterChain.doFilter(null == attestation ? request : attestation.strip(request), response);
+      return;
+    }
+
     final boolean debug = this.logger.isDebugEnabled();
 
+    HttpSignatureFilterEvent event = JfrSupport.AVAILABLE ? new HttpSignatureFilterEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    final boolean recording = null != event && event.isEnabled();
+
     HttpSignature signature;
 
+    long start = metrics.start();
+    long mark = recording ? System.nanoTime() : 0L;
     try {
       signature = this.signatureResolver.resolve(request);
     } catch (HttpSignatureAuthenticationException invalid) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_HEADER, null);
+      commit(event, null, null, "invalid-header");
       this.authenticationEntryPoint.commence(request, response, invalid);
       return;
     }
+    metrics.stop(HttpSignatureMetrics.Stage.HEADER_PARSE,
+        signature == null ? null : signature.getAlgorithm(), start);
+    if (recording) {
+      event.headerParseDuration = System.nanoTime() - mark;
+      mark = System.nanoTime();
+    }
 
     if (signature == null) {
-      filterChain.doFilter(request, response);
+      filterChain.doFilter(null == attestation ? request : attestation.strip(request), response);
+      return;
+    }
+
+    String address = null == failureLimiter ? null : clientAddressResolver.resolve(request);
+    if (null != failureLimiter) {
+      long retryAfter = failureLimiter.retryAfterNanos(signature.getKeyId(), address);
+      if (retryAfter > 0) {
+        metrics.failure(HttpSignatureMetrics.FailureReason.RATE_LIMITED,
+            signature.getAlgorithm());
+        commit(event, signature, null, "rate-limited");
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+            String.valueOf(TimeUnit.NANOSECONDS.toSeconds(retryAfter) + 1));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+        return;
+      }
+    }
+
+    // shed before the body is buffered and digested, the permit is only taken to verify
+    if (null != concurrencyLimiter && concurrencyLimiter.isSaturated()) {
+      overloaded(event, signature, null, response);
       return;
     }
 
-    ResettableStreamHttpServletRequest wrappedRequest =
-        new ResettableStreamHttpServletRequest((HttpServletRequest) request);
+    AdaptiveConcurrencyLimiter.Permit permit = null;
+    try {
+      ResettableStreamHttpServletRequest wrappedRequest =
+          new ResettableStreamHttpServletRequest((HttpServletRequest) request, decodeContent);
 
-    HttpSignatureAuthenticationToken authenticationRequest =
-        new HttpSignatureAuthenticationToken(signature, wrappedRequest);
+      HttpSignatureAuthenticationToken authenticationRequest;
+      try {
+        authenticationRequest =
+            new HttpSignatureAuthenticationToken(signature, wrappedRequest, metrics);
+      } catch (HttpSignatureAuthenticationException malformed) {
+        // the body cannot be digested, the request is rejected before verification
+        metrics.failure(HttpSignatureMetrics.FailureReason.MALFORMED_BODY,
+            signature.getAlgorithm());
+        commit(event, signature, wrappedRequest, "malformed-body");
+        if (null != failureLimiter) {
+          failureLimiter.failed(signature.getKeyId(), address);
+        }
+        this.authenticationEntryPoint.commence(wrappedRequest, response, malformed);
+        return;
+      }
 
-    authenticationRequest.setDetails(authenticationDetailsSource.buildDetails(wrappedRequest));
+      authenticationRequest.setDetails(authenticationDetailsSource.buildDetails(wrappedRequest));
 
-    wrappedRequest.resetInputStream();
+      wrappedRequest.resetInputStream();
+      if (recording) {
+        event.signingStringDuration = System.nanoTime() - mark;
+        mark = System.nanoTime();
+      }
 
-    try {
-      Authentication authenticationResult =
-          authenticationManager.authenticate(authenticationRequest);
+      // acquired once the body is read, so slow clients do not hold permits or skew the latency
+      if (null != concurrencyLimiter) {
+        permit = concurrencyLimiter.tryAcquire();
+        if (null == permit) {
+          overloaded(event, signature, wrappedRequest, response);
+          return;
+        }
+      }
+
+      boolean authenticated = false;
+      try {
+        Authentication authenticationResult =
+            authenticationManager.authenticate(authenticationRequest);
+        authenticated = true;
+        release(permit);
+        if (recording) {
+          event.authenticationDuration = System.nanoTime() - mark;
+        }
+        commit(event, signature, wrappedRequest, "success");
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authenticationResult);
+        SecurityContextHolder.setContext(context);
+
+        filterChain.doFilter(attested(
+            downstream(request, wrappedRequest, signature, authenticationRequest), wrappedRequest,
+            signature, authenticationResult), response);
+      } catch (AuthenticationException failed) {
+        release(permit);
+        SecurityContextHolder.clearContext();
+        if (!authenticated) {
+          if (recording) {
+            event.authenticationDuration = System.nanoTime() - mark;
+          }
+          commit(event, signature, wrappedRequest, "failure");
+          if (null != failureLimiter) {
+            failureLimiter.failed(signature.getKeyId(), address);
+          }
+        }
+
+        if (debug) {
+          this.logger.debug("Authentication request for failed: " + failed);
+        }
 
-      SecurityContext context = SecurityContextHolder.createEmptyContext();
-      context.setAuthentication(authenticationResult);
-      SecurityContextHolder.setContext(context);
+        this.authenticationEntryPoint.commence(wrappedRequest, response, failed);
+      }
+    } finally {
+      release(permit);
+    }
+  }
+
+  /**
+   * Whether the signature of the request was already verified, see
+   * {@link GatewayAttestationFilter}.
+   */
+  private static boolean isAuthenticated() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication instanceof HttpSignatureAuthentication
+        && authentication.isAuthenticated();
+  }
+
+  private void overloaded(HttpSignatureFilterEvent event, HttpSignature signature,
+      ResettableStreamHttpServletRequest wrappedRequest, HttpServletResponse response)
+      throws IOException {
+    metrics.failure(HttpSignatureMetrics.FailureReason.OVERLOADED, signature.getAlgorithm());
+    commit(event, signature, wrappedRequest, "overloaded");
+    response.setHeader(HttpHeaders.RETRY_AFTER,
+        String.valueOf(Math.max(1L, concurrencyLimiter.retryAfter().getSeconds())));
+    response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+  }
 
-      filterChain.doFilter(wrappedRequest, response);
-    } catch (AuthenticationException failed) {
-      SecurityContextHolder.clearContext();
+  private static void release(AdaptiveConcurrencyLimiter.Permit permit) {
+    if (null != permit) {
+      permit.release();
+    }
+  }
 
-      if (debug) {
-        this.logger.debug("Authentication request for failed: " + failed);
+  /**
+   * Request handed to the application: the buffered request, or for {@link SignedChunks} bodies,
+   * a request verifying each chunk as it is read.
+   */
+  private static HttpServletRequest downstream(HttpServletRequest request,
+      ResettableStreamHttpServletRequest wrappedRequest, HttpSignature signature,
+      HttpSignatureAuthenticationToken authenticationRequest) {
+    if (!SignedChunks.isSignedChunks(request)) {
+      return wrappedRequest;
+    }
+    // the client is recorded on the verified request, the authentication result is kept compact
+    Optional<InboundClientConfig> client =
+        Optional.ofNullable(authenticationRequest.getClientConfig());
+    if (signature.getAlgorithm() == Algorithm.HMAC_SHA256) {
+      byte[] sharedSecret = client.flatMap(InboundClientConfig::hmacSharedSecret).orElse(null);
+      if (null == sharedSecret) {
+        throw new HttpSignatureAuthenticationException(
+            "Shared secret is required to verify signed chunks");
       }
+      return new ChunkVerifyingHttpServletRequest(request, signature.getAlgorithm(),
+          sharedSecret, signature.getBase64Signature());
+    }
+    PublicKey publicKey = client.flatMap(InboundClientConfig::keyConfig)
+        .flatMap(KeyConfig::publicKey)
+        .orElse(null);
+    if (null == publicKey) {
+      throw new HttpSignatureAuthenticationException(
+          "Public key is required to verify signed chunks");
+    }
+    return new ChunkVerifyingHttpServletRequest(request, signature.getAlgorithm(), publicKey,
+        signature.getBase64Signature());
+  }
+
+  /**
+   * Request handed to the services behind an edge gateway, carrying the attestation of the
+   * verified signature and the authorities granted to the client. Chunk signed bodies are still
+   * verified by the services themselves.
+   */
+  private HttpServletRequest attested(HttpServletRequest downstream,
+      ResettableStreamHttpServletRequest wrappedRequest, HttpSignature signature,
+      Authentication authenticationResult) throws IOException {
+    if (null == attestation) {
+      return downstream;
+    }
+    if (SignedChunks.isSignedChunks(downstream)) {
+      return attestation.strip(downstream);
+    }
+    return attestation.attach(downstream, signature.getKeyId(), signature.getAlgorithm(),
+        authenticationResult.getAuthorities(),
+        OutboundRequestSigner.DIGEST_PREFIX + wrappedRequest.getReceivedBodyDigest());
+  }
 
-      this.authenticationEntryPoint.commence(wrappedRequest, response, failed);
+  private static void commit(HttpSignatureFilterEvent event, HttpSignature signature,
+      ResettableStreamHttpServletRequest request, String outcome) {
+    if (null == event) {
+      return;
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      if (null != signature) {
+        event.keyId = signature.getKeyId();
+        event.algorithm = String.valueOf(signature.getAlgorithm());
+      }
+      if (null != request) {
+        event.bodySize = request.getBufferedLength();
+      }
+      event.outcome = outcome;
+      event.commit();
     }
   }
 
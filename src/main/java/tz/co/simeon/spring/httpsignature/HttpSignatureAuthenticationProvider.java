@@ -1,6 +1,7 @@
 package tz.co.simeon.spring.httpsignature;
 
 import static tz.co.simeon.spring.httpsignature.CollectionsHelper.listOf;
+import java.security.PublicKey;
 import java.util.Optional;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -9,6 +10,10 @@ import org.springframework.security.core.AuthenticationException;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import tz.co.simeon.spring.httpsignature.jfr.HttpSignatureAuthenticationEvent;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
 
 /**
  * A provider that can authenticate incoming requests based on HTTP signature of header fields, and
@@ -21,6 +26,17 @@ public final class HttpSignatureAuthenticationProvider implements Authentication
   @NonNull
   private final HttpSignatureAuthenticationService service;
 
+  /**
+   * Optional cache of verification outcomes for byte-identical retries, disabled when
+   * {@code null}.
+   */
+  @Setter
+  private VerificationResultCache verificationCache;
+
+  @Setter
+  @NonNull
+  private HttpSignatureMetrics metrics = HttpSignatureMetrics.NOOP;
+
   static final SignedHeadersConfig DEFAULT_REQUIRED_HEADERS = SignedHeadersConfig.builder()
       .defaultConfig(SignedHeadersConfig.HeadersConfig
           .create(listOf("date", SignedHeadersConfig.REQUEST_TARGET)))
@@ -46,19 +62,86 @@ public final class HttpSignatureAuthenticationProvider implements Authentication
   @Override
   public Authentication authenticate(Authentication authentication) throws AuthenticationException {
     HttpSignatureAuthenticationToken token = (HttpSignatureAuthenticationToken) authentication;
+    Algorithm algorithm = token.getSignature().getAlgorithm();
+
+    HttpSignatureAuthenticationEvent event =
+        JfrSupport.AVAILABLE ? new HttpSignatureAuthenticationEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    final boolean recording = null != event && event.isEnabled();
+
+    long start = metrics.start();
+    long mark = recording ? System.nanoTime() : 0L;
     InboundClientConfig clientConfig = service.loadByKeyId(token.getSignature().getKeyId());
+    metrics.stop(HttpSignatureMetrics.Stage.KEY_LOOKUP, algorithm, start);
+    if (recording) {
+      event.keyLookupDuration = System.nanoTime() - mark;
+    }
 
     if (!clientConfig.isEnabled()) {
-      throw new HttpSignatureAuthenticationException("Key configuration is not enabled");
+      metrics.failure(HttpSignatureMetrics.FailureReason.KEY_DISABLED, algorithm);
+      commit(event, token, "key-disabled");
+      throw HttpSignatureError.KEY_DISABLED.exception();
     }
 
-    Optional<String> error = token.getSignature().verify(token.getSignedBytes(), clientConfig,
-        DEFAULT_REQUIRED_HEADERS.headers(HttpMethod.POST.name()));
+    start = metrics.start();
+    mark = recording ? System.nanoTime() : 0L;
+    Optional<HttpSignatureError> error;
+    if (null == verificationCache) {
+      error = verify(token, clientConfig);
+    } else {
+      error = verificationCache.verify(token.getSignature(), keyFingerprint(clientConfig),
+          token.getSignedBytes(), token.getDate(), () -> verify(token, clientConfig));
+    }
+    token.eraseCredentials();
+    metrics.stop(HttpSignatureMetrics.Stage.VERIFY, algorithm, start);
+    if (recording) {
+      event.verifyDuration = System.nanoTime() - mark;
+    }
 
     if (error.isPresent()) {
-      throw new HttpSignatureAuthenticationException(error.get());
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_SIGNATURE, algorithm);
+      commit(event, token, "invalid-signature");
+      throw error.get().exception();
     }
-    return token;
+    commit(event, token, "success");
+    token.setClientConfig(clientConfig);
+
+    HttpSignatureAuthentication result = HttpSignatureAuthentication.verified(
+        token.getSignature().getKeyId(), algorithm, clientConfig.authorities());
+    result.setDetails(token.getDetails());
+    return result;
+  }
+
+  private static void commit(HttpSignatureAuthenticationEvent event,
+      HttpSignatureAuthenticationToken token, String outcome) {
+    if (null == event) {
+      return;
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.keyId = token.getSignature().getKeyId();
+      event.algorithm = String.valueOf(token.getSignature().getAlgorithm());
+      event.outcome = outcome;
+      event.commit();
+    }
+  }
+
+  private static byte[] keyFingerprint(InboundClientConfig clientConfig) {
+    if (clientConfig.algorithm() == Algorithm.HMAC_SHA256) {
+      return VerificationResultCache.fingerprint(clientConfig.hmacSharedSecret().orElse(null));
+    }
+    return VerificationResultCache.fingerprint(clientConfig.keyConfig()
+        .flatMap(KeyConfig::publicKey)
+        .map(PublicKey::getEncoded)
+        .orElse(null));
+  }
+
+  private Optional<HttpSignatureError> verify(HttpSignatureAuthenticationToken token,
+      InboundClientConfig clientConfig) {
+    return token.getSignature().verify(token.getSignedBytes(), clientConfig,
+        DEFAULT_REQUIRED_HEADERS.headers(HttpMethod.POST.name()));
   }
 
   @Override
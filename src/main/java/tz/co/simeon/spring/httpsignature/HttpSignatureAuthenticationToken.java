@@ -31,6 +31,15 @@ public class HttpSignatureAuthenticationToken extends AbstractAuthenticationToke
   @Getter
   private byte[] signedBytes;
 
+  @Getter
+  private String date;
+
+  /**
+   * Configuration of the client whose key verified the signature, set once authenticated.
+   */
+  @Getter
+  private InboundClientConfig clientConfig;
+
   /**
    * Create a {@code HttpSignatureAuthenticationToken} using the provided parameter(s)
    * 
@@ -39,13 +48,26 @@ public class HttpSignatureAuthenticationToken extends AbstractAuthenticationToke
    */
   public HttpSignatureAuthenticationToken(HttpSignature signature,
       ResettableStreamHttpServletRequest request) {
+    this(signature, request, HttpSignatureMetrics.NOOP);
+  }
+
+  /**
+   * Create a {@code HttpSignatureAuthenticationToken} using the provided parameter(s)
+   * 
+   * @param signature the Http Signature
+   * @param request   the requests
+   * @param metrics   metrics to record body buffering, digest and canonicalization to
+   */
+  public HttpSignatureAuthenticationToken(HttpSignature signature,
+      ResettableStreamHttpServletRequest request, HttpSignatureMetrics metrics) {
     super(Collections.emptyList());
 
     Assert.notNull(signature, "signature cannot be empty");
 
     this.signature = signature;
 
-    this.signedBytes = signature.getHeaderBytesToSign(request, null);
+    this.signedBytes = signature.getHeaderBytesToSign(request, null, metrics);
+    this.date = request.getHeader("date");
   }
 
   public HttpSignatureAuthenticationToken(String name, Object signature) {
@@ -58,6 +80,19 @@ public class HttpSignatureAuthenticationToken extends AbstractAuthenticationToke
     this.setAuthenticated(true);
   }
 
+  void setClientConfig(InboundClientConfig clientConfig) {
+    this.clientConfig = clientConfig;
+  }
+
+  /**
+   * Drop the signed bytes once the signature is verified.
+   */
+  @Override
+  public void eraseCredentials() {
+    this.signedBytes = null;
+    super.eraseCredentials();
+  }
+
   /**
    * {@inheritDoc}
    */
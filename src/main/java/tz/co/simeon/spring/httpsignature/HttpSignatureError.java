@@ -0,0 +1,85 @@
+package tz.co.simeon.spring.httpsignature;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Reasons a signature is rejected.
+ * <p>
+ * Each error has a single, stackless {@link HttpSignatureAuthenticationException}, see
+ * {@link #exception()}, and a {@code WWW-Authenticate} challenge rendered once by
+ * {@link HttpSignatureAuthenticationEntryPoint}, so rejecting a request allocates nothing for the
+ * error itself. Details of a failure are only logged, at debug level.
+ */
+public enum HttpSignatureError {
+  MISSING_KEY_ID("invalid_request", "keyId is a mandatory signature header component"),
+
+  MISSING_ALGORITHM("invalid_request", "algorithm is a mandatory signature header component"),
+
+  MISSING_SIGNATURE("invalid_request", "signature is a mandatory signature header component"),
+
+  MALFORMED_SIGNATURE("invalid_request", "signature is not valid base64"),
+
+  UNSIGNED_HEADER("invalid_request", "A required header is not signed"),
+
+  KEY_DISABLED("invalid_key", "Key configuration is not enabled"),
+
+  INVALID_SIGNATURE("invalid_signature", "Signature is not valid"),
+
+  VERIFICATION_ERROR("invalid_signature", "Signature could not be verified"),
+
+  MALFORMED_BODY(HttpStatus.BAD_REQUEST, "invalid_request",
+      "Request body cannot be read or decoded");
+
+  private final HttpStatus status;
+  private final String error;
+  private final String description;
+  private final HttpSignatureAuthenticationException exception;
+
+  HttpSignatureError(String error, String description) {
+    this(HttpStatus.UNAUTHORIZED, error, description);
+  }
+
+  HttpSignatureError(HttpStatus status, String error, String description) {
+    this.status = status;
+    this.error = error;
+    this.description = description;
+    this.exception = HttpSignatureAuthenticationException.shared(this);
+  }
+
+  /**
+   * Status of the response rejecting the request.
+   *
+   * @return {@code 401}, or {@code 400} for requests that cannot be verified at all
+   */
+  public HttpStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Value of the {@code error} attribute of the challenge.
+   *
+   * @return error code
+   */
+  public String getError() {
+    return error;
+  }
+
+  /**
+   * Value of the {@code error_description} attribute of the challenge.
+   *
+   * @return description of the error
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Shared exception for this error. It has no stack trace, its cause cannot be set, and no
+   * suppressed exception must be added to it.
+   *
+   * @return exception to throw
+   */
+  public HttpSignatureAuthenticationException exception() {
+    return exception;
+  }
+}
@@ -13,4 +13,8 @@ public class HttpSignatureException extends SecurityException {
   public HttpSignatureException(Exception e) {
     super(e);
   }
+
+  public HttpSignatureException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,132 @@
+package tz.co.simeon.spring.httpsignature;
+
+/**
+ * Receives timings, sizes and failures of the stages of signature verification and signing.
+ * <p>
+ * The default {@link #NOOP} implementation does not even read the clock, so instrumentation costs
+ * nothing unless a real implementation such as {@link MicrometerHttpSignatureMetrics} is
+ * configured.
+ */
+public interface HttpSignatureMetrics {
+
+  /**
+   * Metrics that record nothing.
+   */
+  HttpSignatureMetrics NOOP = new HttpSignatureMetrics() {
+    @Override
+    public long start() {
+      return 0L;
+    }
+
+    @Override
+    public void stop(Stage stage, Algorithm algorithm, long start) {
+    }
+
+    @Override
+    public void bodySize(long bytes) {
+    }
+
+    @Override
+    public void failure(FailureReason reason, Algorithm algorithm) {
+    }
+  };
+
+  /**
+   * Start timing a stage.
+   *
+   * @return opaque start value to pass to {@link #stop(Stage, Algorithm, long)}
+   */
+  long start();
+
+  /**
+   * Record the duration of a stage.
+   *
+   * @param stage     the stage that finished
+   * @param algorithm the algorithm of the signature, may be {@code null} when not yet known
+   * @param start     value returned by {@link #start()}
+   */
+  void stop(Stage stage, Algorithm algorithm, long start);
+
+  /**
+   * Record the size of a buffered request body.
+   *
+   * @param bytes number of bytes buffered
+   */
+  void bodySize(long bytes);
+
+  /**
+   * Count a failed verification.
+   *
+   * @param reason    why verification failed
+   * @param algorithm the algorithm of the signature, may be {@code null} when not yet known
+   */
+  void failure(FailureReason reason, Algorithm algorithm);
+
+  /**
+   * Count a signing task rejected because the {@link SigningExecutor} queue was full.
+   *
+   * @param algorithm the algorithm of the signature
+   */
+  default void signingRejected(Algorithm algorithm) {
+  }
+
+  /**
+   * Stages of signature processing.
+   */
+  enum Stage {
+    HEADER_PARSE("header-parse"),
+
+    BODY_BUFFERING("body-buffering"),
+
+    DIGEST("digest"),
+
+    KEY_LOOKUP("key-lookup"),
+
+    CANONICALIZATION("canonicalization"),
+
+    SIGN_QUEUE("sign-queue"),
+
+    VERIFY("verify"),
+
+    SIGN("sign");
+
+    private final String tag;
+
+    Stage(String tag) {
+      this.tag = tag;
+    }
+
+    public String tag() {
+      return tag;
+    }
+  }
+
+  /**
+   * Reasons for a failed verification.
+   */
+  enum FailureReason {
+    INVALID_HEADER("invalid-header"),
+
+    MALFORMED_BODY("malformed-body"),
+
+    KEY_DISABLED("key-disabled"),
+
+    EXPIRED("expired"),
+
+    RATE_LIMITED("rate-limited"),
+
+    OVERLOADED("overloaded"),
+
+    INVALID_SIGNATURE("invalid-signature");
+
+    private final String tag;
+
+    FailureReason(String tag) {
+      this.tag = tag;
+    }
+
+    public String tag() {
+      return tag;
+    }
+  }
+}
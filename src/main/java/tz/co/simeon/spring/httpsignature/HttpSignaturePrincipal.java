@@ -0,0 +1,38 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.time.Instant;
+import lombok.Value;
+
+/**
+ * The client authenticated by a verified signature: its key id, the algorithm of the signature and
+ * when it was verified. Holds none of the signing material.
+ */
+@Value
+public class HttpSignaturePrincipal implements Principal, Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Key id of the verified signature.
+   */
+  String keyId;
+
+  /**
+   * Algorithm of the verified signature.
+   */
+  Algorithm algorithm;
+
+  /**
+   * When the signature was verified.
+   */
+  Instant verifiedAt;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName() {
+    return keyId;
+  }
+}
@@ -1,8 +1,11 @@
 package tz.co.simeon.spring.httpsignature;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserCache;
 import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
 
@@ -54,4 +57,13 @@ public interface InboundClientConfig extends Serializable {
   public Optional<byte[]> hmacSharedSecret();
 
   public boolean isEnabled();
+
+  /**
+   * Authorities granted to this client once its signature is verified.
+   *
+   * @return granted authorities, none by default
+   */
+  public default Collection<? extends GrantedAuthority> authorities() {
+    return Collections.emptyList();
+  }
 }
@@ -0,0 +1,109 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+
+/**
+ * {@link HttpSignatureMetrics} backed by a Micrometer {@link MeterRegistry}.
+ * <p>
+ * All meters are registered up front, one per stage (or failure reason) and algorithm, so tags
+ * have bounded cardinality and recording does not allocate. Timers publish percentile histograms
+ * rather than computing percentiles client-side.
+ * <p>
+ * Micrometer is an optional dependency, this class is only loaded when instantiated.
+ */
+public final class MicrometerHttpSignatureMetrics implements HttpSignatureMetrics {
+  private static final String UNKNOWN_ALGORITHM = "unknown";
+  private static final int UNKNOWN_ALGORITHM_INDEX = Algorithm.values().length;
+
+  private final Timer[][] timers;
+  private final Counter[][] failures;
+  private final Counter[] rejections;
+  private final DistributionSummary bodySize;
+
+  public MicrometerHttpSignatureMetrics(@NonNull MeterRegistry registry) {
+    Algorithm[] algorithms = Algorithm.values();
+    Stage[] stages = Stage.values();
+    FailureReason[] reasons = FailureReason.values();
+
+    this.timers = new Timer[stages.length][algorithms.length + 1];
+    for (Stage stage : stages) {
+      for (int i = 0; i <= algorithms.length; i++) {
+        timers[stage.ordinal()][i] = Timer.builder("http.signature.stage")
+            .description("Duration of a stage of HTTP signature processing")
+            .tag("stage", stage.tag())
+            .tag("algorithm", tag(algorithms, i))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(1)))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(registry);
+      }
+    }
+
+    this.failures = new Counter[reasons.length][algorithms.length + 1];
+    for (FailureReason reason : reasons) {
+      for (int i = 0; i <= algorithms.length; i++) {
+        failures[reason.ordinal()][i] = Counter.builder("http.signature.failures")
+            .description("Number of failed HTTP signature verifications")
+            .tag("reason", reason.tag())
+            .tag("algorithm", tag(algorithms, i))
+            .register(registry);
+      }
+    }
+
+    this.rejections = new Counter[algorithms.length + 1];
+    for (int i = 0; i <= algorithms.length; i++) {
+      rejections[i] = Counter.builder("http.signature.sign.rejected")
+          .description("Number of signing tasks rejected because the signing queue was full")
+          .tag("algorithm", tag(algorithms, i))
+          .register(registry);
+    }
+
+    this.bodySize = DistributionSummary.builder("http.signature.body.size")
+        .description("Size of request bodies buffered for HTTP signature verification")
+        .baseUnit("bytes")
+        .publishPercentileHistogram()
+        .minimumExpectedValue(1L)
+        .maximumExpectedValue(64L * 1024 * 1024)
+        .register(registry);
+  }
+
+  @Override
+  public long start() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void stop(Stage stage, Algorithm algorithm, long start) {
+    timers[stage.ordinal()][index(algorithm)].record(System.nanoTime() - start,
+        TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void bodySize(long bytes) {
+    bodySize.record(bytes);
+  }
+
+  @Override
+  public void failure(FailureReason reason, Algorithm algorithm) {
+    failures[reason.ordinal()][index(algorithm)].increment();
+  }
+
+  @Override
+  public void signingRejected(Algorithm algorithm) {
+    rejections[index(algorithm)].increment();
+  }
+
+  private static int index(Algorithm algorithm) {
+    return null == algorithm ? UNKNOWN_ALGORITHM_INDEX : algorithm.ordinal();
+  }
+
+  private static String tag(Algorithm[] algorithms, int index) {
+    return index < algorithms.length ? algorithms[index].getJmvName() : UNKNOWN_ALGORITHM;
+  }
+}
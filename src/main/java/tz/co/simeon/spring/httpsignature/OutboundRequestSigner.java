@@ -0,0 +1,304 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.SignatureException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.signer.Signer;
+
+/**
+ * Signs outbound requests as configured by an {@link OutboundTargetDefinition}, independently of
+ * the HTTP client used to send them.
+ * <p>
+ * The headers to sign are taken from {@link OutboundTargetDefinition#signedHeadersConfig()} for the
+ * request method. The signing string has the same form as the one verified by
+ * {@link HttpSignatureAuthenticationFilter}. Special headers are handled as documented on
+ * {@link OutboundTargetDefinition#signedHeadersConfig()}: {@code date} and {@code digest} are added
+ * when missing, {@code host} is computed from the target URI (clients send it on their own).
+ */
+public final class OutboundRequestSigner {
+  static final String DIGEST_PREFIX = "SHA-256=";
+
+  private final OutboundTargetDefinition target;
+  private final Signer signer;
+  private final HttpSignatureMetrics metrics;
+  private final Map<List<String>, SigningTemplate> templates = new ConcurrentHashMap<>();
+
+  public OutboundRequestSigner(OutboundTargetDefinition target) {
+    this(target, HttpSignatureMetrics.NOOP);
+  }
+
+  public OutboundRequestSigner(@NonNull OutboundTargetDefinition target,
+      @NonNull HttpSignatureMetrics metrics) {
+    this.target = target;
+    this.signer = SignatureService.signer(target);
+    this.metrics = metrics;
+  }
+
+  /**
+   * The outbound target this signer signs for.
+   *
+   * @return target definition
+   */
+  public OutboundTargetDefinition target() {
+    return target;
+  }
+
+  /**
+   * Whether requests with the method need a body digest, so streaming clients can decide to digest
+   * the body before signing.
+   *
+   * @param method  request method
+   * @param headers values of a request header by (case-insensitive) name, {@code null} if absent
+   * @return {@code true} if the {@code digest} header is signed for the method
+   */
+  public boolean requiresDigest(String method, Function<String, List<String>> headers) {
+    return signedHeaders(method, headers).contains("digest");
+  }
+
+  /**
+   * Sign a request with a fully available body.
+   *
+   * @param method  request method
+   * @param uri     request URI
+   * @param headers values of a request header by (case-insensitive) name, {@code null} if absent
+   * @param body    the exact bytes sent as the body, empty if none
+   * @return headers to add to the request, in the order they were computed
+   */
+  public Map<String, String> sign(String method, URI uri, Function<String, List<String>> headers,
+      byte[] body) {
+    String digest = null;
+    if (requiresDigest(method, headers)) {
+      long start = metrics.start();
+      digest = digest(body);
+      metrics.stop(HttpSignatureMetrics.Stage.DIGEST, target.algorithm(), start);
+    }
+    return sign(method, uri, headers, digest);
+  }
+
+  /**
+   * Sign a request whose body digest was computed by the caller.
+   *
+   * @param method  request method
+   * @param uri     request URI
+   * @param headers values of a request header by (case-insensitive) name, {@code null} if absent
+   * @param digest  value of the {@code digest} header (see {@link #digestHeaderValue(byte[])}), or
+   *                {@code null} if the caller did not digest the body
+   * @return headers to add to the request, in the order they were computed
+   */
+  public Map<String, String> sign(String method, URI uri, Function<String, List<String>> headers,
+      String digest) {
+    return sign(method, uri, headers, digest, target.header());
+  }
+
+  /**
+   * Sign a request with a fully available body on a signing pool, so the calling thread does not
+   * block on the signature. The headers are read on the pool, they must not change until the
+   * returned future completes.
+   *
+   * @param method   request method
+   * @param uri      request URI
+   * @param headers  values of a request header by (case-insensitive) name, {@code null} if absent
+   * @param body     the exact bytes sent as the body, empty if none
+   * @param executor the signing pool
+   * @return future completed with the headers to add to the request, or exceptionally with an
+   *         {@link HttpSignatureException}
+   */
+  public CompletableFuture<Map<String, String>> signAsync(String method, URI uri,
+      Function<String, List<String>> headers, byte[] body, SigningExecutor executor) {
+    return executor.submit(() -> sign(method, uri, headers, body), target.algorithm(), metrics);
+  }
+
+  /**
+   * Sign a request whose body digest was computed by the caller on a signing pool, so the calling
+   * thread does not block on the signature. The headers are read on the pool, they must not change
+   * until the returned future completes.
+   *
+   * @param method   request method
+   * @param uri      request URI
+   * @param headers  values of a request header by (case-insensitive) name, {@code null} if absent
+   * @param digest   value of the {@code digest} header, or {@code null}
+   * @param executor the signing pool
+   * @return future completed with the headers to add to the request, or exceptionally with an
+   *         {@link HttpSignatureException}
+   */
+  public CompletableFuture<Map<String, String>> signAsync(String method, URI uri,
+      Function<String, List<String>> headers, String digest, SigningExecutor executor) {
+    return executor.submit(() -> sign(method, uri, headers, digest), target.algorithm(), metrics);
+  }
+
+  /**
+   * Sign a request whose body was streamed before its digest was known, producing the
+   * {@code Digest} and {@code Signature} trailers.
+   * <p>
+   * Authentication fields are not allowed in trailers, so the signature is always sent in a
+   * {@code Signature} trailer, regardless of {@link OutboundTargetDefinition#header()}. Headers
+   * other than the digest must already have been sent, as they are part of the signing string.
+   *
+   * @param method  request method
+   * @param uri     request URI
+   * @param headers values of a request header by (case-insensitive) name, {@code null} if absent
+   * @param digest  value of the {@code digest} trailer
+   * @return trailers to send after the body
+   */
+  public Map<String, String> signTrailers(String method, URI uri,
+      Function<String, List<String>> headers, @NonNull String digest) {
+    return sign(method, uri, headers, digest, HttpSignatureHeader.SIGNATURE);
+  }
+
+  private Map<String, String> sign(String method, URI uri,
+      Function<String, List<String>> headers, String digest, HttpSignatureHeader signatureHeader) {
+    long start = metrics.start();
+    Map<String, String> newHeaders = new LinkedHashMap<>();
+    SigningTemplate template = templates.computeIfAbsent(signedHeaders(method, headers),
+        signed -> new SigningTemplate(target.keyId(), target.algorithm(), signed, true));
+    List<String> signedHeaders = template.headers();
+
+    String[] signedValues = new String[signedHeaders.size()];
+    for (int i = 0; i < signedValues.length; i++) {
+      String header = signedHeaders.get(i);
+      String value;
+      if (SignedHeadersConfig.REQUEST_TARGET.equals(header)) {
+        value = method.toLowerCase() + " " + uri.getRawPath();
+      } else if ("host".equals(header)) {
+        value = host(uri);
+      } else {
+        List<String> values = headers.apply(header);
+        if (null != values && !values.isEmpty()) {
+          value = String.join(" ", values);
+        } else if ("date".equals(header)) {
+          value = currentDate();
+          newHeaders.put("Date", value);
+        } else if ("digest".equals(header) && null != digest) {
+          value = digest;
+          newHeaders.put("Digest", value);
+        } else {
+          throw new HttpSignatureException(
+              "Header " + header + " is required for signature, yet not defined in request");
+        }
+      }
+      signedValues[i] = value;
+    }
+    byte[] signingBytes = template.signingBytes(signedValues);
+    metrics.stop(HttpSignatureMetrics.Stage.CANONICALIZATION, target.algorithm(), start);
+
+    start = metrics.start();
+    byte[] signature = signer.sign(signingBytes);
+    metrics.stop(HttpSignatureMetrics.Stage.SIGN, target.algorithm(), start);
+
+    String parameters = template.parameters(signature);
+
+    if (signatureHeader == HttpSignatureHeader.AUTHORIZATION) {
+      newHeaders.put("Authorization", "Signature " + parameters);
+    } else {
+      newHeaders.put("Signature", parameters);
+    }
+    return newHeaders;
+  }
+
+  /**
+   * Sign a request whose body is sent as {@link SignedChunks}, so the receiver can verify each
+   * chunk as it arrives. Write the body through {@link #chunkedBody(OutputStream, Map)}.
+   *
+   * @param method  request method
+   * @param uri     request URI
+   * @param headers values of a request header by (case-insensitive) name, {@code null} if absent
+   * @return headers to add to the request, including the {@code Content-Encoding}
+   */
+  public Map<String, String> signChunked(String method, URI uri,
+      Function<String, List<String>> headers) {
+    Map<String, String> newHeaders = sign(method, uri, headers, SignedChunks.STREAMING_DIGEST);
+    newHeaders.put("Content-Encoding", SignedChunks.CONTENT_ENCODING);
+    return newHeaders;
+  }
+
+  /**
+   * Stream encoding a request body as {@link SignedChunks} of
+   * {@link SignedChunks#DEFAULT_CHUNK_SIZE} bytes, chained to the request signature.
+   *
+   * @param out           stream of the request body
+   * @param signedHeaders headers returned by {@link #signChunked(String, URI, Function)}
+   * @return stream to write the body to, must be closed to end the body
+   */
+  public SignedChunkOutputStream chunkedBody(OutputStream out, Map<String, String> signedHeaders) {
+    return chunkedBody(out, signedHeaders, SignedChunks.DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Stream encoding a request body as {@link SignedChunks}, chained to the request signature.
+   *
+   * @param out           stream of the request body
+   * @param signedHeaders headers returned by {@link #signChunked(String, URI, Function)}
+   * @param chunkSize     number of bytes per chunk
+   * @return stream to write the body to, must be closed to end the body
+   */
+  public SignedChunkOutputStream chunkedBody(OutputStream out, Map<String, String> signedHeaders,
+      int chunkSize) {
+    String parameters = signedHeaders.containsKey("Signature") ? signedHeaders.get("Signature")
+        : signedHeaders.get("Authorization");
+    if (null == parameters) {
+      throw new HttpSignatureException("Request is not signed, cannot chain signed chunks");
+    }
+    int start = parameters.indexOf("signature=\"");
+    if (start < 0) {
+      throw new HttpSignatureException("Request signature not found, cannot chain signed chunks");
+    }
+    start += "signature=\"".length();
+    String seed = parameters.substring(start, parameters.indexOf('"', start));
+    return new SignedChunkOutputStream(out, signer, seed, chunkSize);
+  }
+
+  /**
+   * Value of the {@code digest} header for a body.
+   *
+   * @param body the exact bytes sent as the body
+   * @return digest header value
+   */
+  public static String digest(byte[] body) {
+    try {
+      return DIGEST_PREFIX + Util.sha256Digest(body);
+    } catch (SignatureException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  /**
+   * Value of the {@code digest} header for a SHA-256 hash computed incrementally by the caller.
+   *
+   * @param sha256 SHA-256 hash of the body
+   * @return digest header value
+   */
+  public static String digestHeaderValue(byte[] sha256) {
+    return DIGEST_PREFIX + Util.toLowerHex(sha256);
+  }
+
+  /**
+   * Value of the {@code date} header for the current time.
+   *
+   * @return RFC 1123 date in GMT
+   */
+  public static String currentDate() {
+    return HttpDateClock.system().now();
+  }
+
+  private List<String> signedHeaders(String method, Function<String, List<String>> headers) {
+    List<String> signed = target.signedHeadersConfig().headers(method, name -> {
+      List<String> values = headers.apply(name);
+      return null != values && !values.isEmpty();
+    });
+    if (target.header() == HttpSignatureHeader.AUTHORIZATION) {
+      signed.remove("authorization");
+    }
+    return signed;
+  }
+
+  private static String host(URI uri) {
+    return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+  }
+}
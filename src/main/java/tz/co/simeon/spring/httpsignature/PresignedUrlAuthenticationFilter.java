@@ -0,0 +1,64 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Authenticates requests to {@link PresignedUrls}. Requests without a
+ * {@link PresignedUrls#SIGNATURE} query parameter are passed on untouched, so this filter can sit
+ * in front of {@link HttpSignatureAuthenticationFilter}.
+ *
+ * @see PresignedUrlVerifier
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+public class PresignedUrlAuthenticationFilter extends OncePerRequestFilter {
+  @NonNull
+  private final PresignedUrlVerifier verifier;
+
+  @NonNull
+  private AuthenticationEntryPoint authenticationEntryPoint =
+      new HttpSignatureAuthenticationEntryPoint();
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String query = request.getQueryString();
+    if (null == query || !query.contains(PresignedUrls.SIGNATURE + "=")) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    InboundClientConfig client;
+    try {
+      client = verifier.verify(request.getMethod(), request.getRequestURI(), query);
+    } catch (AuthenticationException failed) {
+      SecurityContextHolder.clearContext();
+      if (this.logger.isDebugEnabled()) {
+        this.logger.debug("Presigned URL authentication failed: " + failed);
+      }
+      this.authenticationEntryPoint.commence(request, response, failed);
+      return;
+    }
+
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(HttpSignatureAuthentication.verified(client.keyId(),
+        client.algorithm(), client.authorities()));
+    SecurityContextHolder.setContext(context);
+
+    filterChain.doFilter(request, response);
+  }
+}
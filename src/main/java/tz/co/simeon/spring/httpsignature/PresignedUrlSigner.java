@@ -0,0 +1,74 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.signer.Signer;
+
+/**
+ * Creates {@link PresignedUrls} for an {@link OutboundTargetDefinition}.
+ *
+ * <pre>
+ * URI link = new PresignedUrlSigner(target).presign("GET", uri, Duration.ofMinutes(15));
+ * </pre>
+ */
+public final class PresignedUrlSigner {
+  private final OutboundTargetDefinition target;
+  private final Signer signer;
+  private final Clock clock;
+
+  public PresignedUrlSigner(OutboundTargetDefinition target) {
+    this(target, Clock.systemUTC());
+  }
+
+  public PresignedUrlSigner(@NonNull OutboundTargetDefinition target, @NonNull Clock clock) {
+    this.target = target;
+    this.signer = SignatureService.signer(target);
+    this.clock = clock;
+  }
+
+  /**
+   * Presign a URI.
+   *
+   * @param method   method the link is valid for
+   * @param uri      URI to presign, may already have query parameters
+   * @param validity how long the link is valid
+   * @return URI with the key id, expiry and signature query parameters added
+   */
+  public URI presign(String method, URI uri, Duration validity) {
+    long expires = clock.millis() / 1000L + validity.getSeconds();
+    String query = (null == uri.getRawQuery() || uri.getRawQuery().isEmpty() ? ""
+        : uri.getRawQuery() + "&")
+        + PresignedUrls.KEY_ID + "=" + encode(target.keyId()) + "&"
+        + PresignedUrls.EXPIRES + "=" + expires;
+
+    byte[] signature = signer.sign(PresignedUrls.canonicalForm(method, uri.getRawPath(), query));
+    query += "&" + PresignedUrls.SIGNATURE + "="
+        + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+
+    String base = uri.toString();
+    int end = base.indexOf('?');
+    if (end < 0) {
+      end = base.indexOf('#');
+    }
+    String fragment = null == uri.getRawFragment() ? "" : "#" + uri.getRawFragment();
+    try {
+      return new URI((end < 0 ? base : base.substring(0, end)) + "?" + query + fragment);
+    } catch (URISyntaxException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+}
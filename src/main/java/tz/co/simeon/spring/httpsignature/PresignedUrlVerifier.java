@@ -0,0 +1,214 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+/**
+ * Verifies {@link PresignedUrls}.
+ * <p>
+ * Checks are ordered by cost: a link missing a parameter, expired or valid for longer than
+ * {@link Builder#maxValidity(Duration)} is rejected before the key id is looked up or any
+ * signature is computed. HMAC signers are pooled per shared secret by {@link SignatureService}, so
+ * verifying an HMAC link costs a key lookup and a single MAC over the canonical form.
+ * <p>
+ * A link repeating the key id, expiry or signature parameter is rejected, so the values checked
+ * are never ambiguous.
+ */
+public final class PresignedUrlVerifier {
+  private final HttpSignatureAuthenticationService authenticationService;
+  private final Clock clock;
+  private final long maxValiditySeconds;
+  private final HttpSignatureMetrics metrics;
+
+  private PresignedUrlVerifier(Builder builder) {
+    this.authenticationService = builder.authenticationService;
+    this.clock = builder.clock;
+    this.maxValiditySeconds = builder.maxValidity.getSeconds();
+    this.metrics = builder.metrics;
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @param authenticationService service to load the client of a key id
+   * @return new builder
+   */
+  public static Builder builder(@NonNull HttpSignatureAuthenticationService authenticationService) {
+    return new Builder(authenticationService);
+  }
+
+  /**
+   * Verify a presigned URL.
+   *
+   * @param method   the request method
+   * @param rawPath  the raw (not decoded) request path
+   * @param rawQuery the raw (not decoded) query string
+   * @return configuration of the client whose key signed the URL
+   * @throws HttpSignatureAuthenticationException if the URL is not validly signed or has expired
+   */
+  public InboundClientConfig verify(String method, String rawPath, String rawQuery) {
+    String keyId = null;
+    String expires = null;
+    String signature = null;
+    boolean repeated = false;
+    if (null != rawQuery) {
+      int start = 0;
+      while (start <= rawQuery.length()) {
+        int end = rawQuery.indexOf('&', start);
+        if (end < 0) {
+          end = rawQuery.length();
+        }
+        String parameter = rawQuery.substring(start, end);
+        if (PresignedUrls.isParameter(parameter, PresignedUrls.SIGNATURE)) {
+          repeated |= null != signature;
+          signature = value(parameter, PresignedUrls.SIGNATURE);
+        } else if (PresignedUrls.isParameter(parameter, PresignedUrls.EXPIRES)) {
+          repeated |= null != expires;
+          expires = value(parameter, PresignedUrls.EXPIRES);
+        } else if (PresignedUrls.isParameter(parameter, PresignedUrls.KEY_ID)) {
+          repeated |= null != keyId;
+          keyId = decode(value(parameter, PresignedUrls.KEY_ID));
+        }
+        start = end + 1;
+      }
+    }
+    if (null == keyId || null == expires || null == signature) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_HEADER, null);
+      throw new HttpSignatureAuthenticationException("Presigned URL parameters are missing");
+    }
+    if (repeated) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_HEADER, null);
+      throw new HttpSignatureAuthenticationException("Presigned URL parameters are repeated");
+    }
+
+    long expiresAt;
+    try {
+      expiresAt = Long.parseLong(expires);
+    } catch (NumberFormatException e) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_HEADER, null);
+      throw new HttpSignatureAuthenticationException("Presigned URL expiry is not valid");
+    }
+    long now = clock.millis() / 1000L;
+    if (expiresAt <= now || expiresAt - now > maxValiditySeconds) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.EXPIRED, null);
+      throw new HttpSignatureAuthenticationException("Presigned URL has expired");
+    }
+
+    byte[] signatureBytes;
+    try {
+      signatureBytes = Base64.getUrlDecoder().decode(signature);
+    } catch (IllegalArgumentException e) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_HEADER, null);
+      throw new HttpSignatureAuthenticationException("Presigned URL signature is not valid");
+    }
+
+    long start = metrics.start();
+    InboundClientConfig client = authenticationService.loadByKeyId(keyId);
+    Algorithm algorithm = null == client ? null : client.algorithm();
+    metrics.stop(HttpSignatureMetrics.Stage.KEY_LOOKUP, algorithm, start);
+    if (null == client || !client.isEnabled()) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.KEY_DISABLED, algorithm);
+      throw new HttpSignatureAuthenticationException("Key id is not enabled");
+    }
+
+    byte[] signedBytes = PresignedUrls.canonicalForm(method, rawPath, rawQuery);
+    start = metrics.start();
+    Optional<HttpSignatureError> error;
+    try {
+      if (algorithm == Algorithm.HMAC_SHA256) {
+        byte[] secret = client.hmacSharedSecret()
+            .orElseThrow(() -> new HttpSignatureAuthenticationException(
+                "Shared secret is required to verify presigned URLs"));
+        error = SignatureService.verifier(algorithm, signatureBytes, secret).verify(signedBytes);
+      } else {
+        PublicKey publicKey = client.keyConfig().flatMap(KeyConfig::publicKey)
+            .orElseThrow(() -> new HttpSignatureAuthenticationException(
+                "Public key is required to verify presigned URLs"));
+        error = SignatureService.verifier(algorithm, signatureBytes, publicKey)
+            .verify(signedBytes);
+      }
+    } catch (UnsupportedAlgorithmException e) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_SIGNATURE, algorithm);
+      throw new HttpSignatureAuthenticationException(
+          "Algorithm " + algorithm + " cannot verify presigned URLs");
+    }
+    metrics.stop(HttpSignatureMetrics.Stage.VERIFY, algorithm, start);
+
+    if (error.isPresent()) {
+      metrics.failure(HttpSignatureMetrics.FailureReason.INVALID_SIGNATURE, algorithm);
+      throw error.get().exception();
+    }
+    return client;
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, "UTF-8");
+    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      throw new HttpSignatureAuthenticationException("Presigned URL key id is not valid");
+    }
+  }
+
+  private static String value(String parameter, String name) {
+    return parameter.length() > name.length() ? parameter.substring(name.length() + 1) : "";
+  }
+
+  /**
+   * Fluent API builder to create {@link PresignedUrlVerifier} instances. Call {@link #build()} to
+   * create a new instance.
+   */
+  public static final class Builder {
+    private final HttpSignatureAuthenticationService authenticationService;
+    private Clock clock = Clock.systemUTC();
+    private Duration maxValidity = Duration.ofDays(7);
+    private HttpSignatureMetrics metrics = HttpSignatureMetrics.NOOP;
+
+    private Builder(HttpSignatureAuthenticationService authenticationService) {
+      this.authenticationService = authenticationService;
+    }
+
+    public PresignedUrlVerifier build() {
+      return new PresignedUrlVerifier(this);
+    }
+
+    /**
+     * Clock to check expiry against.
+     *
+     * @param clock the clock
+     * @return updated builder instance
+     */
+    public Builder clock(@NonNull Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Longest validity accepted, links expiring further in the future are rejected.
+     *
+     * @param maxValidity maximal validity of a link
+     * @return updated builder instance
+     */
+    public Builder maxValidity(@NonNull Duration maxValidity) {
+      this.maxValidity = maxValidity;
+      return this;
+    }
+
+    /**
+     * Metrics to record key lookup, verification and failures to.
+     *
+     * @param metrics the metrics
+     * @return updated builder instance
+     */
+    public Builder metrics(@NonNull HttpSignatureMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+  }
+}
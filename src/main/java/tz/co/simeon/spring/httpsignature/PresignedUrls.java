@@ -0,0 +1,68 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Presigned URLs: links carrying their own signature in query parameters, so clients can use them
+ * without computing header signatures.
+ * <p>
+ * The key id, the expiry (in epoch seconds) and the signature travel as the {@link #KEY_ID},
+ * {@link #EXPIRES} and {@link #SIGNATURE} query parameters. The signature covers:
+ *
+ * <pre>
+ * METHOD LF
+ * raw path LF
+ * raw query parameters except the signature, sorted, joined with "&amp;"
+ * </pre>
+ *
+ * and is base64url encoded without padding. The algorithm is the one configured for the key id,
+ * HMAC-SHA256 being the intended default.
+ *
+ * @see PresignedUrlSigner
+ * @see PresignedUrlVerifier
+ */
+public final class PresignedUrls {
+  /**
+   * Query parameter with the key id.
+   */
+  public static final String KEY_ID = "X-Signature-KeyId";
+
+  /**
+   * Query parameter with the expiry, in seconds since the epoch.
+   */
+  public static final String EXPIRES = "X-Signature-Expires";
+
+  /**
+   * Query parameter with the signature.
+   */
+  public static final String SIGNATURE = "X-Signature";
+
+  private PresignedUrls() {
+  }
+
+  static byte[] canonicalForm(String method, String rawPath, String rawQuery) {
+    List<String> parameters = new ArrayList<>();
+    if (null != rawQuery && !rawQuery.isEmpty()) {
+      for (String parameter : rawQuery.split("&")) {
+        if (!parameter.isEmpty() && !isParameter(parameter, SIGNATURE)) {
+          parameters.add(parameter);
+        }
+      }
+    }
+    Collections.sort(parameters);
+
+    StringBuilder canonical = new StringBuilder(128);
+    canonical.append(method.toUpperCase()).append('\n')
+        .append(null == rawPath || rawPath.isEmpty() ? "/" : rawPath).append('\n')
+        .append(String.join("&", parameters));
+    return canonical.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  static boolean isParameter(String parameter, String name) {
+    return parameter.startsWith(name) && (parameter.length() == name.length()
+        || parameter.charAt(name.length()) == '=');
+  }
+}
@@ -1,17 +1,16 @@
 package tz.co.simeon.spring.httpsignature;
 
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.RequestEntity;
 import org.springframework.util.MultiValueMap;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 
 @Value
@@ -21,6 +20,24 @@ public final class RequestSignageService {
 
   private final OutboundTargetDefinition config;
 
+  private final HttpSignatureMetrics metrics;
+
+  @Getter(AccessLevel.NONE)
+  private final SigningTemplate template;
+
+  public RequestSignageService(OutboundTargetDefinition config) {
+    this(config, HttpSignatureMetrics.NOOP);
+  }
+
+  public RequestSignageService(OutboundTargetDefinition config, HttpSignatureMetrics metrics) {
+    this.config = config;
+    this.metrics = metrics;
+    this.template = new SigningTemplate(config.keyId(), Algorithm.RSA_SHA256_PSS,
+        CollectionsHelper.listOf(SignedHeadersConfig.REQUEST_TARGET, "host", "date", "digest",
+            "content-type"),
+        false);
+  }
+
   public <T> RequestEntity<T> post(T body, HttpHeaders headers, URI uri) {
     try {
       addSignatureHeader(OBJECT_MAPPER.writeValueAsBytes(body), headers, uri);
@@ -30,26 +47,50 @@ public final class RequestSignageService {
     return new RequestEntity<>(body, headers, HttpMethod.POST, uri);
   }
 
+  /**
+   * Signed POST request entity, serialized and signed on a signing pool so the calling thread does
+   * not block on the signature.
+   *
+   * @param body     request body
+   * @param headers  request headers, the signature headers are added to them
+   * @param uri      request URI
+   * @param executor the signing pool
+   * @return future completed with the signed request entity, or exceptionally with an
+   *         {@link HttpSignatureException}
+   */
+  public <T> CompletableFuture<RequestEntity<T>> postAsync(T body, HttpHeaders headers, URI uri,
+      SigningExecutor executor) {
+    return executor.submit(() -> {
+      try {
+        addSignatureHeader(OBJECT_MAPPER.writeValueAsBytes(body), headers, uri);
+      } catch (JsonProcessingException | GeneralSecurityException e) {
+        throw new HttpSignatureException(e);
+      }
+      return new RequestEntity<>(body, headers, HttpMethod.POST, uri);
+    }, Algorithm.RSA_SHA256_PSS, metrics);
+  }
+
   private <T> MultiValueMap<String, String> addSignatureHeader(byte[] body, HttpHeaders headers,
       URI uri) throws JsonProcessingException, GeneralSecurityException {
 
-    String digest = "SHA-256=" + Util.sha256Digest(new String(body, StandardCharsets.UTF_8));
-    String currentTime = ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    long start = metrics.start();
+    String digest = OutboundRequestSigner.digest(body);
+    metrics.stop(HttpSignatureMetrics.Stage.DIGEST, Algorithm.RSA_SHA256_PSS, start);
+    String currentTime = HttpDateClock.system().now();
 
-    String cannonicalString = HttpSignature.createCannonicalRequestString(uri,
-        headers.getContentType().toString(), body, currentTime, digest);
+    start = metrics.start();
+    byte[] signingBytes = template.signingBytes(uri.getPath(), uri.getHost(), currentTime, digest,
+        headers.getContentType().toString());
+    metrics.stop(HttpSignatureMetrics.Stage.CANONICALIZATION, Algorithm.RSA_SHA256_PSS, start);
 
-    byte[] signatureBytes = HttpSignature.signRsaSha256(
-        cannonicalString.getBytes(StandardCharsets.UTF_8), config, Algorithm.RSA_SHA256_PSS);
-
-    HttpSignature signature = new HttpSignature(config.keyId(), Algorithm.RSA_SHA256_PSS,
-        CollectionsHelper.listOf(SignedHeadersConfig.REQUEST_TARGET, "host", "date", "digest",
-            "content-type"),
-        new String(Base64.getEncoder().encode(signatureBytes), StandardCharsets.US_ASCII));
+    start = metrics.start();
+    byte[] signatureBytes = HttpSignature.signRsaSha256(signingBytes, config,
+        Algorithm.RSA_SHA256_PSS);
+    metrics.stop(HttpSignatureMetrics.Stage.SIGN, Algorithm.RSA_SHA256_PSS, start);
 
-    headers.add(HttpHeaders.AUTHORIZATION, "Signature " + signature.toSignatureHeader());
+    headers.add(HttpHeaders.AUTHORIZATION, "Signature " + template.parameters(signatureBytes));
     headers.add("Date", currentTime);
-    headers.add("Digest: ", digest);
+    headers.add("Digest", digest);
 
     return headers;
   }
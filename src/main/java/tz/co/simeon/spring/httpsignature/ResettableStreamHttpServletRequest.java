@@ -6,42 +6,147 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.jfr.RequestBodyBufferEvent;
 
 public class ResettableStreamHttpServletRequest extends HttpServletRequestWrapper {
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+
   private byte[] rawData;
+  private byte[] rawDigest;
   private HttpServletRequest request;
   private ResettableServletInputStream servletStream;
+  private final String decodedEncoding;
 
   public ResettableStreamHttpServletRequest(HttpServletRequest request) {
+    this(request, false);
+  }
+
+  /**
+   * Create a new wrapper.
+   * <p>
+   * When decoding content, a body with a {@code gzip} or {@code deflate} content encoding is
+   * buffered and digested exactly as received, and inflated while the application reads it, so
+   * the digest covers the encoded bytes that were signed and the body is never re-encoded. The
+   * application then sees no {@code Content-Encoding} header, as the body it reads is not encoded.
+   *
+   * @param request       the request to wrap
+   * @param decodeContent whether to digest encoded bodies as received and inflate them on read
+   */
+  public ResettableStreamHttpServletRequest(HttpServletRequest request, boolean decodeContent) {
     super(request);
     this.request = request;
     this.servletStream = new ResettableServletInputStream();
+    this.decodedEncoding = decodeContent ? supportedEncoding(request.getHeader(CONTENT_ENCODING))
+        : null;
   }
 
   public void resetInputStream() {
-    servletStream.stream = new ByteArrayInputStream(rawData);
+    if (rawData == null) {
+      // not buffered, nothing to reset
+      return;
+    }
+    try {
+      servletStream.stream = decodedStream();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Whether the body is encoded, and inflated for the application.
+   *
+   * @return {@code true} if the body is digested as received and inflated on read
+   */
+  public boolean isContentDecoded() {
+    return null != decodedEncoding;
+  }
+
+  /**
+   * Digest of the body bytes as received, before any inflation.
+   *
+   * @return lower case hexadecimal SHA-256 of the received body
+   * @throws IOException if the body cannot be read
+   */
+  public String getReceivedBodyDigest() throws IOException {
+    buffer();
+    if (null == rawDigest) {
+      rawDigest = Util.sha256(rawData);
+    }
+    return Util.toLowerHex(rawDigest);
+  }
+
+  /**
+   * Headers as received, including a {@code Content-Encoding} hidden once the body is decoded.
+   *
+   * @return header values by case-insensitive name
+   */
+  public Map<String, Collection<String>> getReceivedHeaders() {
+    return Util.headers(request);
   }
 
   @Override
-  public ServletInputStream getInputStream() throws IOException {
-    if (rawData == null) {
-      rawData = toByteArray(this.request.getInputStream());
-      servletStream.stream = new ByteArrayInputStream(rawData);
+  public String getHeader(String name) {
+    return isDecodedEncoding(name) ? null : super.getHeader(name);
+  }
+
+  @Override
+  public Enumeration<String> getHeaders(String name) {
+    return isDecodedEncoding(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+  }
+
+  @Override
+  public Enumeration<String> getHeaderNames() {
+    if (!isContentDecoded()) {
+      return super.getHeaderNames();
     }
+    List<String> names = Collections.list(super.getHeaderNames());
+    names.removeIf(CONTENT_ENCODING::equalsIgnoreCase);
+    return Collections.enumeration(names);
+  }
+
+  @Override
+  public int getContentLength() {
+    return isContentDecoded() ? -1 : super.getContentLength();
+  }
+
+  @Override
+  public long getContentLengthLong() {
+    return isContentDecoded() ? -1L : super.getContentLengthLong();
+  }
+
+  /**
+   * Number of body bytes buffered so far.
+   *
+   * @return length of the buffered body, 0 if not read yet
+   */
+  public int getBufferedLength() {
+    return rawData == null ? 0 : rawData.length;
+  }
+
+  @Override
+  public ServletInputStream getInputStream() throws IOException {
+    buffer();
     return servletStream;
   }
 
   @Override
   public BufferedReader getReader() throws IOException {
-    if (rawData == null) {
-      rawData = toByteArray(this.request.getInputStream());
-      servletStream.stream = new ByteArrayInputStream(rawData);
-    }
+    buffer();
     String encoding = getCharacterEncoding();
     if (encoding != null) {
       return new BufferedReader(new InputStreamReader(servletStream, encoding));
@@ -49,7 +154,52 @@ public class ResettableStreamHttpServletRequest extends HttpServletRequestWrappe
     return new BufferedReader(new InputStreamReader(servletStream, StandardCharsets.UTF_8));
   }
 
-  private static byte[] toByteArray(InputStream in) throws IOException {
+  private void buffer() throws IOException {
+    if (rawData == null) {
+      MessageDigest digest = isContentDecoded() ? Util.sha256() : null;
+      rawData = toByteArray(this.request.getInputStream(), digest);
+      if (null != digest) {
+        rawDigest = digest.digest();
+      }
+      servletStream.stream = decodedStream();
+    }
+  }
+
+  private boolean isDecodedEncoding(String name) {
+    return isContentDecoded() && CONTENT_ENCODING.equalsIgnoreCase(name);
+  }
+
+  private InputStream decodedStream() throws IOException {
+    InputStream raw = new ByteArrayInputStream(rawData);
+    if (null == decodedEncoding || rawData.length == 0) {
+      return raw;
+    }
+    return "deflate".equals(decodedEncoding) ? new InflaterInputStream(raw)
+        : new GZIPInputStream(raw);
+  }
+
+  private static String supportedEncoding(String contentEncoding) {
+    if (null == contentEncoding) {
+      return null;
+    }
+    String encoding = contentEncoding.trim().toLowerCase();
+    switch (encoding) {
+      case "gzip":
+      case "x-gzip":
+        return "gzip";
+      case "deflate":
+        return "deflate";
+      default:
+        return null;
+    }
+  }
+
+  private static byte[] toByteArray(InputStream in, MessageDigest digest) throws IOException {
+    RequestBodyBufferEvent event = JfrSupport.AVAILABLE ? new RequestBodyBufferEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+
     ByteArrayOutputStream os = new ByteArrayOutputStream();
 
     byte[] buffer = new byte[1024];
@@ -59,9 +209,21 @@ public class ResettableStreamHttpServletRequest extends HttpServletRequestWrappe
     while ((len = in.read(buffer)) != -1) {
       // write bytes from the buffer into output stream
       os.write(buffer, 0, len);
+      if (null != digest) {
+        digest.update(buffer, 0, len);
+      }
     }
 
-    return os.toByteArray();
+    byte[] bytes = os.toByteArray();
+
+    if (null != event) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.bodySize = bytes.length;
+        event.commit();
+      }
+    }
+    return bytes;
   }
 
   private class ResettableServletInputStream extends ServletInputStream {
@@ -73,6 +235,11 @@ public class ResettableStreamHttpServletRequest extends HttpServletRequestWrappe
       return stream.read();
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return stream.read(b, off, len);
+    }
+
     @Override
     public boolean isFinished() {
       try {
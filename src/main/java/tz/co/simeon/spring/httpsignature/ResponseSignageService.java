@@ -1,63 +1,152 @@
 package tz.co.simeon.spring.httpsignature;
 
-import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.MultiValueMap;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 
 @Value
 public final class ResponseSignageService {
   private final OutboundTargetDefinition config;
 
+  private final HttpSignatureMetrics metrics;
+
+  /**
+   * Optional cache of signatures of identical responses, {@code null} when disabled.
+   */
+  private final ResponseSignatureCache signatureCache;
+
+  @Getter(AccessLevel.NONE)
+  private final SigningTemplate template;
+
+  public ResponseSignageService(OutboundTargetDefinition config) {
+    this(config, HttpSignatureMetrics.NOOP);
+  }
+
+  public ResponseSignageService(OutboundTargetDefinition config, HttpSignatureMetrics metrics) {
+    this(config, metrics, null);
+  }
+
+  public ResponseSignageService(OutboundTargetDefinition config, HttpSignatureMetrics metrics,
+      ResponseSignatureCache signatureCache) {
+    this.config = config;
+    this.metrics = metrics;
+    this.signatureCache = signatureCache;
+    this.template = new SigningTemplate(config.keyId(), Algorithm.RSA_SHA256_PSS,
+        CollectionsHelper.listOf("date", "digest", "content-type"), false);
+  }
+
   public <T> ResponseEntity<T> response(T body, MediaTypeMapper mapper, HttpStatus status) {
     return response(body, mapper, new HttpHeaders(), status);
   }
 
+  /**
+   * Signed response entity. The body is serialized here to compute its digest, and serialized
+   * again when the entity is written; prefer {@link ResponseSigningFilter}, which digests the bytes
+   * as they are written.
+   *
+   * @param body    response body
+   * @param mapper  serialization of the body
+   * @param headers response headers, the signature headers are added to them
+   * @param status  response status
+   * @return signed response entity
+   */
   public <T> ResponseEntity<T> response(T body, MediaTypeMapper mapper, HttpHeaders headers,
       HttpStatus status) {
     try {
-      addSignatureHeader(mapper.getObjectMapper().writeValueAsBytes(body), mapper.getMediaType(),
-          headers);
-    } catch (JsonProcessingException | GeneralSecurityException e) {
+      byte[] bytes = mapper.getObjectMapper().writeValueAsBytes(body);
+
+      long start = metrics.start();
+      String digest = OutboundRequestSigner.digest(bytes);
+      metrics.stop(HttpSignatureMetrics.Stage.DIGEST, Algorithm.RSA_SHA256_PSS, start);
+
+      sign(mapper.getMediaType().toString(), digest).forEach(headers::add);
+      headers.setContentType(mapper.getMediaType());
+    } catch (JsonProcessingException | HttpSignatureException e) {
       e.printStackTrace();
     }
     return new ResponseEntity<>(body, headers, status);
   }
 
-  private <T> MultiValueMap<String, String> addSignatureHeader(byte[] body, MediaType mediaType,
-      HttpHeaders headers) throws JsonProcessingException, GeneralSecurityException {
-
-    String digest = "SHA-256=" + Util.sha256Digest(new String(body, StandardCharsets.UTF_8));
-    String currentTime = ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME);
+  /**
+   * Sign a response whose body digest is already known.
+   *
+   * @param contentType value of the {@code content-type} header of the response
+   * @param digest      value of the {@code digest} header of the response
+   * @return {@code Date}, {@code Digest} and {@code Signature} headers to add to the response
+   * @throws HttpSignatureException if the response cannot be signed
+   */
+  public Map<String, String> sign(String contentType, String digest) {
+    String currentTime = OutboundRequestSigner.currentDate();
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Date", currentTime);
+    headers.put("Digest", digest);
+    headers.put("Signature", signature(contentType, currentTime, digest));
+    return headers;
+  }
 
-    String cannonicalString = HttpSignature.createCannonicalResponseString(mediaType.toString(),
-        body, currentTime, digest);
+  /**
+   * Sign a response whose body digest is already known on a signing pool, so the calling thread
+   * does not block on the signature.
+   *
+   * @param contentType value of the {@code content-type} header of the response
+   * @param digest      value of the {@code digest} header of the response
+   * @param executor    the signing pool
+   * @return future completed with the headers of {@link #sign(String, String)}, or exceptionally
+   *         with an {@link HttpSignatureException}
+   */
+  public CompletableFuture<Map<String, String>> signAsync(String contentType, String digest,
+      SigningExecutor executor) {
+    return executor.submit(() -> sign(contentType, digest), Algorithm.RSA_SHA256_PSS, metrics);
+  }
 
-    byte[] signatureBytes = HttpSignature.signRsaSha256(
-        cannonicalString.getBytes(StandardCharsets.UTF_8), config, Algorithm.RSA_SHA256_PSS);
+  /**
+   * Sign a response whose body was streamed before its digest was known, producing the
+   * {@code Digest} and {@code Signature} trailers.
+   *
+   * @param contentType value of the {@code content-type} header sent with the response
+   * @param date        value of the {@code date} header sent with the response
+   * @param digest      value of the {@code digest} trailer
+   * @return trailers to send after the body
+   * @throws HttpSignatureException if the response cannot be signed
+   */
+  public Map<String, String> signTrailers(String contentType, String date, String digest) {
+    Map<String, String> trailers = new LinkedHashMap<>();
+    trailers.put("Digest", digest);
+    trailers.put("Signature", signature(contentType, date, digest));
+    return trailers;
+  }
 
-    HttpSignature signature = new HttpSignature(config.keyId(), Algorithm.RSA_SHA256_PSS,
-        CollectionsHelper.listOf(SignedHeadersConfig.REQUEST_TARGET, "host", "date",
-            "digest", "content-type"),
-        new String(Base64.getEncoder().encode(signatureBytes), StandardCharsets.US_ASCII));
+  private String signature(String contentType, String currentTime, String digest) {
+    if (null == signatureCache) {
+      return computeSignature(contentType, currentTime, digest);
+    }
+    return signatureCache.signature(config.keyId(), contentType, digest, currentTime,
+        () -> computeSignature(contentType, currentTime, digest));
+  }
 
-    System.out.printf("\n\n%s\n\n\n%s\n\n\n", new String(body, StandardCharsets.UTF_8),
-        cannonicalString);
+  private String computeSignature(String contentType, String currentTime, String digest) {
+    long start = metrics.start();
+    byte[] signingBytes = template.signingBytes(currentTime, digest, contentType);
+    metrics.stop(HttpSignatureMetrics.Stage.CANONICALIZATION, Algorithm.RSA_SHA256_PSS, start);
 
-    headers.add("Signature", signature.toSignatureHeader());
-    headers.add("Date", currentTime);
-    headers.add("Digest: ", digest);
-    headers.setContentType(mediaType);
+    byte[] signatureBytes;
+    start = metrics.start();
+    try {
+      signatureBytes = HttpSignature.signRsaSha256(signingBytes, config, Algorithm.RSA_SHA256_PSS);
+    } catch (GeneralSecurityException e) {
+      throw new HttpSignatureException(e);
+    }
+    metrics.stop(HttpSignatureMetrics.Stage.SIGN, Algorithm.RSA_SHA256_PSS, start);
 
-    return headers;
+    return template.parameters(signatureBytes);
   }
 
 }
@@ -0,0 +1,154 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Short-lived cache of response signatures, used to sign byte-identical responses (such as
+ * reference data) once per second instead of once per response.
+ * <p>
+ * Entries are keyed by key id, content type, body digest and the {@code date} header, which has a
+ * resolution of one second, so a cached signature is only ever reused for a response carrying the
+ * very same signing string. Concurrent responses missing the same entry wait for a single
+ * signature to be computed.
+ * <p>
+ * The cache is bounded by the approximate memory used by its entries, see
+ * {@link Builder#maximumWeight(long)}.
+ */
+public final class ResponseSignatureCache {
+  private final Cache<Key, String> cache;
+
+  private ResponseSignatureCache(Builder builder) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(builder.maximumWeight)
+        .weigher((Key key, String signature) -> key.weight() + 2 * signature.length())
+        .expireAfterWrite(builder.timeToLive)
+        .build();
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Return the cached signature of a response, or compute and cache it.
+   *
+   * @param keyId       key id signing the response
+   * @param contentType value of the {@code content-type} header
+   * @param digest      value of the {@code digest} header
+   * @param date        value of the {@code date} header
+   * @param signer      the actual signature, called on a cache miss
+   * @return value of the {@code signature} header
+   */
+  String signature(String keyId, String contentType, String digest, String date,
+      Supplier<String> signer) {
+    Key key = new Key(keyId, contentType, digest, date);
+    try {
+      return cache.get(key, signer::get);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  /**
+   * Number of signatures currently cached.
+   *
+   * @return approximate number of entries
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Fluent API builder to create {@link ResponseSignatureCache} instances. Call {@link #build()}
+   * to create a new instance.
+   */
+  public static final class Builder {
+    private long maximumWeight = 4L * 1024 * 1024;
+    private Duration timeToLive = Duration.ofSeconds(2);
+
+    private Builder() {
+    }
+
+    public ResponseSignatureCache build() {
+      return new ResponseSignatureCache(this);
+    }
+
+    /**
+     * Approximate number of bytes of memory the cached entries may use, least recently used are
+     * evicted first.
+     *
+     * @param maximumWeight maximal size of the entries in bytes
+     * @return updated builder instance
+     */
+    public Builder maximumWeight(long maximumWeight) {
+      this.maximumWeight = maximumWeight;
+      return this;
+    }
+
+    /**
+     * How long a signature is kept after it was computed. As the {@code date} header is part of the
+     * key, entries older than a second are never reused, this only bounds how long they stay in
+     * memory.
+     *
+     * @param timeToLive time to live of an entry
+     * @return updated builder instance
+     */
+    public Builder timeToLive(Duration timeToLive) {
+      this.timeToLive = timeToLive;
+      return this;
+    }
+  }
+
+  private static final class Key {
+    private final String keyId;
+    private final String contentType;
+    private final String digest;
+    private final String date;
+    private final int hash;
+
+    private Key(String keyId, String contentType, String digest, String date) {
+      this.keyId = keyId;
+      this.contentType = contentType;
+      this.digest = digest;
+      this.date = date;
+      this.hash = 31 * (31 * (31 * keyId.hashCode() + contentType.hashCode())
+          + digest.hashCode()) + date.hashCode();
+    }
+
+    private int weight() {
+      // object headers and fields, plus two bytes per char
+      return 64 + 2 * (keyId.length() + contentType.length() + digest.length() + date.length());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return digest.equals(other.digest) && date.equals(other.date)
+          && keyId.equals(other.keyId) && contentType.equals(other.contentType);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.pki.PublicKeyService;
+
+/**
+ * Verifies signed responses on the client, digesting the body as it is received.
+ * <p>
+ * Works for responses signed in headers as well as for responses streamed with the {@code Digest}
+ * and {@code Signature} in trailers (see {@link ResponseSigningFilter#setTrailers(boolean)}), as
+ * the fields are only looked up once the whole body has been digested.
+ *
+ * <pre>
+ * ResponseSignatureVerifier.Verification verification = verifier.begin();
+ * // for each chunk of the body
+ * verification.update(chunk);
+ * // once the body, and trailers if any, have been received
+ * Optional&lt;String&gt; error = verification.verify(field);
+ * </pre>
+ */
+public final class ResponseSignatureVerifier {
+  private final PublicKeyService publicKeyService;
+  private final long maxAgeMillis;
+  private final Clock clock;
+
+  /**
+   * Create a verifier accepting responses dated up to five minutes apart from the local clock.
+   *
+   * @param publicKeyService public keys of the servers by key id
+   */
+  public ResponseSignatureVerifier(@NonNull PublicKeyService publicKeyService) {
+    this(builder(publicKeyService));
+  }
+
+  private ResponseSignatureVerifier(Builder builder) {
+    this.publicKeyService = builder.publicKeyService;
+    this.maxAgeMillis = builder.maxAge.toMillis();
+    this.clock = builder.clock;
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @param publicKeyService public keys of the servers by key id
+   * @return new builder
+   */
+  public static Builder builder(PublicKeyService publicKeyService) {
+    return new Builder(publicKeyService);
+  }
+
+  /**
+   * Start verifying a response.
+   *
+   * @return verification state of a single response, not thread safe
+   */
+  public Verification begin() {
+    return new Verification();
+  }
+
+  /**
+   * Verification of a single response.
+   */
+  public final class Verification {
+    private final MessageDigest digest;
+    private final long startedAt;
+
+    private Verification() {
+      digest = Util.sha256();
+      startedAt = clock.millis();
+    }
+
+    /**
+     * Digest a part of the body.
+     *
+     * @param bytes body bytes
+     * @param off   offset of the part
+     * @param len   length of the part
+     */
+    public void update(byte[] bytes, int off, int len) {
+      digest.update(bytes, off, len);
+    }
+
+    /**
+     * Digest a part of the body, consuming the buffer.
+     *
+     * @param buffer body bytes
+     */
+    public void update(ByteBuffer buffer) {
+      digest.update(buffer);
+    }
+
+    /**
+     * Verify the response once its whole body was digested.
+     *
+     * @param field value of a response header or trailer by (case-insensitive) name, {@code null}
+     *              if absent
+     * @return empty if the response is signed and the signature is valid, the problem otherwise
+     */
+    public Optional<String> verify(Function<String, String> field) {
+      String header = field.apply("signature");
+      if (null == header) {
+        return Optional.of("Response is not signed");
+      }
+
+      HttpSignature signature;
+      try {
+        signature = HttpSignature.fromHeader(header);
+      } catch (RuntimeException e) {
+        return Optional.of("Invalid signature: " + e.getMessage());
+      }
+      Optional<HttpSignatureError> invalid = signature.validate();
+      if (invalid.isPresent()) {
+        return Optional.of(invalid.get().getDescription());
+      }
+
+      String date = field.apply("date");
+      if (null == date) {
+        return Optional.of("Response is not dated");
+      }
+      long signedAt;
+      try {
+        signedAt = ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+            .toEpochMilli();
+      } catch (DateTimeParseException e) {
+        return Optional.of("Invalid date " + date);
+      }
+      if (Math.abs(startedAt - signedAt) > maxAgeMillis) {
+        return Optional.of("Response date " + date + " is too old or too far in the future");
+      }
+
+      String expected = OutboundRequestSigner.digestHeaderValue(digest.digest());
+      if (!expected.equals(field.apply("digest"))) {
+        return Optional.of("Digest does not match the response body");
+      }
+
+      PublicKey publicKey = publicKeyService.loadPublicKey(signature.getKeyId());
+      if (null == publicKey) {
+        return Optional.of("Unknown key id " + signature.getKeyId());
+      }
+
+      String signingString = HttpSignature.createCannonicalResponseString(
+          field.apply("content-type"), null, date, expected);
+      try {
+        return SignatureService
+            .verifier(signature.getAlgorithm(), signature.getSignatureBytes(), publicKey)
+            .verify(signingString.getBytes(StandardCharsets.UTF_8))
+            .map(HttpSignatureError::getDescription);
+      } catch (UnsupportedAlgorithmException e) {
+        return Optional.of(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Fluent API builder to create {@link ResponseSignatureVerifier} instances. Call
+   * {@link #build()} to create a new instance.
+   */
+  public static final class Builder {
+    private final PublicKeyService publicKeyService;
+    private Duration maxAge = Duration.ofMinutes(5);
+    private Clock clock = Clock.systemUTC();
+
+    private Builder(@NonNull PublicKeyService publicKeyService) {
+      this.publicKeyService = publicKeyService;
+    }
+
+    public ResponseSignatureVerifier build() {
+      return new ResponseSignatureVerifier(this);
+    }
+
+    /**
+     * How far the {@code date} of a response may be from the time its verification began, in
+     * either direction, covering the time to receive the response and clock skew between hosts.
+     *
+     * @param maxAge maximal age of a response signature
+     * @return updated builder instance
+     */
+    public Builder maxAge(@NonNull Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    /**
+     * Clock to check the age of responses.
+     *
+     * @param clock the clock
+     * @return updated builder instance
+     */
+    public Builder clock(@NonNull Clock clock) {
+      this.clock = clock;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Signs responses with the {@code Date}, {@code Digest} and {@code Signature} headers.
+ * <p>
+ * The body is digested while the message converters write it, so it is serialized only once, and
+ * held back until the signature headers have been added. Responses without a content type, and
+ * responses that send an error or a redirect, are not signed.
+ * <p>
+ * With {@link #setTrailers(boolean)}, responses to clients that accept trailers (HTTP/2, or
+ * {@code TE: trailers}) are streamed as they are written instead, and the {@code Digest} and
+ * {@code Signature} are sent as trailers. Time to first byte and memory use then do not depend on
+ * the body size, which suits {@code StreamingResponseBody} and file downloads. Clients verify such
+ * responses with {@link ResponseSignatureVerifier}.
+ * <p>
+ * With {@link #setCompress(boolean)}, responses to clients that accept {@code gzip} are compressed
+ * here rather than by the container, and the digest covers the compressed bytes as sent, so the
+ * body is compressed and digested in a single pass. Clients must then digest the body before
+ * inflating it.
+ *
+ * @see ResponseSignageService
+ */
+@Getter
+@RequiredArgsConstructor
+public class ResponseSigningFilter extends OncePerRequestFilter {
+  private static final Logger LOGGER = Logger.getLogger(ResponseSigningFilter.class.getName());
+
+  @NonNull
+  private final ResponseSignageService signageService;
+
+  /**
+   * Whether to stream the body and sign in trailers when the client accepts them.
+   */
+  @Setter
+  private boolean trailers;
+
+  /**
+   * Whether to gzip encode the body when the client accepts it.
+   */
+  @Setter
+  private boolean compress;
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    DigestingHttpServletResponse wrapper =
+        WebUtils.getNativeResponse(response, DigestingHttpServletResponse.class);
+    if (null == wrapper) {
+      boolean gzip = compress && acceptsGzip(request);
+      wrapper = trailers && acceptsTrailers(request) ? streaming(response, gzip)
+          : new DigestingHttpServletResponse(response, true, gzip);
+    }
+
+    filterChain.doFilter(request, wrapper);
+    if (!isAsyncStarted(request)) {
+      sign(wrapper);
+    }
+  }
+
+  private DigestingHttpServletResponse streaming(HttpServletResponse response, boolean gzip) {
+    String date = OutboundRequestSigner.currentDate();
+    response.setHeader("Date", date);
+    response.setHeader("Trailer", "Digest, Signature");
+
+    DigestingHttpServletResponse wrapper = new DigestingHttpServletResponse(response, false, gzip);
+    response.setTrailerFields(() -> signTrailers(wrapper, date));
+    return wrapper;
+  }
+
+  private Map<String, String> signTrailers(DigestingHttpServletResponse response, String date) {
+    String contentType = response.getContentType();
+    if (response.isBypassed() || null == contentType) {
+      LOGGER.finest("Response was not streamed with a content type, not signing it");
+      return Collections.emptyMap();
+    }
+    try {
+      return signageService.signTrailers(contentType, date, response.getDigest());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean acceptsGzip(HttpServletRequest request) {
+    Enumeration<String> acceptEncoding = request.getHeaders("Accept-Encoding");
+    while (null != acceptEncoding && acceptEncoding.hasMoreElements()) {
+      for (String coding : acceptEncoding.nextElement().split(",")) {
+        String[] parts = coding.split(";");
+        String name = parts[0].trim();
+        boolean refused = parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        if (("gzip".equalsIgnoreCase(name) || "*".equals(name)) && !refused) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean acceptsTrailers(HttpServletRequest request) {
+    if ("HTTP/2.0".equals(request.getProtocol())) {
+      return true;
+    }
+    Enumeration<String> te = request.getHeaders("TE");
+    while (null != te && te.hasMoreElements()) {
+      for (String coding : te.nextElement().split(",")) {
+        if ("trailers".equalsIgnoreCase(coding.trim())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void sign(DigestingHttpServletResponse response) throws IOException {
+    if (response.isHoldingBack() && !response.isBypassed() && !response.isCommitted()) {
+      String contentType = response.getContentType();
+      if (null == contentType) {
+        LOGGER.finest("Response has no content type, not signing it");
+      } else {
+        signageService.sign(contentType, response.getDigest()).forEach(response::setHeader);
+      }
+    }
+    response.copyBodyToResponse();
+  }
+}
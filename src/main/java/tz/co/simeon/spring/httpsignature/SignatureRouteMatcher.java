@@ -0,0 +1,268 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Routes requiring a signature, compiled once into a path trie with a method mask per route, so
+ * that {@link HttpSignatureAuthenticationFilter} can pass public routes (health checks, static
+ * content) on without looking at a single header.
+ * <p>
+ * A request requires a signature if it matches an included route, or no route is included, and
+ * matches no excluded route. Patterns are matched segment by segment against the path within the
+ * application: {@code *} matches one segment, and a final {@code **} matches any number of
+ * segments, including none.
+ * <p>
+ * The path is matched as the application resolves it: matrix parameters are removed, it is
+ * percent decoded and its dot segments are resolved, so {@code /%61pi}, {@code /api;x} and
+ * {@code /static/../api} are all {@code /api}. Paths with none of these are matched in place. A
+ * path climbing above the application root always requires a signature. Included routes are
+ * matched ignoring case and excluded routes exactly, so the case of a path never makes a request
+ * skip verification.
+ *
+ * <pre>
+ * SignatureRouteMatcher.builder()
+ *     .exclude("/actuator/**")
+ *     .exclude("/static/**", "GET", "HEAD")
+ *     .build();
+ * </pre>
+ */
+public final class SignatureRouteMatcher {
+  private static final String[] METHODS =
+      {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+  private static final int OTHER_METHOD = 1 << METHODS.length;
+  private static final int ALL_METHODS = (OTHER_METHOD << 1) - 1;
+  private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+  private final Node includes;
+  private final Node excludes;
+
+  private SignatureRouteMatcher(Builder builder) {
+    this.includes = null == builder.includes ? null : builder.includes.compile();
+    this.excludes = builder.excludes.compile();
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Whether a request requires a signature. Only reads the method, request URI and context path.
+   *
+   * @param request the request
+   * @return {@code true} if the signature of the request must be verified
+   */
+  public boolean requiresSignature(HttpServletRequest request) {
+    String uri = request.getRequestURI();
+    if (isNormalized(uri)) {
+      String contextPath = request.getContextPath();
+      return requiresSignature(request.getMethod(), uri,
+          null == contextPath ? 0 : contextPath.length());
+    }
+    return requiresSignature(request.getMethod(),
+        StringUtils.cleanPath(PATH_HELPER.getPathWithinApplication(request)), 0);
+  }
+
+  /**
+   * Whether a request requires a signature.
+   *
+   * @param method the request method
+   * @param path   the path within the application, decoded
+   * @return {@code true} if the signature of the request must be verified
+   */
+  public boolean requiresSignature(String method, String path) {
+    return requiresSignature(method, isNormalized(path) ? path : StringUtils.cleanPath(path), 0);
+  }
+
+  private boolean requiresSignature(String method, String path, int start) {
+    if (climbsAboveRoot(path)) {
+      return true;
+    }
+    int bit = methodBit(method);
+    if (null != includes && !includes.matches(path, start, bit, true)) {
+      return false;
+    }
+    return !excludes.matches(path, start, bit, false);
+  }
+
+  /**
+   * Whether a path can be matched as is: it has no encoded character, matrix parameter or dot
+   * segment.
+   */
+  private static boolean isNormalized(String path) {
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '%' || c == ';' || c == '\\'
+          || (c == '.' && (i == 0 || path.charAt(i - 1) == '/'))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean climbsAboveRoot(String path) {
+    return path.equals("..") || path.startsWith("../") || path.startsWith("/../")
+        || path.endsWith("/..") || path.contains("/../");
+  }
+
+  private static int methodBit(String method) {
+    for (int i = 0; i < METHODS.length; i++) {
+      if (METHODS[i].equals(method)) {
+        return 1 << i;
+      }
+    }
+    return OTHER_METHOD;
+  }
+
+  private static int methodMask(String... methods) {
+    if (methods.length == 0) {
+      return ALL_METHODS;
+    }
+    int mask = 0;
+    for (String method : methods) {
+      mask |= methodBit(method.toUpperCase());
+    }
+    return mask;
+  }
+
+  /**
+   * Fluent API builder to create {@link SignatureRouteMatcher} instances. Call {@link #build()} to
+   * create a new instance.
+   */
+  public static final class Builder {
+    private Node includes;
+    private final Node excludes = new Node();
+
+    private Builder() {
+    }
+
+    public SignatureRouteMatcher build() {
+      return new SignatureRouteMatcher(this);
+    }
+
+    /**
+     * Require a signature on a route. Once a route is included, routes not included do not
+     * require a signature.
+     *
+     * @param pattern path pattern, such as {@code /api/**}
+     * @param methods methods of the route, all methods if none
+     * @return updated builder instance
+     */
+    public Builder include(String pattern, String... methods) {
+      if (null == includes) {
+        includes = new Node();
+      }
+      includes.add(pattern, methodMask(methods));
+      return this;
+    }
+
+    /**
+     * Do not require a signature on a route, even if included.
+     *
+     * @param pattern path pattern, such as {@code /actuator/**}
+     * @param methods methods of the route, all methods if none
+     * @return updated builder instance
+     */
+    public Builder exclude(String pattern, String... methods) {
+      excludes.add(pattern, methodMask(methods));
+      return this;
+    }
+  }
+
+  /**
+   * Trie node, a path segment. Children are kept in arrays once compiled, so matching compares
+   * segments in place instead of extracting them from the path.
+   */
+  private static final class Node {
+    private Map<String, Node> literals = new LinkedHashMap<>();
+    private String[] segments;
+    private Node[] children;
+    private Node wildcard;
+    // methods of routes ending at this node, and of routes ending with ** at this node
+    private int mask;
+    private int restMask;
+
+    private void add(String pattern, int methods) {
+      Node node = this;
+      String[] parts = pattern.split("/");
+      for (int i = 0; i < parts.length; i++) {
+        String part = parts[i];
+        if (part.isEmpty()) {
+          continue;
+        }
+        if ("**".equals(part)) {
+          if (i != parts.length - 1) {
+            throw new IllegalArgumentException("** must be the last segment of " + pattern);
+          }
+          node.restMask |= methods;
+          return;
+        }
+        if ("*".equals(part)) {
+          if (null == node.wildcard) {
+            node.wildcard = new Node();
+          }
+          node = node.wildcard;
+        } else if (part.indexOf('*') >= 0) {
+          throw new IllegalArgumentException("* must be a whole segment of " + pattern);
+        } else {
+          node = node.literals.computeIfAbsent(part, segment -> new Node());
+        }
+      }
+      node.mask |= methods;
+    }
+
+    private Node compile() {
+      if (null == literals) {
+        // already compiled
+        return this;
+      }
+      segments = literals.keySet().toArray(new String[0]);
+      children = new Node[segments.length];
+      int i = 0;
+      for (Node child : literals.values()) {
+        children[i++] = child.compile();
+      }
+      literals = null;
+      if (null != wildcard) {
+        wildcard.compile();
+      }
+      return this;
+    }
+
+    private boolean matches(String path, int position, int bit, boolean ignoreCase) {
+      int length = path.length();
+      while (position < length && path.charAt(position) == '/') {
+        position++;
+      }
+      if ((restMask & bit) != 0) {
+        return true;
+      }
+      if (position >= length) {
+        return (mask & bit) != 0;
+      }
+
+      int end = path.indexOf('/', position);
+      if (end < 0) {
+        end = length;
+      }
+      int segmentLength = end - position;
+      for (int i = 0; i < segments.length; i++) {
+        String segment = segments[i];
+        if (segment.length() == segmentLength
+            && path.regionMatches(ignoreCase, position, segment, 0, segmentLength)
+            && children[i].matches(path, end, bit, ignoreCase)) {
+          return true;
+        }
+      }
+      return null != wildcard && wildcard.matches(path, end, bit, ignoreCase);
+    }
+  }
+}
@@ -1,22 +1,138 @@
 package tz.co.simeon.spring.httpsignature;
 
+import java.nio.ByteBuffer;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.ConcurrentMap;
+import com.google.common.cache.CacheBuilder;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+import tz.co.simeon.spring.httpsignature.signer.HmacSHA256Signer;
+import tz.co.simeon.spring.httpsignature.signer.SHA256PSSSigner;
+import tz.co.simeon.spring.httpsignature.signer.SHA256Signer;
 import tz.co.simeon.spring.httpsignature.signer.Signer;
+import tz.co.simeon.spring.httpsignature.verifier.HmacSHA256Verifier;
+import tz.co.simeon.spring.httpsignature.verifier.SHA256PSSVerifier;
+import tz.co.simeon.spring.httpsignature.verifier.SHA256Verifier;
+import tz.co.simeon.spring.httpsignature.verifier.Verifier;
 
-public class SignatureService {
-  OutboundTargetDefinition targetDefinition;
+/**
+ * Creates the {@link Signer} and {@link Verifier} for an {@link Algorithm}.
+ * <p>
+ * Signers are pooled per key: a signer keeps an initialized {@link java.security.Signature} or
+ * {@link javax.crypto.Mac} per thread, which only pays off when the same signer is used for every
+ * message signed with a key. A pooled signer holds its key, so the pools are bounded: private keys
+ * are pooled by identity, up to {@value #MAX_PRIVATE_KEYS} keys per algorithm, shared secrets by
+ * value, up to {@value #MAX_SHARED_SECRETS} secrets. The least recently used are evicted first.
+ */
+public final class SignatureService {
+  static final int MAX_PRIVATE_KEYS = 1024;
+  static final int MAX_SHARED_SECRETS = 1024;
 
-  Algorithm algorithm;
+  // weak keys compare by identity, the size bound is what releases keys no longer in use
+  private static final ConcurrentMap<PrivateKey, Signer> RSA_SHA256_SIGNERS =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_PRIVATE_KEYS)
+          .<PrivateKey, Signer>build().asMap();
+  private static final ConcurrentMap<PrivateKey, Signer> RSA_SHA256_PSS_SIGNERS =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_PRIVATE_KEYS)
+          .<PrivateKey, Signer>build().asMap();
+  private static final ConcurrentMap<ByteBuffer, HmacSHA256Signer> HMAC_SHA256_SIGNERS =
+      CacheBuilder.newBuilder().maximumSize(MAX_SHARED_SECRETS)
+          .<ByteBuffer, HmacSHA256Signer>build().asMap();
 
-  Signer signer;
+  private SignatureService() {
+  }
+
+  /**
+   * Signer of the algorithm using the private key.
+   *
+   * @param algorithm  the signature algorithm
+   * @param privateKey the key to sign with
+   * @return signer
+   * @throws UnsupportedAlgorithmException if signing with the algorithm is not supported
+   */
+  public static Signer signer(Algorithm algorithm, PrivateKey privateKey) {
+    switch (algorithm) {
+      case RSA_SHA256:
+        return RSA_SHA256_SIGNERS.computeIfAbsent(privateKey, SHA256Signer::new);
+      case RSA_SHA256_PSS:
+        return RSA_SHA256_PSS_SIGNERS.computeIfAbsent(privateKey, SHA256PSSSigner::new);
+      default:
+        throw new UnsupportedAlgorithmException(algorithm + " algorithm is not supported.");
+    }
+  }
+
+  /**
+   * Signer for an outbound target, using its algorithm and private key.
+   *
+   * @param target the outbound target
+   * @return signer
+   * @throws HttpSignatureException if the target has no private key (or shared secret for HMAC)
+   *                                configured
+   */
+  public static Signer signer(OutboundTargetDefinition target) {
+    if (target.algorithm() == Algorithm.HMAC_SHA256) {
+      return hmacSigner(target.hmacSharedSecret()
+          .orElseThrow(() -> new HttpSignatureException(
+              "Shared secret is required to sign for key id " + target.keyId())));
+    }
+    PrivateKey privateKey = target.keyConfig().flatMap(KeyConfig::privateKey)
+        .orElseThrow(() -> new HttpSignatureException(
+            "Private key is required to sign for key id " + target.keyId()));
+    return signer(target.algorithm(), privateKey);
+  }
 
-  public SignatureService(Algorithm algo) {
+  /**
+   * Verifier of a signature of the algorithm using the public key.
+   *
+   * @param algorithm      the signature algorithm
+   * @param signatureBytes the signature to verify
+   * @param publicKey      the key to verify with
+   * @return verifier
+   * @throws UnsupportedAlgorithmException if verifying the algorithm is not supported
+   */
+  public static Verifier verifier(Algorithm algorithm, byte[] signatureBytes,
+      PublicKey publicKey) {
+    switch (algorithm) {
+      case RSA_SHA256:
+        return new SHA256Verifier(signatureBytes, publicKey);
+      case RSA_SHA256_PSS:
+        return new SHA256PSSVerifier(signatureBytes, publicKey);
+      default:
+        throw new UnsupportedAlgorithmException(algorithm + " algorithm is not supported.");
+    }
+  }
 
+  /**
+   * Verifier of a signature of a shared secret algorithm.
+   *
+   * @param algorithm      the signature algorithm
+   * @param signatureBytes the signature to verify
+   * @param sharedSecret   the shared secret
+   * @return verifier
+   * @throws UnsupportedAlgorithmException if the algorithm does not use a shared secret
+   */
+  public static Verifier verifier(Algorithm algorithm, byte[] signatureBytes,
+      byte[] sharedSecret) {
+    if (algorithm != Algorithm.HMAC_SHA256) {
+      throw new UnsupportedAlgorithmException(algorithm + " algorithm is not supported.");
+    }
+    return new HmacSHA256Verifier(signatureBytes, hmacSigner(sharedSecret));
   }
 
-  public Signer signer(Algorithm algo) {
-    return switch (algo) {
-      case RSA_SHA256->  new SHA256Signer(null);
-      case RSA_SHA256_PSS->  new SHA256PSSSigner(null);
+  /**
+   * HMAC-SHA256 signer of a shared secret.
+   *
+   * @param sharedSecret the shared secret
+   * @return signer
+   */
+  static HmacSHA256Signer hmacSigner(byte[] sharedSecret) {
+    HmacSHA256Signer signer = HMAC_SHA256_SIGNERS.get(ByteBuffer.wrap(sharedSecret));
+    if (null != signer) {
+      return signer;
     }
+    // the pooled key must not change with the caller's array
+    byte[] secret = sharedSecret.clone();
+    return HMAC_SHA256_SIGNERS.computeIfAbsent(ByteBuffer.wrap(secret),
+        key -> new HmacSHA256Signer(secret));
   }
 }
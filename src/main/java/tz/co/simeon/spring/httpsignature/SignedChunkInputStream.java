@@ -0,0 +1,184 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Function;
+import tz.co.simeon.spring.httpsignature.verifier.Verifier;
+
+/**
+ * Decodes a {@link SignedChunks} body, verifying every chunk before any of its bytes are returned.
+ * <p>
+ * Verified data can be forwarded downstream as it is read, and tampering is detected at the first
+ * bad chunk with a {@link ChunkSignatureException}, so the body never has to be stored whole
+ * before it is trusted. Only one chunk is held in memory at a time.
+ */
+public final class SignedChunkInputStream extends InputStream {
+  private static final int MAX_HEADER_LENGTH = 1024;
+
+  private final InputStream in;
+  private final Function<byte[], Verifier> verifiers;
+  private final MessageDigest digest = Util.sha256();
+  private final StringBuilder header = new StringBuilder(128);
+
+  private String previousSignature;
+  private byte[] chunk = new byte[0];
+  private int position;
+  private int size;
+  private boolean finished;
+
+  /**
+   * Create a new verifying stream.
+   *
+   * @param in            the chunk signed body
+   * @param algorithm     algorithm of the request signature
+   * @param publicKey     public key of the request signature
+   * @param seedSignature base64 signature of the request, the first chunk is chained to it
+   */
+  public SignedChunkInputStream(InputStream in, Algorithm algorithm, PublicKey publicKey,
+      String seedSignature) {
+    this(in, signature -> SignatureService.verifier(algorithm, signature, publicKey),
+        seedSignature);
+  }
+
+  /**
+   * Create a new verifying stream of a request signed with a shared secret.
+   *
+   * @param in            the chunk signed body
+   * @param algorithm     algorithm of the request signature
+   * @param sharedSecret  shared secret of the request signature
+   * @param seedSignature base64 signature of the request, the first chunk is chained to it
+   */
+  public SignedChunkInputStream(InputStream in, Algorithm algorithm, byte[] sharedSecret,
+      String seedSignature) {
+    this(in, signature -> SignatureService.verifier(algorithm, signature, sharedSecret),
+        seedSignature);
+  }
+
+  SignedChunkInputStream(InputStream in, Function<byte[], Verifier> verifiers,
+      String seedSignature) {
+    this.in = in;
+    this.verifiers = verifiers;
+    this.previousSignature = seedSignature;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureData()) {
+      return -1;
+    }
+    return chunk[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureData()) {
+      return -1;
+    }
+    int count = Math.min(len, size - position);
+    System.arraycopy(chunk, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return size - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private boolean ensureData() throws IOException {
+    while (position == size) {
+      if (finished) {
+        return false;
+      }
+      readChunk();
+    }
+    return true;
+  }
+
+  private void readChunk() throws IOException {
+    String line = readLine();
+    int separator = line.indexOf(SignedChunks.CHUNK_SIGNATURE);
+    if (separator <= 0) {
+      throw new ChunkSignatureException("Invalid chunk header");
+    }
+    int chunkSize;
+    try {
+      chunkSize = Integer.parseInt(line.substring(0, separator), 16);
+    } catch (NumberFormatException e) {
+      throw new ChunkSignatureException("Invalid chunk size");
+    }
+    if (chunkSize < 0 || chunkSize > SignedChunks.MAX_CHUNK_SIZE) {
+      throw new ChunkSignatureException("Chunk size " + chunkSize + " is not allowed");
+    }
+    String signature = line.substring(separator + SignedChunks.CHUNK_SIGNATURE.length());
+
+    if (chunk.length < chunkSize) {
+      chunk = new byte[chunkSize];
+    }
+    readFully(chunk, chunkSize);
+    if (in.read() != '\r' || in.read() != '\n') {
+      throw new ChunkSignatureException("Chunk is not terminated by CRLF");
+    }
+
+    digest.update(chunk, 0, chunkSize);
+    byte[] stringToSign = SignedChunks.stringToSign(previousSignature, digest.digest());
+    byte[] signatureBytes;
+    try {
+      signatureBytes = Base64.getDecoder().decode(signature);
+    } catch (IllegalArgumentException e) {
+      throw new ChunkSignatureException("Chunk signature is not valid base64");
+    }
+    Optional<HttpSignatureError> error =
+        verifiers.apply(signatureBytes).verify(stringToSign);
+    if (error.isPresent()) {
+      throw new ChunkSignatureException("Chunk signature is not valid: "
+          + error.get().getDescription());
+    }
+
+    previousSignature = signature;
+    position = 0;
+    size = chunkSize;
+    finished = chunkSize == 0;
+  }
+
+  private String readLine() throws IOException {
+    header.setLength(0);
+    int b;
+    while ((b = in.read()) != '\r') {
+      if (b == -1) {
+        throw new ChunkSignatureException("Chunk signed body is truncated");
+      }
+      if (header.length() == MAX_HEADER_LENGTH) {
+        throw new ChunkSignatureException("Chunk header is too long");
+      }
+      header.append((char) b);
+    }
+    if (in.read() != '\n') {
+      throw new ChunkSignatureException("Chunk header is not terminated by CRLF");
+    }
+    return header.toString();
+  }
+
+  private void readFully(byte[] buffer, int length) throws IOException {
+    int read = 0;
+    while (read < length) {
+      int count = in.read(buffer, read, length - read);
+      if (count == -1) {
+        throw new ChunkSignatureException("Chunk signed body is truncated");
+      }
+      read += count;
+    }
+  }
+}
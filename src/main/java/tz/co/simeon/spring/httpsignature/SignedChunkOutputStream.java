@@ -0,0 +1,105 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import tz.co.simeon.spring.httpsignature.signer.Signer;
+
+/**
+ * Encodes a request body as {@link SignedChunks}, signing every chunk as it is written.
+ * <p>
+ * Obtained from {@link OutboundRequestSigner#chunkedBody(OutputStream, java.util.Map)}. Closing
+ * the stream writes the last chunks and closes the underlying stream.
+ */
+public final class SignedChunkOutputStream extends FilterOutputStream {
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private final Signer signer;
+  private final byte[] chunk;
+  private final MessageDigest digest = Util.sha256();
+  private String previousSignature;
+  private int size;
+  private boolean closed;
+
+  SignedChunkOutputStream(OutputStream out, Signer signer, String seedSignature, int chunkSize) {
+    super(out);
+    if (chunkSize <= 0 || chunkSize > SignedChunks.MAX_CHUNK_SIZE) {
+      throw new IllegalArgumentException("Chunk size must be between 1 and "
+          + SignedChunks.MAX_CHUNK_SIZE + ", got " + chunkSize);
+    }
+    this.signer = signer;
+    this.chunk = new byte[chunkSize];
+    this.previousSignature = seedSignature;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    chunk[size++] = (byte) b;
+    if (size == chunk.length) {
+      writeChunk();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      int count = Math.min(len, chunk.length - size);
+      System.arraycopy(b, off, chunk, size, count);
+      size += count;
+      off += count;
+      len -= count;
+      if (size == chunk.length) {
+        writeChunk();
+      }
+    }
+  }
+
+  /**
+   * Writes the pending data as a chunk, so it can be verified and forwarded by the receiver.
+   *
+   * @throws IOException if writing fails
+   */
+  @Override
+  public void flush() throws IOException {
+    if (size > 0) {
+      writeChunk();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (size > 0) {
+        writeChunk();
+      }
+      writeChunk();
+      out.flush();
+    } finally {
+      out.close();
+    }
+  }
+
+  private void writeChunk() throws IOException {
+    digest.update(chunk, 0, size);
+    byte[] hash = digest.digest();
+    String signature = Base64.getEncoder()
+        .encodeToString(signer.sign(SignedChunks.stringToSign(previousSignature, hash)));
+
+    String header = Integer.toHexString(size) + SignedChunks.CHUNK_SIGNATURE + signature;
+    out.write(header.getBytes(StandardCharsets.US_ASCII));
+    out.write(CRLF);
+    out.write(chunk, 0, size);
+    out.write(CRLF);
+
+    previousSignature = signature;
+    size = 0;
+  }
+}
@@ -0,0 +1,89 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Scheme signing a streamed request body chunk by chunk, so that the receiver can verify and
+ * forward each chunk as soon as it arrives, instead of waiting for a digest of the whole body.
+ * <p>
+ * The request is sent with {@code Content-Encoding: signed-chunks} and signed as usual, with the
+ * {@code digest} header set to {@link #STREAMING_DIGEST}. The body is a sequence of chunks:
+ *
+ * <pre>
+ * hex(size) ";chunk-signature=" base64(signature) CRLF
+ * data CRLF
+ * </pre>
+ *
+ * ending with a chunk of size 0. The signature of a chunk is computed with the key and algorithm of
+ * the request signature, over:
+ *
+ * <pre>
+ * "http-signature-chunk" LF
+ * base64(signature of the previous chunk, or of the request for the first chunk) LF
+ * hex(SHA-256(data))
+ * </pre>
+ *
+ * so chunks cannot be reordered, dropped or moved to another request. The size of the decoded body
+ * may be sent in the {@code Decoded-Content-Length} header.
+ *
+ * @see SignedChunkOutputStream
+ * @see SignedChunkInputStream
+ */
+public final class SignedChunks {
+  /**
+   * Content encoding of a chunk signed body.
+   */
+  public static final String CONTENT_ENCODING = "signed-chunks";
+
+  /**
+   * Header with the length of the decoded body, optional.
+   */
+  public static final String DECODED_CONTENT_LENGTH = "Decoded-Content-Length";
+
+  /**
+   * Value of the {@code digest} header of a chunk signed request.
+   */
+  public static final String STREAMING_DIGEST = OutboundRequestSigner.DIGEST_PREFIX
+      + "STREAMING-SIGNED-CHUNKS";
+
+  /**
+   * Chunk size used by default when signing.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Largest chunk accepted when verifying, as a whole chunk is held until it is verified.
+   */
+  public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+  static final String CHUNK_SIGNATURE = ";chunk-signature=";
+
+  private static final byte[] STRING_TO_SIGN_PREFIX =
+      "http-signature-chunk\n".getBytes(StandardCharsets.US_ASCII);
+
+  private SignedChunks() {
+  }
+
+  /**
+   * Whether the body of a request is chunk signed.
+   *
+   * @param request the request
+   * @return {@code true} if the content encoding is {@link #CONTENT_ENCODING}
+   */
+  public static boolean isSignedChunks(HttpServletRequest request) {
+    String encoding = request.getHeader("Content-Encoding");
+    return null != encoding && CONTENT_ENCODING.equalsIgnoreCase(encoding.trim());
+  }
+
+  static byte[] stringToSign(String previousSignature, byte[] chunkSha256) {
+    byte[] previous = previousSignature.getBytes(StandardCharsets.US_ASCII);
+    byte[] hash = Util.toLowerHex(chunkSha256).getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = new byte[STRING_TO_SIGN_PREFIX.length + previous.length + 1 + hash.length];
+    System.arraycopy(STRING_TO_SIGN_PREFIX, 0, bytes, 0, STRING_TO_SIGN_PREFIX.length);
+    System.arraycopy(previous, 0, bytes, STRING_TO_SIGN_PREFIX.length, previous.length);
+    bytes[STRING_TO_SIGN_PREFIX.length + previous.length] = '\n';
+    System.arraycopy(hash, 0, bytes, bytes.length - hash.length, hash.length);
+    return bytes;
+  }
+}
@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Predicate;
 
 /**
  * Configuration of required and "if-present" headers to be signed.
@@ -60,6 +61,10 @@ public final class SignedHeadersConfig {
     return methodConfigs.getOrDefault(method, defaultConfig).getHeaders(map);
   }
 
+  List<String> headers(String method, Predicate<String> present) {
+    return methodConfigs.getOrDefault(method, defaultConfig).getHeaders(present);
+  }
+
   List<String> headers(String method) {
     return new ArrayList<>(methodConfigs.getOrDefault(method, defaultConfig).always);
   }
@@ -159,9 +164,13 @@ public final class SignedHeadersConfig {
     }
 
     List<String> getHeaders(Map<String, Collection<String>> map) {
+      return getHeaders(map::containsKey);
+    }
+
+    List<String> getHeaders(Predicate<String> present) {
       List<String> result = new ArrayList<>(always);
 
-      ifPresent.stream().filter(map::containsKey).forEach(result::add);
+      ifPresent.stream().filter(present).forEach(result::add);
 
       return result;
     }
@@ -0,0 +1,157 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated pool running signature computations off the caller's thread, so reactive code and
+ * latency-sensitive handlers never block on RSA.
+ * <p>
+ * The pool is sized for CPU bound work and its queue is bounded: when it is full, signing fails
+ * fast with an {@link HttpSignatureException} and the rejection is counted by
+ * {@link HttpSignatureMetrics#signingRejected(Algorithm)}, instead of letting latency grow without
+ * limit. Time spent queued is recorded as {@link HttpSignatureMetrics.Stage#SIGN_QUEUE}.
+ */
+public final class SigningExecutor {
+  private final ThreadPoolExecutor executor;
+
+  private SigningExecutor(Builder builder) {
+    this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(builder.queueCapacity),
+        new SignerThreadFactory(builder.threadNamePrefix), new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Run a signing task on the pool.
+   *
+   * @param task      the signing task
+   * @param algorithm algorithm of the signature, for metrics
+   * @param metrics   metrics of the caller
+   * @return future completed with the result of the task, or exceptionally if the task failed, the
+   *         queue is full or the pool is shut down
+   */
+  <T> CompletableFuture<T> submit(Supplier<T> task, Algorithm algorithm,
+      HttpSignatureMetrics metrics) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    long queued = metrics.start();
+    try {
+      executor.execute(() -> {
+        try {
+          metrics.stop(HttpSignatureMetrics.Stage.SIGN_QUEUE, algorithm, queued);
+          future.complete(task.get());
+        } catch (Throwable e) {
+          future.completeExceptionally(e);
+          if (e instanceof Error) {
+            throw (Error) e;
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      if (executor.isShutdown()) {
+        future.completeExceptionally(new HttpSignatureException("Signing pool is shut down", e));
+      } else {
+        metrics.signingRejected(algorithm);
+        future.completeExceptionally(new HttpSignatureException("Signing queue is full", e));
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Number of signing tasks waiting for a thread.
+   *
+   * @return queue size
+   */
+  public int queueSize() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Stop accepting signing tasks, tasks already queued are still run. Tasks submitted afterwards
+   * fail with an {@link HttpSignatureException}, without being counted as rejected.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Fluent API builder to create {@link SigningExecutor} instances. Call {@link #build()} to create
+   * a new instance.
+   */
+  public static final class Builder {
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 256 * Runtime.getRuntime().availableProcessors();
+    private String threadNamePrefix = "http-signature-signer-";
+
+    private Builder() {
+    }
+
+    public SigningExecutor build() {
+      return new SigningExecutor(this);
+    }
+
+    /**
+     * Number of signing threads, defaults to the number of available processors.
+     *
+     * @param threads number of threads
+     * @return updated builder instance
+     */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Maximal number of signing tasks waiting for a thread, further tasks are rejected.
+     *
+     * @param queueCapacity capacity of the queue
+     * @return updated builder instance
+     */
+    public Builder queueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * Prefix of the names of the signing threads.
+     *
+     * @param threadNamePrefix thread name prefix
+     * @return updated builder instance
+     */
+    public Builder threadNamePrefix(String threadNamePrefix) {
+      this.threadNamePrefix = threadNamePrefix;
+      return this;
+    }
+  }
+
+  private static final class SignerThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+    private final String prefix;
+
+    private SignerThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Invariant parts of the signing string and the signature parameters for a list of signed headers
+ * of an outbound target, encoded once, so that signing a message only encodes the header values
+ * and the signature.
+ */
+final class SigningTemplate {
+  private final List<String> headers;
+  private final byte[][] prefixes;
+  private final int prefixesLength;
+  private final String parametersPrefix;
+
+  /**
+   * Create a template.
+   *
+   * @param keyId            key id of the target
+   * @param algorithm        algorithm of the target
+   * @param headers          signed headers, in signing string order
+   * @param headersParameter whether the signature parameters list the signed headers
+   */
+  SigningTemplate(String keyId, Algorithm algorithm, List<String> headers,
+      boolean headersParameter) {
+    this.headers = headers;
+    this.prefixes = new byte[headers.size()][];
+    int length = 0;
+    for (int i = 0; i < prefixes.length; i++) {
+      prefixes[i] = ((i == 0 ? "" : "\n") + headers.get(i) + ": ")
+          .getBytes(StandardCharsets.UTF_8);
+      length += prefixes[i].length;
+    }
+    this.prefixesLength = length;
+    this.parametersPrefix = "keyId=\"" + keyId + "\","
+        + "algorithm=\"" + algorithm + "\","
+        + (headersParameter ? "headers=\"" + String.join(" ", headers) + "\"," : "")
+        + "signature=\"";
+  }
+
+  /**
+   * Signed headers, in signing string order.
+   *
+   * @return header names
+   */
+  List<String> headers() {
+    return headers;
+  }
+
+  /**
+   * Signing string bytes for the header values.
+   *
+   * @param values values of the signed headers, in the order of {@link #headers()}
+   * @return UTF-8 encoded signing string
+   */
+  byte[] signingBytes(String... values) {
+    int length = prefixesLength;
+    boolean ascii = true;
+    for (String value : values) {
+      length += value.length();
+      ascii = ascii && isAscii(value);
+    }
+    if (!ascii) {
+      return slowSigningBytes(values);
+    }
+
+    byte[] bytes = new byte[length];
+    int pos = 0;
+    for (int i = 0; i < prefixes.length; i++) {
+      System.arraycopy(prefixes[i], 0, bytes, pos, prefixes[i].length);
+      pos += prefixes[i].length;
+      String value = values[i];
+      for (int c = 0; c < value.length(); c++) {
+        bytes[pos++] = (byte) value.charAt(c);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Value of the signature parameters for the signature bytes.
+   *
+   * @param signature signature of the signing string
+   * @return {@code Signature} header value, or {@code Authorization} header value without the
+   *         scheme
+   */
+  String parameters(byte[] signature) {
+    return parametersPrefix + Base64.getEncoder().encodeToString(signature) + '"';
+  }
+
+  private byte[] slowSigningBytes(String... values) {
+    StringBuilder signingString = new StringBuilder(prefixesLength + 128);
+    for (int i = 0; i < prefixes.length; i++) {
+      signingString.append(new String(prefixes[i], StandardCharsets.UTF_8)).append(values[i]);
+    }
+    return signingString.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,50 +1,90 @@
 package tz.co.simeon.spring.httpsignature;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import javax.servlet.http.HttpServletRequest;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 
 public final class Util {
+  /**
+   * All values of the request headers, by case-insensitive name.
+   *
+   * @param request the request
+   * @return header values by name
+   */
   public static Map<String, Collection<String>> headers(HttpServletRequest request) {
-    Multimap<String, String> multimap = ArrayListMultimap.create();
+    Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     Enumeration<String> names = request.getHeaderNames();
 
     while (names.hasMoreElements()) {
       String name = names.nextElement();
-      multimap.put(name, request.getHeader(name));
+      headers.computeIfAbsent(name, n -> new ArrayList<>())
+          .addAll(Collections.list(request.getHeaders(name)));
     }
 
-    return multimap.asMap();
+    return headers;
   }
 
+  /**
+   * All values of a request header.
+   *
+   * @param request the request
+   * @param key     case-insensitive header name
+   * @return header values, empty if the header is absent
+   */
   public static Optional<Collection<String>> values(HttpServletRequest request, String key) {
-    Multimap<String, String> multimap = ArrayListMultimap.create();
-    Enumeration<String> names = request.getHeaderNames();
-
-    while (names.hasMoreElements()) {
-      String name = names.nextElement();
-      multimap.put(name, request.getHeader(name));
+    Enumeration<String> values = request.getHeaders(key);
+    if (null == values || !values.hasMoreElements()) {
+      return Optional.empty();
     }
-    Collection<String> values = multimap.asMap().get(key.toLowerCase());
-    return Optional.ofNullable(values);
+    return Optional.of(Collections.list(values));
   }
 
   public static String sha256Digest(String data) throws SignatureException {
+    return getDigest("SHA-256", data.getBytes(StandardCharsets.UTF_8), true);
+  }
+
+  public static String sha256Digest(byte[] data) throws SignatureException {
     return getDigest("SHA-256", data, true);
   }
 
-  private static String getDigest(String algorithm, String data, boolean toLower)
+  /**
+   * New SHA-256 message digest, to digest data incrementally.
+   *
+   * @return message digest
+   */
+  public static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  /**
+   * SHA-256 hash of data.
+   *
+   * @param data data to hash
+   * @return hash bytes
+   */
+  public static byte[] sha256(byte[] data) {
+    return sha256().digest(data);
+  }
+
+  private static String getDigest(String algorithm, byte[] data, boolean toLower)
       throws SignatureException {
     try {
       MessageDigest mac = MessageDigest.getInstance(algorithm);
-      mac.update(data.getBytes("UTF-8"));
+      mac.update(data);
       return toLower ? new String(toHex(mac.digest())).toLowerCase()
           : new String(toHex(mac.digest()));
     } catch (Exception e) {
@@ -52,6 +92,16 @@ public final class Util {
     }
   }
 
+  /**
+   * Lower case hexadecimal form of bytes, as used in digest header values.
+   *
+   * @param bytes bytes to encode
+   * @return hexadecimal string
+   */
+  public static String toLowerHex(byte[] bytes) {
+    return toHex(bytes).toLowerCase();
+  }
+
   private static String toHex(byte[] bytes) {
     BigInteger bi = new BigInteger(1, bytes);
     return String.format("%0" + (bytes.length << 1) + "X", bi);
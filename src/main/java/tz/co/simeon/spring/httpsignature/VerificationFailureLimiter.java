@@ -0,0 +1,226 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Limits failed signature verifications per key id and client address, so that garbage signatures
+ * sent with a valid key id cannot keep the server busy buffering bodies and verifying signatures.
+ * <p>
+ * Every client has a token bucket of {@link Builder#burst(int)} failures, refilled at one failure
+ * per {@link Builder#refillInterval(Duration)}. Once the bucket is empty, requests of the client
+ * are rejected before their body is read. Successful verifications do not consume tokens.
+ * <p>
+ * Every address also has a bucket of {@link Builder#addressBurst(int)} failures shared by all its
+ * key ids, so a client cannot escape the limit by rotating through key ids, known or not. The
+ * address is resolved by the filter's {@link ClientAddressResolver}, which must be configured when
+ * running behind a proxy.
+ * <p>
+ * Buckets are lock free: the state of a bucket is a single theoretical arrival time, updated with
+ * compare and set. Buckets live in caches split in {@link Builder#concurrencyLevel(int)}
+ * segments, bounded by {@link Builder#maximumSize(long)} and evicting buckets idle long enough to
+ * have refilled completely, as those are indistinguishable from new ones.
+ */
+public final class VerificationFailureLimiter {
+  private final Cache<String, Bucket> buckets;
+  private final Cache<String, Bucket> addressBuckets;
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final long addressToleranceNanos;
+  private final Ticker ticker;
+
+  private VerificationFailureLimiter(Builder builder) {
+    this.intervalNanos = builder.refillInterval.toNanos();
+    this.toleranceNanos = intervalNanos * builder.burst;
+    this.addressToleranceNanos = intervalNanos * builder.addressBurst;
+    this.ticker = builder.ticker;
+    this.buckets = buckets(builder, toleranceNanos);
+    this.addressBuckets = buckets(builder, addressToleranceNanos);
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * How long a client has to wait before its next verification attempt is accepted.
+   *
+   * @param keyId   key id of the signature
+   * @param address address of the client
+   * @return {@code 0} if the attempt is accepted, otherwise the wait in nanoseconds
+   */
+  public long retryAfterNanos(String keyId, String address) {
+    long now = ticker.read();
+    return Math.max(wait(buckets.getIfPresent(key(keyId, address)), toleranceNanos, now),
+        wait(addressBuckets.getIfPresent(String.valueOf(address)), addressToleranceNanos, now));
+  }
+
+  /**
+   * Record a failed verification, consuming a token of the client and of its address.
+   *
+   * @param keyId   key id of the signature
+   * @param address address of the client
+   */
+  public void failed(String keyId, String address) {
+    long now = ticker.read();
+    consume(bucket(buckets, key(keyId, address), now), toleranceNanos, now);
+    consume(bucket(addressBuckets, String.valueOf(address), now), addressToleranceNanos, now);
+  }
+
+  private long wait(Bucket bucket, long tolerance, long now) {
+    if (null == bucket) {
+      return 0L;
+    }
+    // the next failure would push the arrival time past the tolerance
+    long wait = bucket.arrival.get() + intervalNanos - now - tolerance;
+    return wait > 0 ? wait : 0L;
+  }
+
+  private void consume(Bucket bucket, long tolerance, long now) {
+    long arrival;
+    long next;
+    do {
+      arrival = bucket.arrival.get();
+      next = Math.max(arrival, now) + intervalNanos;
+      if (next - now > tolerance) {
+        // already rejecting, the wait never exceeds one interval
+        return;
+      }
+    } while (!bucket.arrival.compareAndSet(arrival, next));
+  }
+
+  private static Bucket bucket(Cache<String, Bucket> buckets, String key, long now) {
+    try {
+      return buckets.get(key, () -> new Bucket(now));
+    } catch (ExecutionException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  private static Cache<String, Bucket> buckets(Builder builder, long toleranceNanos) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(builder.maximumSize)
+        .concurrencyLevel(builder.concurrencyLevel)
+        .expireAfterAccess(toleranceNanos + builder.refillInterval.toNanos(), TimeUnit.NANOSECONDS)
+        .ticker(builder.ticker)
+        .build();
+  }
+
+  /**
+   * Number of clients currently tracked.
+   *
+   * @return approximate number of buckets per key id and address
+   */
+  public long size() {
+    return buckets.size();
+  }
+
+  private static String key(String keyId, String address) {
+    return keyId + '\n' + address;
+  }
+
+  /**
+   * Fluent API builder to create {@link VerificationFailureLimiter} instances. Call
+   * {@link #build()} to create a new instance.
+   */
+  public static final class Builder {
+    private int burst = 10;
+    private int addressBurst = 50;
+    private Duration refillInterval = Duration.ofSeconds(6);
+    private long maximumSize = 100_000;
+    private int concurrencyLevel = 16;
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Builder() {
+    }
+
+    public VerificationFailureLimiter build() {
+      return new VerificationFailureLimiter(this);
+    }
+
+    /**
+     * Number of failures accepted in a burst, before requests are rejected.
+     *
+     * @param burst size of a bucket
+     * @return updated builder instance
+     */
+    public Builder burst(int burst) {
+      this.burst = burst;
+      return this;
+    }
+
+    /**
+     * Number of failures accepted in a burst from one address across all key ids, before its
+     * requests are rejected.
+     *
+     * @param addressBurst size of the bucket of an address
+     * @return updated builder instance
+     */
+    public Builder addressBurst(int addressBurst) {
+      this.addressBurst = addressBurst;
+      return this;
+    }
+
+    /**
+     * Time to earn back one failure.
+     *
+     * @param refillInterval refill interval of a bucket
+     * @return updated builder instance
+     */
+    public Builder refillInterval(Duration refillInterval) {
+      this.refillInterval = refillInterval;
+      return this;
+    }
+
+    /**
+     * Maximal number of clients, and of addresses, tracked, least recently seen are evicted first.
+     *
+     * @param maximumSize maximal number of buckets
+     * @return updated builder instance
+     */
+    public Builder maximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Number of independently locked segments buckets are stored in.
+     *
+     * @param concurrencyLevel number of segments
+     * @return updated builder instance
+     */
+    public Builder concurrencyLevel(int concurrencyLevel) {
+      this.concurrencyLevel = concurrencyLevel;
+      return this;
+    }
+
+    /**
+     * Time source of the buckets.
+     *
+     * @param ticker the time source
+     * @return updated builder instance
+     */
+    Builder ticker(Ticker ticker) {
+      this.ticker = ticker;
+      return this;
+    }
+  }
+
+  private static final class Bucket {
+    private final AtomicLong arrival;
+
+    private Bucket(long now) {
+      this.arrival = new AtomicLong(now);
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package tz.co.simeon.spring.httpsignature;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Short-lived cache of successful signature verifications, used to let byte-identical retries of a
+ * signed request skip the public key operation.
+ * <p>
+ * Entries are keyed by key id, a fingerprint of the verifying key, signature bytes and a SHA-256
+ * hash of the signing string. As the signing string contains the digest of the body computed from
+ * the received bytes, the body is still digested on every request and a retry with a different
+ * body never hits the cache. As the key material is part of the key, a rotated key never verifies
+ * from an entry computed with the previous one; disabled clients are rejected before the cache is
+ * consulted.
+ * <p>
+ * Failed verifications are never cached, their entries would be chosen by the sender.
+ * <p>
+ * An entry never outlives the signature itself: it expires at whichever comes first of
+ * {@link Builder#timeToLive(Duration)} after it was stored and {@link Builder#maxAge(Duration)}
+ * after the signed {@code date} header. Signatures without a parseable date are not cached.
+ */
+public final class VerificationResultCache {
+  private static final Logger LOGGER = Logger.getLogger(VerificationResultCache.class.getName());
+
+  private final Cache<Key, Outcome> cache;
+  private final long timeToLiveMillis;
+  private final long maxAgeMillis;
+
+  private VerificationResultCache(Builder builder) {
+    this.timeToLiveMillis = builder.timeToLive.toMillis();
+    this.maxAgeMillis = builder.maxAge.toMillis();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(builder.maximumSize)
+        .expireAfterWrite(builder.timeToLive)
+        .build();
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @return new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Return the cached outcome of verifying the signature over the signed bytes, or run the
+   * verification and cache it if successful.
+   *
+   * @param signature      the signature received with the request
+   * @param keyFingerprint fingerprint of the key material verifying the signature, see
+   *                       {@link #fingerprint(byte[])}
+   * @param signedBytes    the signing string built from the request
+   * @param date           value of the signed {@code date} header, may be {@code null}
+   * @param verifier       the actual verification, called on a cache miss
+   * @return empty if the signature is valid, the problem otherwise
+   */
+  Optional<HttpSignatureError> verify(HttpSignature signature, byte[] keyFingerprint,
+      byte[] signedBytes, String date, Supplier<Optional<HttpSignatureError>> verifier) {
+    long expiresAt = expiresAt(date);
+    if (expiresAt <= 0 || null == signature.getSignatureBytes() || null == keyFingerprint) {
+      return verifier.get();
+    }
+
+    Key key = new Key(signature.getKeyId(), keyFingerprint, signature.getSignatureBytes(),
+        Util.sha256(signedBytes));
+    long now = System.currentTimeMillis();
+
+    Outcome cached = cache.getIfPresent(key);
+    if (null != cached) {
+      if (cached.expiresAt > now) {
+        LOGGER.finest(() -> "Reusing verification outcome for key " + signature.getKeyId());
+        return cached.error;
+      }
+      cache.invalidate(key);
+    }
+
+    Optional<HttpSignatureError> error = verifier.get();
+    if (!error.isPresent()) {
+      cache.put(key, new Outcome(error, expiresAt));
+    }
+    return error;
+  }
+
+  /**
+   * Fingerprint of the key material verifying signatures, such as an encoded public key.
+   *
+   * @param keyMaterial encoded key material, may be {@code null}
+   * @return fingerprint, {@code null} if there is no key material
+   */
+  static byte[] fingerprint(byte[] keyMaterial) {
+    return null == keyMaterial ? null : Util.sha256(keyMaterial);
+  }
+
+  /**
+   * Number of outcomes currently cached.
+   *
+   * @return approximate number of entries
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  private long expiresAt(String date) {
+    if (null == date) {
+      return -1;
+    }
+    long signedAt;
+    try {
+      signedAt = ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+          .toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+    long now = System.currentTimeMillis();
+    long expiresAt = Math.min(now + timeToLiveMillis, signedAt + maxAgeMillis);
+    return expiresAt > now ? expiresAt : -1;
+  }
+
+  /**
+   * Fluent API builder to create {@link VerificationResultCache} instances. Call {@link #build()}
+   * to create a new instance.
+   */
+  public static final class Builder {
+    private long maximumSize = 10_000;
+    private Duration timeToLive = Duration.ofSeconds(30);
+    private Duration maxAge = Duration.ofMinutes(5);
+
+    private Builder() {
+    }
+
+    public VerificationResultCache build() {
+      return new VerificationResultCache(this);
+    }
+
+    /**
+     * Maximal number of outcomes kept, least recently used are evicted first.
+     *
+     * @param maximumSize maximal number of entries
+     * @return updated builder instance
+     */
+    public Builder maximumSize(long maximumSize) {
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * How long an outcome is kept after it was computed.
+     *
+     * @param timeToLive time to live of an entry
+     * @return updated builder instance
+     */
+    public Builder timeToLive(Duration timeToLive) {
+      this.timeToLive = timeToLive;
+      return this;
+    }
+
+    /**
+     * How long after its {@code date} header a signature is still accepted from the cache.
+     *
+     * @param maxAge maximal age of a signature
+     * @return updated builder instance
+     */
+    public Builder maxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+  }
+
+  private static final class Key {
+    private final String keyId;
+    private final byte[] keyFingerprint;
+    private final byte[] signature;
+    private final byte[] signedBytesHash;
+    private final int hash;
+
+    private Key(String keyId, byte[] keyFingerprint, byte[] signature, byte[] signedBytesHash) {
+      this.keyId = keyId;
+      this.keyFingerprint = keyFingerprint;
+      this.signature = signature;
+      this.signedBytesHash = signedBytesHash;
+      this.hash = 31 * (31 * (31 * keyId.hashCode() + Arrays.hashCode(keyFingerprint))
+          + Arrays.hashCode(signature)) + Arrays.hashCode(signedBytesHash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return keyId.equals(other.keyId) && Arrays.equals(keyFingerprint, other.keyFingerprint)
+          && Arrays.equals(signature, other.signature)
+          && Arrays.equals(signedBytesHash, other.signedBytesHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Outcome {
+    private final Optional<HttpSignatureError> error;
+    private final long expiresAt;
+
+    private Outcome(Optional<HttpSignatureError> error, long expiresAt) {
+      this.error = error;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
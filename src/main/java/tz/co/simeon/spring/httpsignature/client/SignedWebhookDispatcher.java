@@ -0,0 +1,402 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.CacheBuilder;
+import lombok.NonNull;
+import lombok.Value;
+import tz.co.simeon.spring.httpsignature.HttpDateClock;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.HttpSignatureMetrics;
+import tz.co.simeon.spring.httpsignature.MediaTypeMapper;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.SigningExecutor;
+
+/**
+ * Delivers the same signed event payload to many webhook subscribers.
+ * <p>
+ * For each event, the payload is serialized and digested once, and all subscribers share the same
+ * {@code date}. Subscribers that use the same {@link OutboundTargetDefinition} instance and the
+ * same host and path have identical signing strings, so they share a single signature; distinct
+ * signatures are computed in parallel on the {@link SigningExecutor}. Signing cost per event thus
+ * grows with the number of distinct keys and endpoints, not with the number of subscribers.
+ * <p>
+ * Deliveries go through a {@link WebhookTransport} with bounded concurrency, shared by all events
+ * of the dispatcher. Deliveries failing without a response, or with status 408, 429 or 5xx, are
+ * retried with exponential backoff, reusing their signature, so {@link Builder#maxAttempts(int)}
+ * and {@link Builder#initialBackoff(Duration)} should keep retries within the maximal signature age
+ * accepted by subscribers.
+ */
+public final class SignedWebhookDispatcher {
+  private static final int MAX_SIGNERS = 1024;
+
+  private final WebhookTransport transport;
+  private final SigningExecutor signingExecutor;
+  private final HttpSignatureMetrics metrics;
+  private final ScheduledExecutorService retryScheduler;
+  private final int maxConcurrency;
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+
+  /**
+   * Signers by target instance. A signer holds its target, so weak keys only give identity
+   * lookups: the size bound is what keeps callers creating a target per event from growing the
+   * map.
+   */
+  private final Map<OutboundTargetDefinition, OutboundRequestSigner> signers =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_SIGNERS)
+          .<OutboundTargetDefinition, OutboundRequestSigner>build().asMap();
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger drainRequests = new AtomicInteger();
+
+  private SignedWebhookDispatcher(Builder builder) {
+    this.transport = builder.transport;
+    this.signingExecutor = builder.signingExecutor;
+    this.metrics = builder.metrics;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.maxAttempts = builder.maxAttempts;
+    this.initialBackoffMillis = builder.initialBackoff.toMillis();
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "http-signature-webhook-retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Builder to create a new instance.
+   *
+   * @param transport       client delivering the requests
+   * @param signingExecutor pool computing the signatures
+   * @return new builder
+   */
+  public static Builder builder(WebhookTransport transport, SigningExecutor signingExecutor) {
+    return new Builder(transport, signingExecutor);
+  }
+
+  /**
+   * Serialize a payload once and deliver it to all subscribers.
+   *
+   * @param payload     event payload
+   * @param mapper      serialization of the payload
+   * @param subscribers subscribers to deliver to
+   * @return future completed with the outcome of every delivery, once all are done
+   */
+  public CompletableFuture<List<Delivery>> dispatch(Object payload, MediaTypeMapper mapper,
+      Collection<Subscriber> subscribers) {
+    byte[] body;
+    try {
+      body = mapper.getObjectMapper().writeValueAsBytes(payload);
+    } catch (JsonProcessingException e) {
+      CompletableFuture<List<Delivery>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new HttpSignatureException(e));
+      return failed;
+    }
+    return dispatch(body, mapper.getMediaType().toString(), subscribers);
+  }
+
+  /**
+   * Deliver a serialized payload to all subscribers.
+   *
+   * @param body        serialized payload, must not be modified until the returned future completes
+   * @param contentType content type of the payload
+   * @param subscribers subscribers to deliver to
+   * @return future completed with the outcome of every delivery, once all are done
+   */
+  public CompletableFuture<List<Delivery>> dispatch(byte[] body, String contentType,
+      Collection<Subscriber> subscribers) {
+    Map<String, List<String>> eventHeaders = new HashMap<>();
+    eventHeaders.put("date", Collections.singletonList(HttpDateClock.system().now()));
+    eventHeaders.put("digest", Collections.singletonList(OutboundRequestSigner.digest(body)));
+    eventHeaders.put("content-type", Collections.singletonList(contentType));
+    eventHeaders.put("content-length",
+        Collections.singletonList(String.valueOf(body.length)));
+    Function<String, List<String>> headers = name -> eventHeaders.get(name.toLowerCase());
+
+    Map<SignatureKey, CompletableFuture<Map<String, String>>> signatures = new HashMap<>();
+    List<CompletableFuture<Delivery>> deliveries = new ArrayList<>(subscribers.size());
+    for (Subscriber subscriber : subscribers) {
+      CompletableFuture<Map<String, String>> signature = signatures.computeIfAbsent(
+          new SignatureKey(subscriber),
+          key -> signer(subscriber.getTarget()).signAsync("POST", subscriber.getUri(), headers,
+              eventHeaders.get("digest").get(0), signingExecutor));
+
+      CompletableFuture<Delivery> delivery = new CompletableFuture<>();
+      signature.whenComplete((signatureHeaders, error) -> {
+        if (null != error) {
+          delivery.complete(new Delivery(subscriber, -1, 0, error));
+          return;
+        }
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        eventHeaders.forEach((name, values) -> requestHeaders.put(name, values.get(0)));
+        // set by the transport from the body
+        requestHeaders.remove("content-length");
+        requestHeaders.putAll(signatureHeaders);
+        enqueue(() -> attempt(subscriber, requestHeaders, body, 1, delivery));
+      });
+      deliveries.add(delivery);
+    }
+
+    return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0]))
+        .thenApply(done -> {
+          List<Delivery> outcomes = new ArrayList<>(deliveries.size());
+          deliveries.forEach(delivery -> outcomes.add(delivery.join()));
+          return outcomes;
+        });
+  }
+
+  /**
+   * Stop retrying failed deliveries, deliveries failing from now on complete with their last
+   * outcome.
+   */
+  public void shutdown() {
+    retryScheduler.shutdown();
+  }
+
+  private OutboundRequestSigner signer(OutboundTargetDefinition target) {
+    return signers.computeIfAbsent(target, t -> new OutboundRequestSigner(t, metrics));
+  }
+
+  private void attempt(Subscriber subscriber, Map<String, String> headers, byte[] body,
+      int attempt, CompletableFuture<Delivery> delivery) {
+    CompletableFuture<Integer> response;
+    try {
+      response = transport.post(subscriber.getUri(), headers, body);
+    } catch (RuntimeException e) {
+      response = new CompletableFuture<>();
+      response.completeExceptionally(e);
+    }
+
+    response.whenComplete((status, error) -> {
+      inFlight.decrementAndGet();
+      boolean retrying = (null != error || isRetryable(status)) && attempt < maxAttempts
+          && retry(subscriber, headers, body, attempt, delivery);
+      if (!retrying) {
+        delivery.complete(new Delivery(subscriber, null == status ? -1 : status, attempt, error));
+      }
+      drain();
+    });
+  }
+
+  /**
+   * Schedule the next attempt after a backoff, {@code false} if the dispatcher is shut down, even
+   * if only since the response arrived: the last outcome is then final.
+   */
+  private boolean retry(Subscriber subscriber, Map<String, String> headers, byte[] body,
+      int attempt, CompletableFuture<Delivery> delivery) {
+    long backoff = initialBackoffMillis << (attempt - 1);
+    try {
+      retryScheduler.schedule(
+          () -> enqueue(() -> attempt(subscriber, headers, body, attempt + 1, delivery)),
+          backoff, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  private void enqueue(Runnable attempt) {
+    pending.add(attempt);
+    drain();
+  }
+
+  /**
+   * Start pending attempts up to the concurrency limit. Only one thread drains at a time: calls
+   * made meanwhile, including those of attempts whose transport completes inline, make it loop
+   * again instead of recursing.
+   */
+  private void drain() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      while (!pending.isEmpty()) {
+        int current = inFlight.get();
+        if (current >= maxConcurrency) {
+          break;
+        }
+        if (!inFlight.compareAndSet(current, current + 1)) {
+          continue;
+        }
+        Runnable next = pending.poll();
+        if (null == next) {
+          inFlight.decrementAndGet();
+        } else {
+          next.run();
+        }
+      }
+      missed = drainRequests.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private static boolean isRetryable(Integer status) {
+    return null == status || status == 408 || status == 429 || status >= 500;
+  }
+
+  /**
+   * A webhook subscriber.
+   */
+  @Value
+  public static class Subscriber {
+    @NonNull
+    private final URI uri;
+
+    @NonNull
+    private final OutboundTargetDefinition target;
+  }
+
+  /**
+   * Outcome of the delivery of an event to a subscriber.
+   */
+  @Value
+  public static class Delivery {
+    private final Subscriber subscriber;
+
+    /**
+     * Status of the last response, -1 if none was received.
+     */
+    private final int status;
+
+    /**
+     * Number of delivery attempts, 0 if the request could not be signed.
+     */
+    private final int attempts;
+
+    /**
+     * Why the last attempt failed without a response, {@code null} otherwise.
+     */
+    private final Throwable error;
+
+    /**
+     * Whether the subscriber accepted the event.
+     *
+     * @return {@code true} for a 2xx response
+     */
+    public boolean isDelivered() {
+      return status >= 200 && status < 300;
+    }
+  }
+
+  /**
+   * Subscribers with equal keys have identical signing strings for the same event.
+   */
+  private static final class SignatureKey {
+    private final OutboundTargetDefinition target;
+    private final String host;
+    private final int port;
+    private final String path;
+
+    private SignatureKey(Subscriber subscriber) {
+      this.target = subscriber.getTarget();
+      this.host = subscriber.getUri().getHost();
+      this.port = subscriber.getUri().getPort();
+      this.path = subscriber.getUri().getRawPath();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SignatureKey)) {
+        return false;
+      }
+      SignatureKey other = (SignatureKey) o;
+      return target == other.target && port == other.port && Objects.equals(host, other.host)
+          && Objects.equals(path, other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * (31 * System.identityHashCode(target) + Objects.hashCode(host)) + port)
+          + Objects.hashCode(path);
+    }
+  }
+
+  /**
+   * Fluent API builder to create {@link SignedWebhookDispatcher} instances. Call {@link #build()}
+   * to create a new instance.
+   */
+  public static final class Builder {
+    private final WebhookTransport transport;
+    private final SigningExecutor signingExecutor;
+    private HttpSignatureMetrics metrics = HttpSignatureMetrics.NOOP;
+    private int maxConcurrency = 64;
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(500);
+
+    private Builder(@NonNull WebhookTransport transport, @NonNull SigningExecutor signingExecutor) {
+      this.transport = transport;
+      this.signingExecutor = signingExecutor;
+    }
+
+    public SignedWebhookDispatcher build() {
+      return new SignedWebhookDispatcher(this);
+    }
+
+    /**
+     * Metrics of the signatures.
+     *
+     * @param metrics metrics
+     * @return updated builder instance
+     */
+    public Builder metrics(@NonNull HttpSignatureMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Maximal number of deliveries in flight, across all events.
+     *
+     * @param maxConcurrency maximal number of concurrent requests
+     * @return updated builder instance
+     */
+    public Builder maxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Maximal number of attempts to deliver an event to a subscriber, including the first one.
+     *
+     * @param maxAttempts maximal number of attempts
+     * @return updated builder instance
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Delay before the first retry, doubled for every further retry.
+     *
+     * @param initialBackoff first retry delay
+     * @return updated builder instance
+     */
+    public Builder initialBackoff(Duration initialBackoff) {
+      this.initialBackoff = initialBackoff;
+      return this;
+    }
+  }
+}
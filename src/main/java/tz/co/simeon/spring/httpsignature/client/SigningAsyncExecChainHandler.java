@@ -0,0 +1,477 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.SignedChunkOutputStream;
+import tz.co.simeon.spring.httpsignature.SignedChunks;
+import tz.co.simeon.spring.httpsignature.Util;
+
+/**
+ * {@link AsyncExecChainHandler} signing Apache HttpClient 5 async requests.
+ * <p>
+ * Request entities are never buffered to be signed:
+ * <ul>
+ * <li>requests that do not sign a digest, or have no entity, are signed up front</li>
+ * <li>repeatable entities are digested in a single pre-pass through the producer, then signed up
+ * front and produced again to be sent</li>
+ * <li>non-repeatable (streamed) entities are signed up front and sent as {@link SignedChunks},
+ * each chunk signed as it is produced, which {@code HttpSignatureAuthenticationFilter} verifies as
+ * the body is read</li>
+ * </ul>
+ * <p>
+ * Streamed entities can instead be digested while they are produced and sent chunked with the
+ * {@code Digest} and {@code Signature} as trailers ({@link StreamedEntitySigning#TRAILERS}). The
+ * authentication filter of this library does not read trailers, use it only with receivers that
+ * do.
+ *
+ * <pre>
+ * HttpAsyncClients.custom()
+ *     .addExecInterceptorLast("http-signature", new SigningAsyncExecChainHandler(target))
+ *     .build();
+ * </pre>
+ */
+public final class SigningAsyncExecChainHandler implements AsyncExecChainHandler {
+  private static final int MAX_IDLE_PRODUCE_CALLS = 1024;
+
+  private final OutboundRequestSigner signer;
+  private final StreamedEntitySigning streamedEntitySigning;
+
+  public SigningAsyncExecChainHandler(OutboundTargetDefinition target) {
+    this(new OutboundRequestSigner(target));
+  }
+
+  public SigningAsyncExecChainHandler(OutboundRequestSigner signer) {
+    this(signer, StreamedEntitySigning.SIGNED_CHUNKS);
+  }
+
+  /**
+   * Create a handler.
+   *
+   * @param signer                signer of the target
+   * @param streamedEntitySigning how non-repeatable entities are signed
+   */
+  public SigningAsyncExecChainHandler(@NonNull OutboundRequestSigner signer,
+      @NonNull StreamedEntitySigning streamedEntitySigning) {
+    this.signer = signer;
+    this.streamedEntitySigning = streamedEntitySigning;
+  }
+
+  /**
+   * How non-repeatable (streamed) entities, whose digest is not known before they are sent, are
+   * signed.
+   */
+  public enum StreamedEntitySigning {
+    /**
+     * Sign the request headers up front and send the entity as {@link SignedChunks}. The entity
+     * must not have a content encoding of its own.
+     */
+    SIGNED_CHUNKS,
+    /**
+     * Send the {@code Digest} and {@code Signature} as trailers of a chunked entity.
+     */
+    TRAILERS
+  }
+
+  @Override
+  public void execute(HttpRequest request, AsyncEntityProducer entityProducer,
+      AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback)
+      throws HttpException, IOException {
+    URI uri = uri(request);
+    String method = request.getMethod();
+    Function<String, List<String>> headers = name -> values(request, name);
+
+    if (!signer.requiresDigest(method, headers)) {
+      addHeaders(request, signer.sign(method, uri, headers, (String) null));
+      chain.proceed(request, entityProducer, scope, asyncExecCallback);
+      return;
+    }
+
+    if (null == entityProducer) {
+      String digest = OutboundRequestSigner.digest(new byte[0]);
+      addHeaders(request, signer.sign(method, uri, headers, digest));
+      chain.proceed(request, null, scope, asyncExecCallback);
+      return;
+    }
+
+    if (entityProducer.isRepeatable()) {
+      String digest = digest(entityProducer);
+      addHeaders(request, signer.sign(method, uri, headers, digest));
+      chain.proceed(request, entityProducer, scope, asyncExecCallback);
+      return;
+    }
+
+    if (streamedEntitySigning == StreamedEntitySigning.TRAILERS) {
+      if (!request.containsHeader(HttpHeaders.DATE)) {
+        request.setHeader(HttpHeaders.DATE, OutboundRequestSigner.currentDate());
+      }
+      chain.proceed(request,
+          new TrailerSigningEntityProducer(entityProducer, method, uri, headers), scope,
+          asyncExecCallback);
+      return;
+    }
+
+    if (null != entityProducer.getContentEncoding()) {
+      throw new HttpSignatureException("Streamed entity with content encoding "
+          + entityProducer.getContentEncoding() + " cannot be sent as signed chunks");
+    }
+    Map<String, String> signedHeaders = signer.signChunked(method, uri, headers);
+    addHeaders(request, signedHeaders);
+    PendingOutput pending = new PendingOutput();
+    chain.proceed(request, new SignedChunksEntityProducer(entityProducer,
+        signer.chunkedBody(pending, signedHeaders), pending), scope, asyncExecCallback);
+  }
+
+  private static String digest(AsyncEntityProducer producer) throws IOException {
+    DigestingChannel channel = new DigestingChannel();
+    int idle = 0;
+    while (!channel.ended) {
+      long before = channel.length;
+      producer.produce(channel);
+      if (channel.length == before && !channel.ended && ++idle > MAX_IDLE_PRODUCE_CALLS) {
+        throw new HttpSignatureException(
+            "Repeatable entity producer does not produce data synchronously, cannot digest it");
+      }
+    }
+    producer.releaseResources();
+    return OutboundRequestSigner.digestHeaderValue(channel.digest.digest());
+  }
+
+  private static void addHeaders(HttpRequest request, Map<String, String> signatureHeaders) {
+    signatureHeaders.forEach(request::setHeader);
+  }
+
+  private static List<String> values(HttpRequest request, String name) {
+    Header[] headers = request.getHeaders(name);
+    if (headers.length == 0) {
+      return null;
+    }
+    return Arrays.stream(headers).map(Header::getValue).collect(Collectors.toList());
+  }
+
+  private static URI uri(HttpRequest request) throws HttpException {
+    try {
+      return request.getUri();
+    } catch (URISyntaxException e) {
+      throw new HttpException("Invalid request URI: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Channel consuming everything written to it into a digest.
+   */
+  private static final class DigestingChannel implements DataStreamChannel {
+    private final MessageDigest digest = Util.sha256();
+    private long length;
+    private boolean ended;
+
+    @Override
+    public void requestOutput() {
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      int written = src.remaining();
+      digest.update(src);
+      length += written;
+      return written;
+    }
+
+    @Override
+    public void endStream() {
+      ended = true;
+    }
+
+    @Override
+    public void endStream(List<? extends Header> trailers) {
+      ended = true;
+    }
+  }
+
+  /**
+   * Encoded bytes not yet accepted by the connection.
+   */
+  private static final class PendingOutput extends ByteArrayOutputStream {
+    private int position;
+
+    private int remaining() {
+      return count - position;
+    }
+
+    /**
+     * Write as much as the channel accepts.
+     *
+     * @return {@code true} if nothing is left pending
+     */
+    private boolean drainTo(DataStreamChannel channel) throws IOException {
+      if (position < count) {
+        position += channel.write(ByteBuffer.wrap(buf, position, count - position));
+      }
+      if (position < count) {
+        return false;
+      }
+      reset();
+      position = 0;
+      return true;
+    }
+  }
+
+  /**
+   * Encodes the entity as signed chunks as it is produced. The encoded bytes are held only until
+   * the connection accepts them, the entity is not asked for more data while any are pending.
+   */
+  private static final class SignedChunksEntityProducer implements AsyncEntityProducer {
+    private final AsyncEntityProducer delegate;
+    private final SignedChunkOutputStream chunks;
+    private final PendingOutput pending;
+    private List<? extends Header> trailers;
+    private boolean ended;
+    private boolean completed;
+
+    private SignedChunksEntityProducer(AsyncEntityProducer delegate,
+        SignedChunkOutputStream chunks, PendingOutput pending) {
+      this.delegate = delegate;
+      this.chunks = chunks;
+      this.pending = pending;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      delegate.failed(cause);
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public String getContentType() {
+      return delegate.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return SignedChunks.CONTENT_ENCODING;
+    }
+
+    @Override
+    public boolean isChunked() {
+      return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+      return delegate.getTrailerNames();
+    }
+
+    @Override
+    public int available() {
+      if (ended) {
+        return completed ? 0 : Math.max(1, pending.remaining());
+      }
+      return pending.remaining() + delegate.available();
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+      if (!pending.drainTo(channel)) {
+        return;
+      }
+      if (ended) {
+        complete(channel);
+        return;
+      }
+      delegate.produce(new DataStreamChannel() {
+        @Override
+        public void requestOutput() {
+          channel.requestOutput();
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+          if (!pending.drainTo(channel)) {
+            return 0;
+          }
+          int count = src.remaining();
+          if (src.hasArray()) {
+            chunks.write(src.array(), src.arrayOffset() + src.position(), count);
+            src.position(src.limit());
+          } else {
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            chunks.write(bytes);
+          }
+          pending.drainTo(channel);
+          return count;
+        }
+
+        @Override
+        public void endStream() throws IOException {
+          endStream(null);
+        }
+
+        @Override
+        public void endStream(List<? extends Header> delegateTrailers) throws IOException {
+          chunks.close();
+          ended = true;
+          trailers = delegateTrailers;
+          if (pending.drainTo(channel)) {
+            complete(channel);
+          } else {
+            channel.requestOutput();
+          }
+        }
+      });
+    }
+
+    private void complete(DataStreamChannel channel) throws IOException {
+      if (!completed) {
+        completed = true;
+        channel.endStream(trailers);
+      }
+    }
+
+    @Override
+    public void releaseResources() {
+      delegate.releaseResources();
+    }
+  }
+
+  /**
+   * Digests the entity as it is written to the connection and ends the stream with the digest and
+   * signature trailers.
+   */
+  private final class TrailerSigningEntityProducer implements AsyncEntityProducer {
+    private final AsyncEntityProducer delegate;
+    private final String method;
+    private final URI uri;
+    private final Function<String, List<String>> headers;
+    private final MessageDigest digest = Util.sha256();
+
+    private TrailerSigningEntityProducer(AsyncEntityProducer delegate, String method, URI uri,
+        Function<String, List<String>> headers) {
+      this.delegate = delegate;
+      this.method = method;
+      this.uri = uri;
+      this.headers = headers;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      delegate.failed(cause);
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public String getContentType() {
+      return delegate.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return delegate.getContentEncoding();
+    }
+
+    @Override
+    public boolean isChunked() {
+      return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+      Set<String> names = new LinkedHashSet<>();
+      if (null != delegate.getTrailerNames()) {
+        names.addAll(delegate.getTrailerNames());
+      }
+      names.add("Digest");
+      names.add("Signature");
+      return names;
+    }
+
+    @Override
+    public int available() {
+      return delegate.available();
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+      delegate.produce(new DataStreamChannel() {
+        @Override
+        public void requestOutput() {
+          channel.requestOutput();
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+          ByteBuffer written = src.duplicate();
+          int count = channel.write(src);
+          written.limit(written.position() + count);
+          digest.update(written);
+          return count;
+        }
+
+        @Override
+        public void endStream() throws IOException {
+          endStream(null);
+        }
+
+        @Override
+        public void endStream(List<? extends Header> trailers) throws IOException {
+          List<Header> all = new ArrayList<>();
+          if (null != trailers) {
+            all.addAll(trailers);
+          }
+          String value = OutboundRequestSigner.digestHeaderValue(digest.digest());
+          signer.signTrailers(method, uri, headers, value)
+              .forEach((name, trailer) -> all.add(new BasicHeader(name, trailer)));
+          channel.endStream(all);
+        }
+      });
+    }
+
+    @Override
+    public void releaseResources() {
+      delegate.releaseResources();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.io.IOException;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+
+/**
+ * {@link ClientHttpRequestInterceptor} signing {@code RestTemplate} requests of any method.
+ * <p>
+ * The digest is computed over the body bytes exactly as {@code RestTemplate} serialized them, so
+ * the body is serialized and digested once per call.
+ *
+ * <pre>
+ * restTemplate.getInterceptors().add(new SigningClientHttpRequestInterceptor(target));
+ * </pre>
+ */
+@RequiredArgsConstructor
+public final class SigningClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+  @NonNull
+  private final OutboundRequestSigner signer;
+
+  public SigningClientHttpRequestInterceptor(OutboundTargetDefinition target) {
+    this(new OutboundRequestSigner(target));
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+      ClientHttpRequestExecution execution) throws IOException {
+    HttpHeaders headers = request.getHeaders();
+
+    Map<String, String> signatureHeaders =
+        signer.sign(request.getMethodValue(), request.getURI(), headers::get, body);
+    signatureHeaders.forEach(headers::set);
+
+    return execution.execute(request, body);
+  }
+}
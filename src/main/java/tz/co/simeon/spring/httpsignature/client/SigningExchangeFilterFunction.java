@@ -0,0 +1,154 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.Util;
+
+/**
+ * {@link ExchangeFilterFunction} signing {@code WebClient} requests.
+ * <p>
+ * The body is digested buffer by buffer as the encoder produces {@link DataBuffer}s. As the
+ * signature headers must be sent before the body, the encoded buffers are held (not copied or
+ * joined) until the last one is digested, then the request is signed and the same buffers are
+ * written. Requests that do not sign a digest are not held at all.
+ * <p>
+ * Holding the buffers keeps the whole encoded body in memory until it is signed, so it is capped
+ * at {@link #DEFAULT_MAX_BUFFERED_BYTES} (or the limit given to the constructor): a larger body
+ * fails the request with a {@link DataBufferLimitException} before anything is sent. Send larger
+ * bodies as {@link tz.co.simeon.spring.httpsignature.SignedChunks}, which are signed as they are
+ * written.
+ * <p>
+ * Signing runs on the given {@link Scheduler} (by default {@link Schedulers#boundedElastic()}),
+ * never on the event loop.
+ *
+ * <pre>
+ * WebClient.builder().filter(new SigningExchangeFilterFunction(target)).build();
+ * </pre>
+ */
+public final class SigningExchangeFilterFunction implements ExchangeFilterFunction {
+  /**
+   * Default limit on the body bytes held until the body is digested, the same as the default
+   * in-memory limit of Spring codecs.
+   */
+  public static final int DEFAULT_MAX_BUFFERED_BYTES = 256 * 1024;
+
+  private final OutboundRequestSigner signer;
+  private final Scheduler scheduler;
+  private final int maxBufferedBytes;
+
+  public SigningExchangeFilterFunction(OutboundTargetDefinition target) {
+    this(new OutboundRequestSigner(target), Schedulers.boundedElastic());
+  }
+
+  public SigningExchangeFilterFunction(OutboundRequestSigner signer, Scheduler scheduler) {
+    this(signer, scheduler, DEFAULT_MAX_BUFFERED_BYTES);
+  }
+
+  /**
+   * Create a filter function.
+   *
+   * @param signer           signer of the target
+   * @param scheduler        scheduler to sign on
+   * @param maxBufferedBytes limit on the body bytes held until the body is digested
+   */
+  public SigningExchangeFilterFunction(@NonNull OutboundRequestSigner signer,
+      @NonNull Scheduler scheduler, int maxBufferedBytes) {
+    if (maxBufferedBytes < 0) {
+      throw new IllegalArgumentException("maxBufferedBytes must not be negative");
+    }
+    this.signer = signer;
+    this.scheduler = scheduler;
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    ClientRequest signed = ClientRequest.from(request)
+        .body((outputMessage, context) -> request.body()
+            .insert(new SigningClientHttpRequest(outputMessage), context))
+        .build();
+    return next.exchange(signed);
+  }
+
+  private final class SigningClientHttpRequest extends ClientHttpRequestDecorator {
+
+    private SigningClientHttpRequest(ClientHttpRequest delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      if (!signer.requiresDigest(getMethod().name(), getHeaders()::get)) {
+        return sign(null).then(Mono.defer(() -> super.writeWith(body)));
+      }
+
+      MessageDigest digest = Util.sha256();
+      long[] buffered = new long[1];
+      return Flux.from(body)
+          .doOnNext(buffer -> {
+            buffered[0] += buffer.readableByteCount();
+            if (buffered[0] > maxBufferedBytes) {
+              DataBufferUtils.release(buffer);
+              throw new DataBufferLimitException(
+                  "Exceeded limit on max bytes to buffer for signing: " + maxBufferedBytes);
+            }
+            digest.update(buffer.asByteBuffer());
+          })
+          .collectList()
+          .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+          .flatMap(buffers -> sign(OutboundRequestSigner.digestHeaderValue(digest.digest()))
+              .doOnError(e -> release(buffers))
+              .then(Mono.defer(() -> super.writeWith(Flux.fromIterable(buffers)))));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+      return writeWith(Flux.from(body).concatMap(publisher -> Flux.<DataBuffer>from(publisher)));
+    }
+
+    @Override
+    public Mono<Void> setComplete() {
+      String digest = signer.requiresDigest(getMethod().name(), getHeaders()::get)
+          ? OutboundRequestSigner.digest(new byte[0])
+          : null;
+      return sign(digest).then(Mono.defer(super::setComplete));
+    }
+
+    private Mono<Void> sign(String digest) {
+      String method = getMethod().name();
+      URI uri = getURI();
+      return Mono.fromCallable(() -> signer.sign(method, uri, getHeaders()::get, digest))
+          .subscribeOn(scheduler)
+          .doOnNext(this::addHeaders)
+          .then();
+    }
+
+    private void addHeaders(Map<String, String> signatureHeaders) {
+      signatureHeaders.forEach(getHeaders()::set);
+    }
+  }
+
+  private static void release(List<? extends DataBuffer> buffers) {
+    buffers.forEach(DataBufferUtils::release);
+  }
+
+}
@@ -0,0 +1,125 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import lombok.NonNull;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.ResponseSignatureVerifier;
+
+/**
+ * {@link AsyncResponseConsumer} verifying the signature of Apache HttpClient 5 async responses.
+ * <p>
+ * The body is digested as it is passed to the delegate consumer, and the signature is looked up
+ * in the response headers, then in the trailers, so responses streamed with trailer signatures
+ * are verified without being buffered. A response that fails verification completes the result
+ * callback with an {@link HttpSignatureException} instead of its result.
+ *
+ * <pre>
+ * client.execute(SimpleRequestProducer.create(request),
+ *     new VerifyingAsyncResponseConsumer&lt;&gt;(SimpleResponseConsumer.create(), verifier),
+ *     callback);
+ * </pre>
+ *
+ * @param <T> type of the result of the delegate consumer
+ */
+public final class VerifyingAsyncResponseConsumer<T> implements AsyncResponseConsumer<T> {
+  private final AsyncResponseConsumer<T> delegate;
+  private final ResponseSignatureVerifier verifier;
+  private final List<Header> fields = new ArrayList<>();
+
+  private ResponseSignatureVerifier.Verification verification;
+
+  public VerifyingAsyncResponseConsumer(@NonNull AsyncResponseConsumer<T> delegate,
+      @NonNull ResponseSignatureVerifier verifier) {
+    this.delegate = delegate;
+    this.verifier = verifier;
+  }
+
+  @Override
+  public void consumeResponse(HttpResponse response, EntityDetails entityDetails,
+      HttpContext context, FutureCallback<T> resultCallback) throws HttpException, IOException {
+    verification = verifier.begin();
+    fields.clear();
+    for (Header header : response.getHeaders()) {
+      fields.add(header);
+    }
+
+    delegate.consumeResponse(response, entityDetails, context, new FutureCallback<T>() {
+      @Override
+      public void completed(T result) {
+        Optional<String> error = verification.verify(VerifyingAsyncResponseConsumer.this::field);
+        if (error.isPresent()) {
+          resultCallback.failed(new HttpSignatureException(error.get()));
+        } else {
+          resultCallback.completed(result);
+        }
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        resultCallback.failed(ex);
+      }
+
+      @Override
+      public void cancelled() {
+        resultCallback.cancelled();
+      }
+    });
+  }
+
+  @Override
+  public void informationResponse(HttpResponse response, HttpContext context)
+      throws HttpException, IOException {
+    delegate.informationResponse(response, context);
+  }
+
+  @Override
+  public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+    delegate.updateCapacity(capacityChannel);
+  }
+
+  @Override
+  public void consume(ByteBuffer src) throws IOException {
+    verification.update(src.duplicate());
+    delegate.consume(src);
+  }
+
+  @Override
+  public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+    if (null != trailers) {
+      fields.addAll(trailers);
+    }
+    delegate.streamEnd(trailers);
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    delegate.failed(cause);
+  }
+
+  @Override
+  public void releaseResources() {
+    delegate.releaseResources();
+  }
+
+  private String field(String name) {
+    List<String> values = new ArrayList<>();
+    for (Header field : fields) {
+      if (field.getName().equalsIgnoreCase(name)) {
+        values.add(field.getValue());
+      }
+    }
+    return values.isEmpty() ? null : String.join(", ", values);
+  }
+}
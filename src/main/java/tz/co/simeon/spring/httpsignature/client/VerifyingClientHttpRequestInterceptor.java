@@ -0,0 +1,174 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.ResponseSignatureVerifier;
+import tz.co.simeon.spring.httpsignature.pki.PublicKeyService;
+
+/**
+ * {@link ClientHttpRequestInterceptor} verifying the signature of {@code RestTemplate} responses.
+ * <p>
+ * The body is digested as the message converter reads it, and the {@code Signature} and
+ * {@code Digest} headers are verified when the end of the body is reached, so the body is never
+ * buffered for verification. If the converter closes the body before its end, the rest is read
+ * and digested first. A response whose body is not read at all is read and verified when the
+ * response is closed, so no response is accepted unverified. A response that fails verification
+ * throws an {@link HttpSignatureException} from the read or close of the body, or from the close
+ * of the response.
+ *
+ * <pre>
+ * restTemplate.getInterceptors().add(new VerifyingClientHttpRequestInterceptor(publicKeyService));
+ * </pre>
+ */
+@RequiredArgsConstructor
+public final class VerifyingClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+  @NonNull
+  private final ResponseSignatureVerifier verifier;
+
+  public VerifyingClientHttpRequestInterceptor(PublicKeyService publicKeyService) {
+    this(new ResponseSignatureVerifier(publicKeyService));
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+      ClientHttpRequestExecution execution) throws IOException {
+    return new VerifyingClientHttpResponse(execution.execute(request, body));
+  }
+
+  private final class VerifyingClientHttpResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private InputStream body;
+
+    private VerifyingClientHttpResponse(ClientHttpResponse delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (null == body) {
+        body = new VerifyingInputStream(delegate.getBody(), delegate.getHeaders());
+      }
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+      return delegate.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    /**
+     * Read the rest of the body and verify the response, then close it.
+     *
+     * @throws HttpSignatureException if the response fails verification or its body cannot be read
+     */
+    @Override
+    public void close() {
+      try {
+        getBody().close();
+      } catch (IOException e) {
+        throw new HttpSignatureException("Response body cannot be read to verify it", e);
+      } finally {
+        delegate.close();
+      }
+    }
+  }
+
+  private final class VerifyingInputStream extends FilterInputStream {
+    private final ResponseSignatureVerifier.Verification verification = verifier.begin();
+    private final HttpHeaders headers;
+    private final byte[] single = new byte[1];
+    private boolean verified;
+
+    private VerifyingInputStream(InputStream in, HttpHeaders headers) {
+      super(in);
+      this.headers = headers;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        verify();
+      } else {
+        single[0] = (byte) b;
+        verification.update(single, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read == -1) {
+        verify();
+      } else {
+        verification.update(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes must still be digested
+      byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (!verified) {
+          byte[] buffer = new byte[8192];
+          while (read(buffer, 0, buffer.length) != -1) {
+            // digest the rest of the body
+          }
+        }
+      } finally {
+        super.close();
+      }
+    }
+
+    private void verify() {
+      if (verified) {
+        return;
+      }
+      verified = true;
+      Optional<String> error = verification.verify(headers::getFirst);
+      if (error.isPresent()) {
+        throw new HttpSignatureException(error.get());
+      }
+    }
+  }
+}
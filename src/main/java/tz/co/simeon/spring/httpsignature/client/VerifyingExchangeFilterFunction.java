@@ -0,0 +1,67 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.ResponseSignatureVerifier;
+import tz.co.simeon.spring.httpsignature.pki.PublicKeyService;
+
+/**
+ * {@link ExchangeFilterFunction} verifying the signature of {@code WebClient} responses.
+ * <p>
+ * Each {@link DataBuffer} of the body is digested as the application consumes it, and the
+ * {@code Signature} and {@code Digest} headers are verified once the body ends, so the body is
+ * never buffered for verification. A response that fails verification signals an
+ * {@link HttpSignatureException} at the end of its body. Only responses whose body is consumed
+ * are verified.
+ * <p>
+ * Verification runs on the given {@link Scheduler} (by default
+ * {@link Schedulers#boundedElastic()}), never on the event loop.
+ *
+ * <pre>
+ * WebClient.builder().filter(new VerifyingExchangeFilterFunction(publicKeyService)).build();
+ * </pre>
+ */
+public final class VerifyingExchangeFilterFunction implements ExchangeFilterFunction {
+  private final ResponseSignatureVerifier verifier;
+  private final Scheduler scheduler;
+
+  public VerifyingExchangeFilterFunction(PublicKeyService publicKeyService) {
+    this(new ResponseSignatureVerifier(publicKeyService), Schedulers.boundedElastic());
+  }
+
+  public VerifyingExchangeFilterFunction(@NonNull ResponseSignatureVerifier verifier,
+      @NonNull Scheduler scheduler) {
+    this.verifier = verifier;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    return next.exchange(request).map(this::verifying);
+  }
+
+  private ClientResponse verifying(ClientResponse response) {
+    HttpHeaders headers = response.headers().asHttpHeaders();
+    Flux<DataBuffer> body = Flux.defer(() -> {
+      ResponseSignatureVerifier.Verification verification = verifier.begin();
+      return response.bodyToFlux(DataBuffer.class)
+          .doOnNext(buffer -> verification.update(buffer.asByteBuffer()))
+          .concatWith(Mono.fromCallable(() -> verification.verify(headers::getFirst))
+              .subscribeOn(scheduler)
+              .flatMap(error -> error.isPresent()
+                  ? Mono.error(new HttpSignatureException(error.get()))
+                  : Mono.empty()));
+    });
+    return ClientResponse.from(response).body(body).build();
+  }
+}
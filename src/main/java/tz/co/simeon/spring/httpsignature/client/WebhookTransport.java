@@ -0,0 +1,26 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking HTTP client used by {@link SignedWebhookDispatcher} to POST a signed payload.
+ * <p>
+ * Implementations adapt the client of the application (WebClient, Apache HttpClient 5 async,
+ * {@code java.net.http}, ...) and must not block the calling thread.
+ */
+@FunctionalInterface
+public interface WebhookTransport {
+
+  /**
+   * Send a POST request.
+   *
+   * @param uri     subscriber URI
+   * @param headers request headers, including the signature headers
+   * @param body    request body, shared between subscribers, must not be modified
+   * @return future completed with the response status, or exceptionally if no response was
+   *         received
+   */
+  CompletableFuture<Integer> post(URI uri, Map<String, String> headers, byte[] body);
+}
@@ -0,0 +1,35 @@
+package tz.co.simeon.spring.httpsignature.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Authentication of an HTTP signature by the authentication provider.
+ */
+@Name("tz.co.simeon.spring.httpsignature.Authentication")
+@Label("HTTP Signature Authentication")
+@Category("HTTP Signature")
+@Description("Key lookup and verification of an HTTP signature")
+public final class HttpSignatureAuthenticationEvent extends Event {
+
+  @Label("Key Id")
+  public String keyId;
+
+  @Label("Algorithm")
+  public String algorithm;
+
+  @Label("Key Lookup Duration")
+  @Timespan
+  public long keyLookupDuration;
+
+  @Label("Verify Duration")
+  @Timespan
+  public long verifyDuration;
+
+  @Label("Outcome")
+  public String outcome;
+}
@@ -0,0 +1,45 @@
+package tz.co.simeon.spring.httpsignature.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Processing of a single request by the HTTP signature authentication filter.
+ */
+@Name("tz.co.simeon.spring.httpsignature.Filter")
+@Label("HTTP Signature Filter")
+@Category("HTTP Signature")
+@Description("Resolution, body buffering and authentication of an HTTP signature")
+public final class HttpSignatureFilterEvent extends Event {
+
+  @Label("Key Id")
+  public String keyId;
+
+  @Label("Algorithm")
+  public String algorithm;
+
+  @Label("Body Size")
+  @DataAmount
+  public long bodySize;
+
+  @Label("Header Parse Duration")
+  @Timespan
+  public long headerParseDuration;
+
+  @Label("Signing String Duration")
+  @Description("Body buffering, digest and canonicalization")
+  @Timespan
+  public long signingStringDuration;
+
+  @Label("Authentication Duration")
+  @Timespan
+  public long authenticationDuration;
+
+  @Label("Outcome")
+  public String outcome;
+}
@@ -0,0 +1,27 @@
+package tz.co.simeon.spring.httpsignature.jfr;
+
+/**
+ * Availability of JDK Flight Recorder.
+ * <p>
+ * The events of this package extend {@code jdk.jfr.Event}, which Java 8 runtimes before 8u262 and
+ * JDKs built without JFR do not have. Callers only create events when {@link #AVAILABLE}, so
+ * these classes are never loaded on such runtimes.
+ */
+public final class JfrSupport {
+  /**
+   * Whether {@code jdk.jfr.Event} can be loaded.
+   */
+  public static final boolean AVAILABLE = isAvailable();
+
+  private JfrSupport() {
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package tz.co.simeon.spring.httpsignature.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Buffering of a request body so that it can be digested and read again by the application.
+ */
+@Name("tz.co.simeon.spring.httpsignature.RequestBodyBuffer")
+@Label("HTTP Signature Request Body Buffer")
+@Category("HTTP Signature")
+@Description("Reading a request body into memory")
+public final class RequestBodyBufferEvent extends Event {
+
+  @Label("Body Size")
+  @DataAmount
+  public long bodySize;
+}
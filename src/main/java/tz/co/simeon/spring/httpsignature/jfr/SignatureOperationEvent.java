@@ -0,0 +1,33 @@
+package tz.co.simeon.spring.httpsignature.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A public key operation of a signer or verifier.
+ */
+@Name("tz.co.simeon.spring.httpsignature.SignatureOperation")
+@Label("HTTP Signature Operation")
+@Category("HTTP Signature")
+@Description("Signing or verification of a signing string")
+public final class SignatureOperationEvent extends Event {
+  public static final String SIGN = "sign";
+  public static final String VERIFY = "verify";
+
+  @Label("Operation")
+  public String operation;
+
+  @Label("Algorithm")
+  public String algorithm;
+
+  @Label("Data Size")
+  @DataAmount
+  public long dataSize;
+
+  @Label("Outcome")
+  public String outcome;
+}
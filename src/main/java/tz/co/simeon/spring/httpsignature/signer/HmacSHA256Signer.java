@@ -0,0 +1,60 @@
+package tz.co.simeon.spring.httpsignature.signer;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.jfr.SignatureOperationEvent;
+
+public class HmacSHA256Signer implements Signer {
+
+  private static Algorithm ALGO = Algorithm.HMAC_SHA256;
+
+  private final SecretKeySpec secret;
+
+  /**
+   * Initialized MAC instances, one per thread. A {@link Mac} is reset by {@link Mac#doFinal()}, so
+   * provider lookup and key initialization run once per thread, as long as the signer is
+   * reused for the secret (see {@link tz.co.simeon.spring.httpsignature.SignatureService}).
+   */
+  private final ThreadLocal<Mac> macs;
+
+  public HmacSHA256Signer(byte[] sharedSecret) {
+    this.secret = new SecretKeySpec(sharedSecret, ALGO.getPortableName());
+    this.macs = ThreadLocal.withInitial(this::newMac);
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(ALGO.getPortableName());
+      mac.init(secret);
+      return mac;
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
+
+  public byte[] sign(byte[] bytesToSign) {
+    SignatureOperationEvent event = JfrSupport.AVAILABLE ? new SignatureOperationEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    try {
+      return macs.get().doFinal(bytesToSign);
+    } finally {
+      if (null != event) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.operation = SignatureOperationEvent.SIGN;
+          event.algorithm = ALGO.getJmvName();
+          event.dataSize = bytesToSign.length;
+          event.outcome = "success";
+          event.commit();
+        }
+      }
+    }
+  }
+}
@@ -11,6 +11,8 @@ import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PSSParameterSpec;
 import tz.co.simeon.spring.httpsignature.Algorithm;
 import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.jfr.SignatureOperationEvent;
 
 public class SHA256PSSSigner implements Signer {
 
@@ -18,22 +20,58 @@ public class SHA256PSSSigner implements Signer {
 
   private PrivateKey keyConfig;
 
+  /**
+   * Initialized signature instances, one per thread. A {@link Signature} is reset by
+   * {@link Signature#sign()}, so provider lookup and key initialization run once per thread, as
+   * long as the signer is reused for the key (see
+   * {@link tz.co.simeon.spring.httpsignature.SignatureService}).
+   */
+  private final ThreadLocal<Signature> signatures;
+
   public SHA256PSSSigner(PrivateKey keyConfig) {
     this.keyConfig = keyConfig;
+    this.signatures = ThreadLocal.withInitial(this::newSignature);
   }
 
-  public byte[] sign(byte[] bytesToSign) {
+  private Signature newSignature() {
     try {
       Signature signature = Signature.getInstance(ALGO.getPortableName(), "BC");
       signature
           .setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
       signature.initSign(keyConfig);
+      return signature;
+    } catch (NoSuchAlgorithmException | InvalidKeyException | NoSuchProviderException
+        | InvalidAlgorithmParameterException e) {
+      throw new HttpSignatureException(e);
+    }
+  }
 
+  public byte[] sign(byte[] bytesToSign) {
+    SignatureOperationEvent event = JfrSupport.AVAILABLE ? new SignatureOperationEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    String outcome = "failure";
+    try {
+      Signature signature = signatures.get();
       signature.update(bytesToSign);
-      return signature.sign();
-    } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException
-        | NoSuchProviderException | InvalidAlgorithmParameterException e) {
+      byte[] signed = signature.sign();
+      outcome = "success";
+      return signed;
+    } catch (SignatureException e) {
+      signatures.remove();
       throw new HttpSignatureException(e);
+    } finally {
+      if (null != event) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.operation = SignatureOperationEvent.SIGN;
+          event.algorithm = ALGO.getJmvName();
+          event.dataSize = bytesToSign.length;
+          event.outcome = outcome;
+          event.commit();
+        }
+      }
     }
   }
 }
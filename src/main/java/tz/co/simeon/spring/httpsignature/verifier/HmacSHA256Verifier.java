@@ -0,0 +1,29 @@
+package tz.co.simeon.spring.httpsignature.verifier;
+
+import java.security.MessageDigest;
+import java.util.Optional;
+import tz.co.simeon.spring.httpsignature.HttpSignatureError;
+import tz.co.simeon.spring.httpsignature.signer.HmacSHA256Signer;
+
+/**
+ * Verifies HMAC-SHA256 signatures by recomputing them with the shared secret, comparing in constant
+ * time. Obtain one from {@code SignatureService.verifier(algorithm, signature, sharedSecret)}, which
+ * reuses the pooled signer of the secret.
+ */
+public class HmacSHA256Verifier implements Verifier {
+
+  private final byte[] signatureBytes;
+  private final HmacSHA256Signer signer;
+
+  public HmacSHA256Verifier(byte[] signatureBytes, HmacSHA256Signer signer) {
+    this.signatureBytes = signatureBytes;
+    this.signer = signer;
+  }
+
+  public Optional<HttpSignatureError> verify(byte[] signedBytes) {
+    if (!MessageDigest.isEqual(signer.sign(signedBytes), signatureBytes)) {
+      return Optional.of(HttpSignatureError.INVALID_SIGNATURE);
+    }
+    return Optional.empty();
+  }
+}
@@ -10,10 +10,17 @@ import java.security.SignatureException;
 import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PSSParameterSpec;
 import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureError;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.jfr.SignatureOperationEvent;
 
 public class SHA256PSSVerifier implements Verifier {
 
+  private static final Logger LOGGER = Logger.getLogger(SHA256PSSVerifier.class.getName());
+
   private static Algorithm ALGO = Algorithm.RSA_SHA256_PSS;
   private byte[] signatureBytes;
   private PublicKey keyConfig;
@@ -23,7 +30,12 @@ public class SHA256PSSVerifier implements Verifier {
     this.keyConfig = keyConfig;
   }
 
-  public Optional<String> verify(byte[] signedBytes) {
+  public Optional<HttpSignatureError> verify(byte[] signedBytes) {
+    SignatureOperationEvent event = JfrSupport.AVAILABLE ? new SignatureOperationEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    String outcome = "failure";
     try {
       Signature signature = Signature.getInstance(ALGO.getPortableName(), "BC");
       signature
@@ -33,22 +45,39 @@ public class SHA256PSSVerifier implements Verifier {
 
       boolean verified = signature.verify(signatureBytes);
       if (!verified) {
-        return Optional.of("Signature is not valid");
+        return Optional.of(HttpSignatureError.INVALID_SIGNATURE);
       }
 
+      outcome = "success";
       return Optional.empty();
     } catch (NoSuchAlgorithmException e) {
-      return Optional.of("SHA256withRSA algorithm not found: " + e.getMessage());
+      LOGGER.log(Level.SEVERE, "SHA256withRSA algorithm not found", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
     } catch (InvalidKeyException e) {
-      return Optional.of("Invalid RSA key: " + e.getMessage());
+      LOGGER.log(Level.WARNING, "Configured RSA key cannot verify signatures", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
     } catch (SignatureException e) {
-      return Optional.of("SignatureException: " + e.getMessage());
+      // caused by the client, e.g. a signature of the wrong length
+      LOGGER.log(Level.FINE, "Signature cannot be verified", e);
+      return Optional.of(HttpSignatureError.INVALID_SIGNATURE);
     } catch (InvalidAlgorithmParameterException e) {
-      return Optional.of("Invalid algoritm: " + e.getMessage());
+      LOGGER.log(Level.SEVERE, "Invalid algorithm parameters", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
     } catch (NoSuchProviderException e) {
-      return Optional.of(
-          "Bouncy Castle provider not found: (http://www.bouncycastle.org/wiki/display/JA1/Provider+Installation):"
-              + e.getMessage());
+      LOGGER.log(Level.SEVERE, "Bouncy Castle provider not found: "
+          + "(http://www.bouncycastle.org/wiki/display/JA1/Provider+Installation)", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+    } finally {
+      if (null != event) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.operation = SignatureOperationEvent.VERIFY;
+          event.algorithm = ALGO.getJmvName();
+          event.dataSize = signedBytes.length;
+          event.outcome = outcome;
+          event.commit();
+        }
+      }
     }
   }
 
@@ -0,0 +1,76 @@
+package tz.co.simeon.spring.httpsignature.verifier;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureError;
+import tz.co.simeon.spring.httpsignature.jfr.JfrSupport;
+import tz.co.simeon.spring.httpsignature.jfr.SignatureOperationEvent;
+
+public class SHA256Verifier implements Verifier {
+
+  private static final Logger LOGGER = Logger.getLogger(SHA256Verifier.class.getName());
+
+  private static Algorithm ALGO = Algorithm.RSA_SHA256;
+  private byte[] signatureBytes;
+  private PublicKey keyConfig;
+
+  public SHA256Verifier(byte[] signatureBytes, PublicKey keyConfig) {
+    this.signatureBytes = signatureBytes;
+    this.keyConfig = keyConfig;
+  }
+
+  public Optional<HttpSignatureError> verify(byte[] signedBytes) {
+    SignatureOperationEvent event = JfrSupport.AVAILABLE ? new SignatureOperationEvent() : null;
+    if (null != event) {
+      event.begin();
+    }
+    String outcome = "failure";
+    try {
+      Signature signature = Signature.getInstance(ALGO.getPortableName(), "BC");
+      signature.initVerify(keyConfig);
+      signature.update(signedBytes);
+
+      boolean verified = signature.verify(signatureBytes);
+      if (!verified) {
+        return Optional.of(HttpSignatureError.INVALID_SIGNATURE);
+      }
+
+      outcome = "success";
+      return Optional.empty();
+    } catch (NoSuchAlgorithmException e) {
+      LOGGER.log(Level.SEVERE, "SHA256withRSA algorithm not found", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+    } catch (InvalidKeyException e) {
+      LOGGER.log(Level.WARNING, "Configured RSA key cannot verify signatures", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+    } catch (SignatureException e) {
+      // caused by the client, e.g. a signature of the wrong length
+      LOGGER.log(Level.FINE, "Signature cannot be verified", e);
+      return Optional.of(HttpSignatureError.INVALID_SIGNATURE);
+    } catch (NoSuchProviderException e) {
+      LOGGER.log(Level.SEVERE, "Bouncy Castle provider not found: "
+          + "(http://www.bouncycastle.org/wiki/display/JA1/Provider+Installation)", e);
+      return Optional.of(HttpSignatureError.VERIFICATION_ERROR);
+    } finally {
+      if (null != event) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.operation = SignatureOperationEvent.VERIFY;
+          event.algorithm = ALGO.getJmvName();
+          event.dataSize = signedBytes.length;
+          event.outcome = outcome;
+          event.commit();
+        }
+      }
+    }
+  }
+
+}
@@ -1,9 +1,10 @@
 package tz.co.simeon.spring.httpsignature.verifier;
 
 import java.util.Optional;
+import tz.co.simeon.spring.httpsignature.HttpSignatureError;
 
 public interface Verifier {
 
-  public Optional<String> verify(byte[] signedBytes);
+  public Optional<HttpSignatureError> verify(byte[] signedBytes);
 
 }
@@ -0,0 +1,105 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+  private static final long LATENCY = 1_000_000L;
+
+  @Test
+  void permitsAreShedOverTheLimit() {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(2)
+        .minLimit(1).build();
+    AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+    assertNotNull(first);
+    assertNotNull(limiter.tryAcquire());
+    assertNull(limiter.tryAcquire());
+
+    first.release();
+    first.release();
+    assertEquals(1, limiter.inFlight());
+    assertNotNull(limiter.tryAcquire());
+  }
+
+  @Test
+  void saturatedOnceAllPermitsAreHeld() {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(1)
+        .minLimit(1).build();
+    assertFalse(limiter.isSaturated());
+
+    AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+    assertTrue(limiter.isSaturated());
+    permit.release();
+    assertFalse(limiter.isSaturated());
+  }
+
+  @Test
+  void limitGrowsWhileLatencyIsStable() {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(20)
+        .build();
+    for (int i = 0; i < 50; i++) {
+      limiter.sample(LATENCY, limiter.limit());
+    }
+    assertTrue(limiter.limit() > 20, "limit " + limiter.limit());
+  }
+
+  @Test
+  void limitShrinksWhenLatencyGrows() {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(100)
+        .build();
+    limiter.sample(LATENCY, 100);
+    int before = limiter.limit();
+    for (int i = 0; i < 20; i++) {
+      limiter.sample(10 * LATENCY, limiter.limit());
+    }
+    assertTrue(limiter.limit() < before, "limit " + limiter.limit());
+    assertTrue(limiter.limit() >= 4);
+  }
+
+  @Test
+  void limitIgnoresSamplesWellUnderIt() {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(100)
+        .build();
+    limiter.sample(LATENCY, 1);
+    for (int i = 0; i < 20; i++) {
+      limiter.sample(10 * LATENCY, 1);
+    }
+    assertEquals(100, limiter.limit());
+  }
+
+  @Test
+  void concurrentSamplesKeepTheLimitInBounds() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(20)
+        .minLimit(4).maxLimit(50).build();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      long latency = (t % 2 == 0 ? 1 : 20) * LATENCY;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < 10_000; i++) {
+          limiter.sample(latency, limiter.limit());
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertTrue(limiter.limit() >= 4 && limiter.limit() <= 50, "limit " + limiter.limit());
+  }
+}
@@ -0,0 +1,80 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+class DigestingHttpServletResponseTest {
+  private static final byte[] BODY = "{\"id\":1,\"name\":\"held back\"}"
+      .getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  void heldBackBodyIsWrittenWithItsLength() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    DigestingHttpServletResponse wrapper = new DigestingHttpServletResponse(response);
+
+    wrapper.getOutputStream().write(BODY, 0, 10);
+    wrapper.getWriter().write(new String(BODY, 10, BODY.length - 10, StandardCharsets.UTF_8));
+    wrapper.flushBuffer();
+
+    assertFalse(response.isCommitted());
+    assertEquals(0, response.getContentAsByteArray().length);
+    assertEquals(OutboundRequestSigner.digest(BODY), wrapper.getDigest());
+    assertEquals(BODY.length, wrapper.getContentSize());
+
+    wrapper.copyBodyToResponse();
+
+    assertArrayEquals(BODY, response.getContentAsByteArray());
+    assertEquals(BODY.length, response.getContentLength());
+    assertTrue(response.isCommitted());
+  }
+
+  @Test
+  void streamedBodyIsDigestedAsWritten() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    DigestingHttpServletResponse wrapper = new DigestingHttpServletResponse(response, false);
+
+    wrapper.getOutputStream().write(BODY);
+
+    assertArrayEquals(BODY, response.getContentAsByteArray());
+    assertEquals(0, wrapper.getContentSize());
+    assertEquals(OutboundRequestSigner.digest(BODY), wrapper.getDigest());
+  }
+
+  @Test
+  void sendErrorBypassesHeldBackBody() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    DigestingHttpServletResponse wrapper = new DigestingHttpServletResponse(response);
+
+    wrapper.getOutputStream().write(BODY);
+    wrapper.sendError(500);
+
+    assertTrue(wrapper.isBypassed());
+    assertEquals(0, wrapper.getContentSize());
+    assertEquals(500, response.getStatus());
+  }
+
+  @Test
+  void gzipEncodedResponseIsDigestedAsSent() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    DigestingHttpServletResponse wrapper = new DigestingHttpServletResponse(response, true, true);
+
+    wrapper.getOutputStream().write(BODY);
+    String digest = wrapper.getDigest();
+    wrapper.copyBodyToResponse();
+
+    byte[] sent = response.getContentAsByteArray();
+    assertEquals("gzip", response.getHeader("Content-Encoding"));
+    assertEquals(OutboundRequestSigner.digest(sent), digest);
+    assertEquals(sent.length, response.getContentLength());
+    assertArrayEquals(BODY, StreamUtils.copyToByteArray(
+        new GZIPInputStream(new ByteArrayInputStream(sent))));
+  }
+}
@@ -0,0 +1,186 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class GatewayAttestationFilterTest {
+  private static final Clock NOW = Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"),
+      ZoneOffset.UTC);
+  private static final byte[] SECRET = "gateway-secret".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] BODY = "{\"amount\":10}".getBytes(StandardCharsets.UTF_8);
+  private static final String PARTNER_SIGNATURE = "keyId=\"partner\",algorithm=\"rsa-sha256\","
+      + "headers=\"(request-target) digest\",signature=\"c2lnbmF0dXJl\"";
+  private static final List<GrantedAuthority> AUTHORITIES = Arrays.asList(
+      new SimpleGrantedAuthority("ROLE_PAYER"), new SimpleGrantedAuthority("SCOPE_a,b;c"));
+
+  private final GatewayAttestation attestation = GatewayAttestation.builder(SECRET).clock(NOW)
+      .build();
+
+  private Authentication authenticated;
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void attestedRequestIsAuthenticated() throws Exception {
+    MockHttpServletResponse response = filter(request("POST", "/pay", "id=1", BODY,
+        attest("POST", "/pay?id=1", BODY)));
+
+    assertEquals(200, response.getStatus());
+    assertEquals("partner", authenticated.getName());
+    assertEquals(Algorithm.RSA_SHA256,
+        ((HttpSignatureAuthentication) authenticated).getPrincipal().getAlgorithm());
+    assertEquals(AUTHORITIES, new ArrayList<>(authenticated.getAuthorities()));
+  }
+
+  @Test
+  void clientWithoutAuthoritiesIsAuthenticated() throws Exception {
+    String header = attestation.attest("partner", Algorithm.HMAC_SHA256,
+        Collections.emptyList(), "GET", "/pay", OutboundRequestSigner.digest(new byte[0]));
+    MockHttpServletResponse response = filter(request("GET", "/pay", null, new byte[0],
+        header));
+
+    assertEquals(200, response.getStatus());
+    assertEquals(Algorithm.HMAC_SHA256,
+        ((HttpSignatureAuthentication) authenticated).getPrincipal().getAlgorithm());
+    assertTrue(authenticated.getAuthorities().isEmpty());
+  }
+
+  @Test
+  void alteredAuthoritiesAreRejected() throws Exception {
+    String header = attest("POST", "/pay?id=1", BODY).replace("auth=ROLE_PAYER",
+        "auth=ROLE_ADMIN");
+    assertRejected(request("POST", "/pay", "id=1", BODY, header));
+  }
+
+  @Test
+  void attestationOfAnotherMethodIsRejected() throws Exception {
+    assertRejected(request("PUT", "/pay", "id=1", BODY, attest("POST", "/pay?id=1", BODY)));
+  }
+
+  @Test
+  void attestationOfAnotherPathIsRejected() throws Exception {
+    assertRejected(request("POST", "/refund", "id=1", BODY, attest("POST", "/pay?id=1", BODY)));
+  }
+
+  @Test
+  void attestationOfAnotherQueryIsRejected() throws Exception {
+    assertRejected(request("POST", "/pay", "id=2", BODY, attest("POST", "/pay?id=1", BODY)));
+    assertRejected(request("POST", "/pay", null, BODY, attest("POST", "/pay?id=1", BODY)));
+  }
+
+  @Test
+  void attestationOfAnotherBodyIsRejected() throws Exception {
+    byte[] other = "{\"amount\":1000}".getBytes(StandardCharsets.UTF_8);
+    assertRejected(request("POST", "/pay", "id=1", other, attest("POST", "/pay?id=1", BODY)));
+  }
+
+  @Test
+  void expiredAttestationIsRejected() throws Exception {
+    String header = GatewayAttestation.builder(SECRET)
+        .clock(Clock.offset(NOW, Duration.ofMinutes(-1))).build()
+        .attest("partner", Algorithm.RSA_SHA256, AUTHORITIES, "POST", "/pay?id=1",
+            OutboundRequestSigner.digest(BODY));
+    assertRejected(request("POST", "/pay", "id=1", BODY, header));
+  }
+
+  @Test
+  void alteredAttestationIsRejected() throws Exception {
+    String header = attest("POST", "/pay?id=1", BODY).replace("target=%2Fpay%3Fid%3D1",
+        "target=%2Frefund%3Fid%3D1");
+    assertRejected(request("POST", "/refund", "id=1", BODY, header));
+  }
+
+  @Test
+  void attestedRequestIsNotVerifiedAgainBySignatureFilter() throws Exception {
+    MockHttpServletRequest request = request("POST", "/pay", "id=1", BODY,
+        attest("POST", "/pay?id=1", BODY));
+    // forwarded by the gateway along with the attestation
+    request.addHeader("Signature", PARTNER_SIGNATURE);
+    List<Authentication> verified = new ArrayList<>();
+
+    MockHttpServletResponse response = filterBoth(request, verified);
+
+    assertEquals(200, response.getStatus());
+    assertTrue(verified.isEmpty());
+    assertEquals(AUTHORITIES, new ArrayList<>(authenticated.getAuthorities()));
+  }
+
+  @Test
+  void requestWithoutAttestationIsVerifiedBySignatureFilter() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/pay");
+    request.setContent(BODY);
+    request.addHeader("Signature", PARTNER_SIGNATURE);
+    List<Authentication> verified = new ArrayList<>();
+
+    MockHttpServletResponse response = filterBoth(request, verified);
+
+    assertEquals(200, response.getStatus());
+    assertEquals(1, verified.size());
+    assertTrue(authenticated.getAuthorities().isEmpty());
+  }
+
+  private void assertRejected(MockHttpServletRequest request) throws Exception {
+    assertEquals(401, filter(request).getStatus());
+    assertNull(authenticated);
+  }
+
+  private String attest(String method, String target, byte[] body) {
+    return attestation.attest("partner", Algorithm.RSA_SHA256, AUTHORITIES, method, target,
+        OutboundRequestSigner.digest(body));
+  }
+
+  private static MockHttpServletRequest request(String method, String path, String query,
+      byte[] body, String header) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    request.setQueryString(query);
+    request.setContent(body);
+    request.addHeader(GatewayAttestation.DEFAULT_HEADER, header);
+    return request;
+  }
+
+  private MockHttpServletResponse filterBoth(MockHttpServletRequest request,
+      List<Authentication> verified) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    HttpSignatureAuthenticationFilter signatureFilter =
+        new HttpSignatureAuthenticationFilter(token -> {
+          verified.add(token);
+          return HttpSignatureAuthentication.verified("partner", Algorithm.RSA_SHA256,
+              Collections.emptyList());
+        });
+    FilterChain chain = (req, res) -> authenticated =
+        SecurityContextHolder.getContext().getAuthentication();
+    new GatewayAttestationFilter(attestation).doFilter(request, response,
+        (req, res) -> signatureFilter.doFilter(req, res, chain));
+    return response;
+  }
+
+  private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    FilterChain chain = (req, res) -> authenticated =
+        SecurityContextHolder.getContext().getAuthentication();
+    new GatewayAttestationFilter(attestation).doFilter(request, response, chain);
+    return response;
+  }
+}
@@ -0,0 +1,99 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.ServletInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class HttpSignatureAuthenticationFilterTest {
+  private static final String SIGNATURE = "keyId=\"partner\",algorithm=\"rsa-sha256\","
+      + "headers=\"(request-target) digest\",signature=\"c2lnbmF0dXJl\"";
+  private static final byte[] BODY = "{\"amount\":10}".getBytes(StandardCharsets.UTF_8);
+
+  private final List<Authentication> verified = new ArrayList<>();
+  private final HttpSignatureAuthenticationFilter filter =
+      new HttpSignatureAuthenticationFilter(token -> {
+        verified.add(token);
+        return HttpSignatureAuthentication.verified("partner", Algorithm.RSA_SHA256,
+            Collections.emptyList());
+      });
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void saturatedLimiterShedsBeforeBodyIsRead() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(1)
+        .minLimit(1).build();
+    AdaptiveConcurrencyLimiter.Permit busy = limiter.tryAcquire();
+    assertNotNull(busy);
+    filter.setConcurrencyLimiter(limiter);
+    BodyTrackingRequest request = request();
+
+    MockHttpServletResponse response = filter(request);
+
+    assertEquals(503, response.getStatus());
+    assertNotNull(response.getHeader("Retry-After"));
+    assertFalse(request.bodyRead);
+    assertTrue(verified.isEmpty());
+
+    busy.release();
+    assertEquals(200, filter(request()).getStatus());
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  void malformedBodiesCountAsFailures() throws Exception {
+    filter.setDecodeContent(true);
+    filter.setFailureLimiter(VerificationFailureLimiter.builder().burst(1).build());
+
+    MockHttpServletRequest malformed = request();
+    malformed.addHeader("Content-Encoding", "gzip");
+    assertEquals(400, filter(malformed).getStatus());
+
+    MockHttpServletResponse limited = filter(request());
+    assertEquals(429, limited.getStatus());
+    assertNotNull(limited.getHeader("Retry-After"));
+    assertTrue(verified.isEmpty());
+  }
+
+  private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, (req, res) -> req.getInputStream().close());
+    return response;
+  }
+
+  private static BodyTrackingRequest request() {
+    BodyTrackingRequest request = new BodyTrackingRequest();
+    request.setContent(BODY);
+    request.addHeader("Signature", SIGNATURE);
+    return request;
+  }
+
+  private static final class BodyTrackingRequest extends MockHttpServletRequest {
+    private boolean bodyRead;
+
+    private BodyTrackingRequest() {
+      super("POST", "/pay");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      bodyRead = true;
+      return super.getInputStream();
+    }
+  }
+}
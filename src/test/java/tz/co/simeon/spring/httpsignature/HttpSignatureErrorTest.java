@@ -0,0 +1,44 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class HttpSignatureErrorTest {
+
+  @Test
+  void exceptionIsSharedAndStackless() {
+    for (HttpSignatureError error : HttpSignatureError.values()) {
+      HttpSignatureAuthenticationException exception = error.exception();
+      assertSame(exception, error.exception());
+      assertSame(error, exception.getError());
+      assertEquals(error.getDescription(), exception.getMessage());
+      assertEquals(0, exception.getStackTrace().length);
+      assertSame(exception, exception.fillInStackTrace());
+      assertEquals(0, exception.getStackTrace().length);
+    }
+  }
+
+  @Test
+  void sharedExceptionCannotBeModified() {
+    HttpSignatureAuthenticationException exception =
+        HttpSignatureError.INVALID_SIGNATURE.exception();
+
+    assertThrows(IllegalStateException.class,
+        () -> exception.initCause(new IllegalArgumentException()));
+    assertNull(exception.getCause());
+
+    exception.setStackTrace(new Throwable().getStackTrace());
+    assertEquals(0, exception.getStackTrace().length);
+  }
+
+  @Test
+  void exceptionWithMessageKeepsItsStackTrace() {
+    HttpSignatureAuthenticationException exception =
+        new HttpSignatureAuthenticationException("Presigned URL has expired");
+    assertNull(exception.getError());
+    assertEquals(getClass().getName(), exception.getStackTrace()[0].getClassName());
+  }
+}
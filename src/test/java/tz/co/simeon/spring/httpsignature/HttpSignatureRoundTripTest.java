@@ -0,0 +1,170 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+/**
+ * Requests signed by {@link OutboundRequestSigner} are verified by the inbound side.
+ */
+class HttpSignatureRoundTripTest {
+  private static final String KEY_ID = "round-trip";
+  private static final URI URI = java.net.URI.create("https://api.example.com:8443/payments");
+  private static final byte[] BODY =
+      "{\"id\":1,\r\n\"name\":\"round trip\"}\n".getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  void verifiesDefaultHeadersInAuthorization() {
+    MockHttpServletRequest request = signed(HttpSignatureHeader.AUTHORIZATION,
+        SignedHeadersConfig.HeadersConfig.create(Arrays.asList(SignedHeadersConfig.REQUEST_TARGET,
+            "host", "date", "digest", "content-type")), BODY);
+
+    assertEquals(Optional.empty(), verify(request));
+  }
+
+  @Test
+  void verifiesCustomHeadersInSignature() {
+    MockHttpServletRequest request = signed(HttpSignatureHeader.SIGNATURE,
+        SignedHeadersConfig.HeadersConfig.create(Arrays.asList("date",
+            SignedHeadersConfig.REQUEST_TARGET, "host", "x-request-id", "digest",
+            "content-type")), BODY);
+
+    HttpSignature signature = new DefaultHttpSignatureResolver().resolve(request);
+    assertEquals(Arrays.asList("date", SignedHeadersConfig.REQUEST_TARGET, "host",
+        "x-request-id", "digest", "content-type"), signature.getHeaders());
+    assertEquals(Optional.empty(), verify(request));
+  }
+
+  @Test
+  void rejectsModifiedBody() {
+    MockHttpServletRequest request = signed(HttpSignatureHeader.AUTHORIZATION,
+        SignedHeadersConfig.HeadersConfig.create(Arrays.asList(SignedHeadersConfig.REQUEST_TARGET,
+            "host", "date", "digest", "content-type")), BODY);
+    // same lines, different line endings
+    request.setContent(new String(BODY, StandardCharsets.UTF_8).replace("\r\n", "\n")
+        .getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(Optional.of(HttpSignatureError.INVALID_SIGNATURE), verify(request));
+  }
+
+  @Test
+  void rejectsModifiedUnlistedHeader() {
+    MockHttpServletRequest request = signed(HttpSignatureHeader.SIGNATURE,
+        SignedHeadersConfig.HeadersConfig.create(Arrays.asList(SignedHeadersConfig.REQUEST_TARGET,
+            "host", "date", "x-request-id", "digest", "content-type")), BODY);
+    request.removeHeader("X-Request-Id");
+    request.addHeader("X-Request-Id", "other");
+
+    assertEquals(Optional.of(HttpSignatureError.INVALID_SIGNATURE), verify(request));
+  }
+
+  @Test
+  void headersParameterIsParsed() {
+    HttpSignature signature = HttpSignature.fromHeader("keyId=\"k\",algorithm=\"rsa-sha256\","
+        + "headers=\"(request-target) Host  date\",signature=\"c2ln\"");
+
+    assertEquals(Arrays.asList(SignedHeadersConfig.REQUEST_TARGET, "host", "date"),
+        signature.getHeaders());
+    assertFalse(signature.validate().isPresent());
+  }
+
+  @Test
+  void missingHeadersParameterUsesDefault() {
+    HttpSignature signature =
+        HttpSignature.fromHeader("keyId=\"k\",algorithm=\"rsa-sha256\",signature=\"c2ln\"");
+
+    assertTrue(signature.getHeaders().contains("digest"));
+    assertTrue(signature.getHeaders().contains(SignedHeadersConfig.REQUEST_TARGET));
+  }
+
+  private static MockHttpServletRequest signed(HttpSignatureHeader header,
+      SignedHeadersConfig.HeadersConfig headers, byte[] body) {
+    OutboundRequestSigner signer = new OutboundRequestSigner(new OutboundTargetDefinition(KEY_ID,
+        Algorithm.RSA_SHA256_PSS, keyConfig(), header, null,
+        SignedHeadersConfig.builder().defaultConfig(headers).build()));
+
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", URI.getRawPath());
+    request.addHeader("Host", "api.example.com:8443");
+    request.addHeader("Content-Type", "application/json");
+    request.addHeader("X-Request-Id", "6f1c");
+    request.setContent(body);
+
+    Function<String, List<String>> requestHeaders = name -> {
+      List<String> values = Collections.list(request.getHeaders(name));
+      return values.isEmpty() ? null : values;
+    };
+    for (Map.Entry<String, String> added : signer.sign("POST", URI, requestHeaders, body)
+        .entrySet()) {
+      request.addHeader(added.getKey(), added.getValue());
+    }
+    return request;
+  }
+
+  private static Optional<HttpSignatureError> verify(MockHttpServletRequest request) {
+    HttpSignature signature = new DefaultHttpSignatureResolver().resolve(request);
+    HttpSignatureAuthenticationToken token = new HttpSignatureAuthenticationToken(signature,
+        new ResettableStreamHttpServletRequest(request));
+    return signature.verify(token.getSignedBytes(), new Client(),
+        HttpSignatureAuthenticationProvider.DEFAULT_REQUIRED_HEADERS.headers("POST"));
+  }
+
+  private static KeyConfig keyConfig() {
+    return new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null,
+        Collections.emptyList(), Collections.emptyList());
+  }
+
+  private static final class Client implements InboundClientConfig {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String keyId() {
+      return KEY_ID;
+    }
+
+    @Override
+    public Algorithm algorithm() {
+      return Algorithm.RSA_SHA256_PSS;
+    }
+
+    @Override
+    public Optional<KeyConfig> keyConfig() {
+      return Optional.of(HttpSignatureRoundTripTest.keyConfig());
+    }
+
+    @Override
+    public Optional<byte[]> hmacSharedSecret() {
+      return Optional.empty();
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class PresignedUrlVerifierTest {
+  private static final Clock NOW = Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"),
+      ZoneOffset.UTC);
+  private static final byte[] SECRET = "presigned-secret".getBytes(StandardCharsets.UTF_8);
+  private static final URI URI = java.net.URI.create("https://files.example.com/a%20b?x=1&y=2");
+
+  private static KeyConfig keyConfig;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    keyConfig = new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null,
+        Collections.emptyList(), Collections.emptyList());
+  }
+
+  @Test
+  void hmacLinkIsVerified() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    assertEquals("hmac", verifier(Algorithm.HMAC_SHA256, NOW)
+        .verify("GET", link.getRawPath(), link.getRawQuery()).keyId());
+  }
+
+  @Test
+  void rsaLinksAreVerified() {
+    for (Algorithm algorithm : new Algorithm[] {Algorithm.RSA_SHA256, Algorithm.RSA_SHA256_PSS}) {
+      URI link = presign(algorithm, Duration.ofMinutes(15));
+      verifier(algorithm, NOW).verify("GET", link.getRawPath(), link.getRawQuery());
+    }
+  }
+
+  @Test
+  void queryParameterOrderIsNotSigned() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    String[] parameters = link.getRawQuery().split("&");
+    Collections.reverse(Arrays.asList(parameters));
+    verifier(Algorithm.HMAC_SHA256, NOW).verify("GET", link.getRawPath(),
+        String.join("&", parameters));
+  }
+
+  @Test
+  void methodPathAndQueryAreSigned() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    PresignedUrlVerifier verifier = verifier(Algorithm.HMAC_SHA256, NOW);
+    assertThrows(HttpSignatureAuthenticationException.class,
+        () -> verifier.verify("PUT", link.getRawPath(), link.getRawQuery()));
+    assertThrows(HttpSignatureAuthenticationException.class,
+        () -> verifier.verify("GET", "/a+b", link.getRawQuery()));
+    assertThrows(HttpSignatureAuthenticationException.class,
+        () -> verifier.verify("GET", link.getRawPath(), link.getRawQuery() + "&z=3"));
+    assertThrows(HttpSignatureAuthenticationException.class,
+        () -> verifier.verify("GET", link.getRawPath(),
+            link.getRawQuery().replace("x=1", "x=2")));
+  }
+
+  @Test
+  void expiredLinkIsRejected() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    Clock later = Clock.offset(NOW, Duration.ofMinutes(15));
+    assertThrows(HttpSignatureAuthenticationException.class, () -> verifier(
+        Algorithm.HMAC_SHA256, later).verify("GET", link.getRawPath(), link.getRawQuery()));
+  }
+
+  @Test
+  void linkValidForTooLongIsRejected() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofDays(8));
+    assertThrows(HttpSignatureAuthenticationException.class, () -> verifier(
+        Algorithm.HMAC_SHA256, NOW).verify("GET", link.getRawPath(), link.getRawQuery()));
+  }
+
+  @Test
+  void repeatedParametersAreRejected() {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    PresignedUrlVerifier verifier = verifier(Algorithm.HMAC_SHA256, NOW);
+    for (String repeated : new String[] {PresignedUrls.KEY_ID + "=hmac",
+        PresignedUrls.EXPIRES + "=1577836900", PresignedUrls.SIGNATURE + "=AAAA"}) {
+      assertThrows(HttpSignatureAuthenticationException.class, () -> verifier.verify("GET",
+          link.getRawPath(), link.getRawQuery() + "&" + repeated));
+      assertThrows(HttpSignatureAuthenticationException.class, () -> verifier.verify("GET",
+          link.getRawPath(), repeated + "&" + link.getRawQuery()));
+    }
+  }
+
+  @Test
+  void filterRejectsBadLinkWith401() throws Exception {
+    URI link = presign(Algorithm.HMAC_SHA256, Duration.ofMinutes(15));
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", link.getRawPath());
+    request.setQueryString(link.getRawQuery() + "&z=3");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    new PresignedUrlAuthenticationFilter(verifier(Algorithm.HMAC_SHA256, NOW))
+        .doFilter(request, response, new MockFilterChain());
+
+    assertEquals(401, response.getStatus());
+  }
+
+  private static URI presign(Algorithm algorithm, Duration validity) {
+    return new PresignedUrlSigner(new OutboundTargetDefinition(keyId(algorithm), algorithm,
+        keyConfig, HttpSignatureHeader.SIGNATURE, SECRET, SignedHeadersConfig.builder().build()),
+        NOW).presign("GET", URI, validity);
+  }
+
+  private static PresignedUrlVerifier verifier(Algorithm algorithm, Clock clock) {
+    return PresignedUrlVerifier.builder(keyId -> new Client(keyId, algorithm)).clock(clock)
+        .build();
+  }
+
+  private static String keyId(Algorithm algorithm) {
+    return algorithm == Algorithm.HMAC_SHA256 ? "hmac" : "rsa";
+  }
+
+  private static final class Client implements InboundClientConfig {
+    private static final long serialVersionUID = 1L;
+
+    private final String keyId;
+    private final Algorithm algorithm;
+
+    private Client(String keyId, Algorithm algorithm) {
+      this.keyId = keyId;
+      this.algorithm = algorithm;
+    }
+
+    @Override
+    public String keyId() {
+      return keyId;
+    }
+
+    @Override
+    public Algorithm algorithm() {
+      return algorithm;
+    }
+
+    @Override
+    public Optional<KeyConfig> keyConfig() {
+      return Optional.of(keyConfig);
+    }
+
+    @Override
+    public Optional<byte[]> hmacSharedSecret() {
+      return Optional.of(SECRET);
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+class ResettableStreamHttpServletRequestTest {
+  private static final HttpSignature SIGNATURE = HttpSignature.fromHeader(
+      "keyId=\"k\",algorithm=\"rsa-sha256\",headers=\"date digest\",signature=\"c2ln\"");
+  private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  void gzipBodyIsDigestedAsReceived() throws IOException {
+    byte[] gzipped = gzip(BODY);
+    MockHttpServletRequest request = gzipRequest(gzipped);
+
+    HttpSignatureAuthenticationToken token = new HttpSignatureAuthenticationToken(SIGNATURE,
+        new ResettableStreamHttpServletRequest(request, true));
+
+    assertEquals("date: Tue, 07 Jun 2014 20:51:35 GMT\ndigest: "
+        + OutboundRequestSigner.digest(gzipped),
+        new String(token.getSignedBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void decodedBodyHidesContentEncoding() throws IOException {
+    MockHttpServletRequest request = gzipRequest(gzip(BODY));
+    ResettableStreamHttpServletRequest wrapped =
+        new ResettableStreamHttpServletRequest(request, true);
+
+    assertArrayEquals(BODY, StreamUtils.copyToByteArray(wrapped.getInputStream()));
+    assertNull(wrapped.getHeader("content-encoding"));
+    assertFalse(wrapped.getHeaders("Content-Encoding").hasMoreElements());
+    assertFalse(Collections.list(wrapped.getHeaderNames()).stream()
+        .anyMatch("Content-Encoding"::equalsIgnoreCase));
+    assertEquals("Tue, 07 Jun 2014 20:51:35 GMT", wrapped.getHeader("Date"));
+  }
+
+  @Test
+  void hiddenContentEncodingIsStillSigned() {
+    HttpSignature signature = HttpSignature.fromHeader("keyId=\"k\",algorithm=\"rsa-sha256\","
+        + "headers=\"content-encoding\",signature=\"c2ln\"");
+    HttpSignatureAuthenticationToken token = new HttpSignatureAuthenticationToken(signature,
+        new ResettableStreamHttpServletRequest(gzipRequest(new byte[0]), true));
+
+    assertEquals("content-encoding: gzip",
+        new String(token.getSignedBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void bodyNotDecodedKeepsContentEncoding() throws IOException {
+    byte[] gzipped = gzip(BODY);
+    ResettableStreamHttpServletRequest wrapped =
+        new ResettableStreamHttpServletRequest(gzipRequest(gzipped));
+
+    assertArrayEquals(gzipped, StreamUtils.copyToByteArray(wrapped.getInputStream()));
+    assertEquals("gzip", wrapped.getHeader("Content-Encoding"));
+    assertTrue(Collections.list(wrapped.getHeaderNames()).contains("Content-Encoding"));
+  }
+
+  @Test
+  void malformedGzipBodyIsRejectedWithBadRequest() throws Exception {
+    MockHttpServletRequest request =
+        gzipRequest("not gzip at all".getBytes(StandardCharsets.UTF_8));
+
+    HttpSignatureAuthenticationException rejected =
+        assertThrows(HttpSignatureAuthenticationException.class,
+            () -> new HttpSignatureAuthenticationToken(SIGNATURE,
+                new ResettableStreamHttpServletRequest(request, true)));
+
+    assertEquals(HttpSignatureError.MALFORMED_BODY, rejected.getError());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    new HttpSignatureAuthenticationEntryPoint().commence(request, response, rejected);
+    assertEquals(400, response.getStatus());
+    assertNotNull(response.getHeader("WWW-Authenticate"));
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+      out.write(data);
+    }
+    return gzipped.toByteArray();
+  }
+
+  private static MockHttpServletRequest gzipRequest(byte[] body) {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/payments");
+    request.addHeader("Date", "Tue, 07 Jun 2014 20:51:35 GMT");
+    request.addHeader("Content-Encoding", "gzip");
+    request.setContent(body);
+    return request;
+  }
+}
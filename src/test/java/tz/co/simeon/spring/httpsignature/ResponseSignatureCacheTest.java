@@ -0,0 +1,70 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class ResponseSignatureCacheTest {
+  private static final String CONTENT_TYPE = "application/json";
+  private static final String DATE = "Wed, 01 Jan 2020 00:00:00 GMT";
+  private static final String DIGEST =
+      OutboundRequestSigner.digest("{\"rates\":[]}".getBytes(StandardCharsets.UTF_8));
+
+  private final ResponseSignatureCache cache = ResponseSignatureCache.builder().build();
+  private final AtomicInteger signed = new AtomicInteger();
+  private final Supplier<String> signer = () -> "signature-" + signed.incrementAndGet();
+
+  @Test
+  void identicalResponsesShareOneSignature() {
+    assertEquals("signature-1", cache.signature("server", CONTENT_TYPE, DIGEST, DATE, signer));
+    assertEquals("signature-1", cache.signature("server", CONTENT_TYPE, DIGEST, DATE, signer));
+    assertEquals(1, signed.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void signageServiceReusesSignatureOfIdenticalBody() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    ResponseSignageService signage = new ResponseSignageService(new OutboundTargetDefinition(
+        "server", Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build()),
+        HttpSignatureMetrics.NOOP, cache);
+
+    String signature = signage.signTrailers(CONTENT_TYPE, DATE, DIGEST).get("Signature");
+
+    // PSS signatures are randomized, equal values come from the cache
+    assertEquals(signature, signage.signTrailers(CONTENT_TYPE, DATE, DIGEST).get("Signature"));
+    assertNotEquals(signature, signage.signTrailers(CONTENT_TYPE, DATE,
+        OutboundRequestSigner.digest(new byte[0])).get("Signature"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void responsesDifferingInAnySignedFieldAreSignedAgain() {
+    cache.signature("server", CONTENT_TYPE, DIGEST, DATE, signer);
+
+    String otherDigest = OutboundRequestSigner.digest(new byte[0]);
+    assertEquals("signature-2",
+        cache.signature("server", CONTENT_TYPE, otherDigest, DATE, signer));
+    assertEquals("signature-3", cache.signature("server", CONTENT_TYPE, DIGEST,
+        "Wed, 01 Jan 2020 00:00:01 GMT", signer));
+    assertEquals("signature-4",
+        cache.signature("server", "application/xml", DIGEST, DATE, signer));
+    assertEquals("signature-5", cache.signature("other", CONTENT_TYPE, DIGEST, DATE, signer));
+    assertEquals(5, cache.size());
+  }
+}
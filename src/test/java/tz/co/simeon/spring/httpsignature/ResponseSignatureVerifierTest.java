@@ -0,0 +1,99 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class ResponseSignatureVerifierTest {
+  private static final String CONTENT_TYPE = "application/json";
+  private static final String DATE = "Wed, 01 Jan 2020 00:00:00 GMT";
+  private static final Instant SIGNED_AT = Instant.parse("2020-01-01T00:00:00Z");
+  private static final byte[] BODY = "{\"rates\":[]}".getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+  private static ResponseSignageService signage;
+
+  @BeforeAll
+  static void initKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+    signage = new ResponseSignageService(new OutboundTargetDefinition("server",
+        Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build()));
+  }
+
+  @Test
+  void responseWithinMaxAgeIsAccepted() {
+    assertEquals(Optional.empty(), verify(DATE, SIGNED_AT.plusSeconds(299)));
+    assertEquals(Optional.empty(), verify(DATE, SIGNED_AT.minusSeconds(299)));
+  }
+
+  @Test
+  void staleResponseIsRejected() {
+    Optional<String> problem = verify(DATE, SIGNED_AT.plus(Duration.ofMinutes(6)));
+
+    assertTrue(problem.isPresent());
+    assertTrue(problem.get().contains("too old"), problem.get());
+  }
+
+  @Test
+  void responseDatedInTheFutureIsRejected() {
+    assertTrue(verify(DATE, SIGNED_AT.minus(Duration.ofMinutes(6))).isPresent());
+  }
+
+  @Test
+  void maxAgeIsConfigurable() {
+    ResponseSignatureVerifier verifier = ResponseSignatureVerifier
+        .builder(keyId -> keyPair.getPublic())
+        .maxAge(Duration.ofSeconds(30))
+        .clock(Clock.fixed(SIGNED_AT.plusSeconds(31), ZoneOffset.UTC))
+        .build();
+
+    assertTrue(verify(verifier, DATE).isPresent());
+  }
+
+  @Test
+  void undatedResponseIsRejected() {
+    assertEquals(Optional.of("Response is not dated"), verify(null, SIGNED_AT));
+    assertEquals(Optional.of("Invalid date yesterday"), verify("yesterday", SIGNED_AT));
+  }
+
+  private static Optional<String> verify(String date, Instant now) {
+    return verify(ResponseSignatureVerifier.builder(keyId -> keyPair.getPublic())
+        .clock(Clock.fixed(now, ZoneOffset.UTC))
+        .build(), date);
+  }
+
+  private static Optional<String> verify(ResponseSignatureVerifier verifier, String date) {
+    String digest = OutboundRequestSigner.digest(BODY);
+    Map<String, String> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    fields.putAll(signage.signTrailers(CONTENT_TYPE, DATE, digest));
+    fields.put("Content-Type", CONTENT_TYPE);
+    if (null != date) {
+      fields.put("Date", date);
+    }
+
+    ResponseSignatureVerifier.Verification verification = verifier.begin();
+    verification.update(BODY, 0, BODY.length);
+    return verification.verify(fields::get);
+  }
+}
@@ -0,0 +1,129 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class ResponseSigningFilterTest {
+  private static final byte[] BODY = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+  private static ResponseSigningFilter filter;
+  private static ResponseSignatureVerifier verifier;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+    filter = new ResponseSigningFilter(new ResponseSignageService(new OutboundTargetDefinition(
+        "server", Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build())));
+    verifier = new ResponseSignatureVerifier(keyId -> keyPair.getPublic());
+  }
+
+  @Test
+  void heldBackResponseIsSigned() throws Exception {
+    MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/status"),
+        (request, res) -> {
+          res.setContentType("application/json");
+          res.getOutputStream().write(BODY);
+        });
+
+    assertArrayEquals(BODY, response.getContentAsByteArray());
+    assertEquals(BODY.length, response.getContentLength());
+    assertEquals(OutboundRequestSigner.digest(BODY), response.getHeader("Digest"));
+    assertEquals(Optional.empty(), verify(BODY, response::getHeader));
+  }
+
+  @Test
+  void responseWithoutContentTypeIsNotSigned() throws Exception {
+    MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/status"),
+        (request, res) -> res.getOutputStream().write(BODY));
+
+    assertArrayEquals(BODY, response.getContentAsByteArray());
+    assertNull(response.getHeader("Signature"));
+  }
+
+  @Test
+  void errorResponseIsNotSigned() throws Exception {
+    MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/status"),
+        (request, res) -> {
+          res.setContentType("application/json");
+          res.getOutputStream().write(BODY);
+          ((HttpServletResponse) res).sendError(404);
+        });
+
+    assertEquals(404, response.getStatus());
+    assertNull(response.getHeader("Signature"));
+    assertNull(response.getHeader("Digest"));
+  }
+
+  @Test
+  void streamedResponseIsSignedInTrailers() throws Exception {
+    ResponseSigningFilter streaming = new ResponseSigningFilter(filter.getSignageService());
+    streaming.setTrailers(true);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/export");
+    request.addHeader("TE", "trailers");
+    TrailerResponse response = new TrailerResponse();
+
+    streaming.doFilter(request, response, (req, res) -> {
+      res.setContentType("application/json");
+      res.getOutputStream().write(BODY);
+    });
+
+    assertArrayEquals(BODY, response.getContentAsByteArray());
+    assertEquals("Digest, Signature", response.getHeader("Trailer"));
+    assertNull(response.getHeader("Signature"));
+    Map<String, String> trailers = response.trailers.get();
+    assertEquals(OutboundRequestSigner.digest(BODY), trailers.get("Digest"));
+    Map<String, String> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    fields.put("Date", response.getHeader("Date"));
+    fields.put("Content-Type", response.getContentType());
+    fields.putAll(trailers);
+    assertEquals(Optional.empty(), verify(BODY, fields::get));
+  }
+
+  private static MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain)
+      throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, chain);
+    return response;
+  }
+
+  private static Optional<String> verify(byte[] body, Function<String, String> field) {
+    ResponseSignatureVerifier.Verification verification = verifier.begin();
+    verification.update(body, 0, body.length);
+    return verification.verify(field);
+  }
+
+  private static final class TrailerResponse extends MockHttpServletResponse {
+    private Supplier<Map<String, String>> trailers;
+
+    @Override
+    public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+      this.trailers = supplier;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class SignatureRouteMatcherTest {
+  private final SignatureRouteMatcher included = SignatureRouteMatcher.builder()
+      .include("/api/**")
+      .exclude("/api/public/*", "GET")
+      .build();
+
+  private final SignatureRouteMatcher excluded = SignatureRouteMatcher.builder()
+      .exclude("/actuator/**")
+      .exclude("/static/**", "GET", "HEAD")
+      .build();
+
+  @Test
+  void routesAreMatchedByPathAndMethod() {
+    assertTrue(included.requiresSignature(request("POST", "/api/payments")));
+    assertTrue(included.requiresSignature(request("POST", "/api/public/docs")));
+    assertFalse(included.requiresSignature(request("GET", "/api/public/docs")));
+    assertFalse(included.requiresSignature(request("GET", "/home")));
+
+    assertFalse(excluded.requiresSignature(request("GET", "/actuator/health")));
+    assertFalse(excluded.requiresSignature(request("GET", "/static/app.js")));
+    assertTrue(excluded.requiresSignature(request("POST", "/static/app.js")));
+    assertTrue(excluded.requiresSignature(request("GET", "/payments")));
+  }
+
+  @Test
+  void encodedPathsAreDecoded() {
+    assertTrue(included.requiresSignature(request("POST", "/%61pi/payments")));
+    assertTrue(included.requiresSignature(request("GET", "/api/%70ublic/../payments")));
+    assertFalse(excluded.requiresSignature(request("GET", "/%61ctuator/health")));
+    assertTrue(excluded.requiresSignature(request("GET", "/static/..%2Fpayments")));
+    assertTrue(excluded.requiresSignature(request("GET", "/static/%2E%2E/payments")));
+  }
+
+  @Test
+  void matrixParametersAreRemoved() {
+    assertTrue(included.requiresSignature(request("POST", "/api;x=1/payments")));
+    assertTrue(included.requiresSignature(request("GET", "/api/public;x/../payments")));
+    assertTrue(excluded.requiresSignature(request("GET", "/actuator;x/../payments")));
+    assertFalse(excluded.requiresSignature(request("GET", "/actuator;x=1/health")));
+  }
+
+  @Test
+  void dotSegmentsAreResolved() {
+    assertTrue(included.requiresSignature(request("POST", "/home/../api/payments")));
+    assertTrue(included.requiresSignature(request("POST", "/./api/payments")));
+    assertTrue(excluded.requiresSignature(request("GET", "/static/../payments")));
+    assertTrue(excluded.requiresSignature(request("GET", "/actuator/../payments")));
+    assertTrue(excluded.requiresSignature(request("GET", "/static\\..\\payments")));
+    assertTrue(included.requiresSignature(request("GET", "/../home")));
+    assertTrue(included.requiresSignature("GET", "/home/../../api"));
+  }
+
+  @Test
+  void caseNeverSkipsVerification() {
+    assertTrue(included.requiresSignature(request("POST", "/API/payments")));
+    assertTrue(included.requiresSignature(request("GET", "/api/PUBLIC/docs")));
+    assertTrue(excluded.requiresSignature(request("GET", "/ACTUATOR/health")));
+  }
+
+  @Test
+  void pathIsMatchedWithinTheApplication() {
+    MockHttpServletRequest request = request("POST", "/app/%61pi/payments");
+    request.setContextPath("/app");
+    assertTrue(included.requiresSignature(request));
+
+    request = request("GET", "/app/actuator/health");
+    request.setContextPath("/app");
+    assertFalse(excluded.requiresSignature(request));
+  }
+
+  private static MockHttpServletRequest request(String method, String uri) {
+    return new MockHttpServletRequest(method, uri);
+  }
+}
@@ -0,0 +1,100 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.util.Optional;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.signer.Signer;
+
+class SignatureServiceTest {
+  private static final byte[] DATA = "date: Tue, 07 Jun 2014 20:51:35 GMT"
+      .getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  void signersArePooledPerKeyAndAlgorithm() {
+    assertSame(SignatureService.signer(Algorithm.RSA_SHA256_PSS, keyPair.getPrivate()),
+        SignatureService.signer(Algorithm.RSA_SHA256_PSS, keyPair.getPrivate()));
+    assertNotSame(SignatureService.signer(Algorithm.RSA_SHA256_PSS, keyPair.getPrivate()),
+        SignatureService.signer(Algorithm.RSA_SHA256, keyPair.getPrivate()));
+  }
+
+  @Test
+  void signerPoolEvictsLeastRecentlyUsedKeys() {
+    PrivateKey first = new ThrowawayKey();
+    Signer signer = SignatureService.signer(Algorithm.RSA_SHA256, first);
+    // the signer holds its key, only the size bound can release it
+    for (int i = 0; i < 4 * SignatureService.MAX_PRIVATE_KEYS; i++) {
+      SignatureService.signer(Algorithm.RSA_SHA256, new ThrowawayKey());
+    }
+
+    assertNotSame(signer, SignatureService.signer(Algorithm.RSA_SHA256, first));
+  }
+
+  @Test
+  void hmacSignersArePooledBySecretValue() {
+    byte[] secret = "shared secret".getBytes(StandardCharsets.UTF_8);
+    assertSame(SignatureService.hmacSigner(secret), SignatureService.hmacSigner(secret.clone()));
+  }
+
+  @Test
+  void pooledHmacSignerIsNotChangedByCallerArray() {
+    byte[] secret = "mutable secret".getBytes(StandardCharsets.UTF_8);
+    byte[] signature = SignatureService.hmacSigner(secret).sign(DATA);
+    secret[0] = 'X';
+
+    assertEquals(Optional.empty(), SignatureService
+        .verifier(Algorithm.HMAC_SHA256, signature,
+            "mutable secret".getBytes(StandardCharsets.UTF_8))
+        .verify(DATA));
+  }
+
+  @Test
+  void pooledSignerSignaturesVerify() {
+    byte[] signature =
+        SignatureService.signer(Algorithm.RSA_SHA256_PSS, keyPair.getPrivate()).sign(DATA);
+    assertEquals(Optional.empty(), SignatureService
+        .verifier(Algorithm.RSA_SHA256_PSS, signature, keyPair.getPublic()).verify(DATA));
+    // the pooled instance is reusable after signing
+    signature = SignatureService.signer(Algorithm.RSA_SHA256_PSS, keyPair.getPrivate()).sign(DATA);
+    assertEquals(Optional.empty(), SignatureService
+        .verifier(Algorithm.RSA_SHA256_PSS, signature, keyPair.getPublic()).verify(DATA));
+  }
+
+  /**
+   * Key that is never used to sign, signers initialize their key on first use.
+   */
+  private static final class ThrowawayKey implements PrivateKey {
+    @Override
+    public String getAlgorithm() {
+      return "RSA";
+    }
+
+    @Override
+    public String getFormat() {
+      return "PKCS#8";
+    }
+
+    @Override
+    public byte[] getEncoded() {
+      return new byte[0];
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class SignedChunkInputStreamTest {
+  private static final String SEED = "c2VlZA==";
+  private static final byte[] SECRET = "chunk-secret".getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+  private static byte[] body;
+  private static byte[] encoded;
+
+  @BeforeAll
+  static void encodeBody() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+
+    body = new byte[2500];
+    new Random(11).nextBytes(body);
+    encoded = encode(SEED, body);
+  }
+
+  @Test
+  void chainedChunksAreDecoded() throws Exception {
+    assertArrayEquals(body, readAll(decode(encoded, SEED)));
+  }
+
+  @Test
+  void hmacSignedChunksAreDecoded() throws Exception {
+    byte[] hmacEncoded = encode(hmacTarget(SECRET), SEED, body);
+
+    assertArrayEquals(body, readAll(new SignedChunkInputStream(
+        new ByteArrayInputStream(hmacEncoded), Algorithm.HMAC_SHA256, SECRET, SEED)));
+  }
+
+  @Test
+  void hmacChunksOfAnotherSecretAreRejected() throws Exception {
+    byte[] hmacEncoded = encode(hmacTarget("other-secret".getBytes(StandardCharsets.UTF_8)),
+        SEED, body);
+
+    assertThrows(ChunkSignatureException.class, () -> readAll(new SignedChunkInputStream(
+        new ByteArrayInputStream(hmacEncoded), Algorithm.HMAC_SHA256, SECRET, SEED)));
+  }
+
+  @Test
+  void chunksOfAnotherRequestAreRejected() {
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(encoded, "b3RoZXI=")));
+  }
+
+  @Test
+  void reorderedChunksAreRejected() {
+    List<byte[]> chunks = chunks(encoded);
+    Collections.swap(chunks, 0, 1);
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(join(chunks), SEED)));
+  }
+
+  @Test
+  void droppedChunkIsRejected() {
+    List<byte[]> chunks = chunks(encoded);
+    chunks.remove(1);
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(join(chunks), SEED)));
+  }
+
+  @Test
+  void missingFinalChunkIsRejected() {
+    List<byte[]> chunks = chunks(encoded);
+    chunks.remove(chunks.size() - 1);
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(join(chunks), SEED)));
+  }
+
+  @Test
+  void truncatedBodyIsRejected() {
+    byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(truncated, SEED)));
+  }
+
+  @Test
+  void tamperedDataIsRejected() {
+    List<byte[]> chunks = chunks(encoded);
+    byte[] first = chunks.get(0);
+    first[first.length - 3] ^= 1;
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(join(chunks), SEED)));
+  }
+
+  @Test
+  void chunkNotTerminatedByCrlfIsRejected() {
+    List<byte[]> chunks = chunks(encoded);
+    byte[] first = chunks.get(0);
+    first[first.length - 2] = '\n';
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(join(chunks), SEED)));
+  }
+
+  @Test
+  void chunkHeaderNotTerminatedByCrlfIsRejected() {
+    byte[] malformed = encoded.clone();
+    int crlf = indexOfCrlf(malformed, 0);
+    malformed[crlf + 1] = ' ';
+    assertThrows(ChunkSignatureException.class, () -> readAll(decode(malformed, SEED)));
+  }
+
+  private static byte[] encode(String seed, byte[] data) throws IOException {
+    return encode(new OutboundTargetDefinition("chunks", Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build()), seed, data);
+  }
+
+  private static OutboundTargetDefinition hmacTarget(byte[] secret) {
+    return new OutboundTargetDefinition("chunks", Algorithm.HMAC_SHA256, null,
+        HttpSignatureHeader.SIGNATURE, secret, SignedHeadersConfig.builder().build());
+  }
+
+  private static byte[] encode(OutboundTargetDefinition target, String seed, byte[] data)
+      throws IOException {
+    OutboundRequestSigner signer = new OutboundRequestSigner(target);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SignedChunkOutputStream chunks = signer.chunkedBody(out,
+        Collections.singletonMap("Signature", "signature=\"" + seed + "\""), 1000)) {
+      chunks.write(data);
+    }
+    return out.toByteArray();
+  }
+
+  private static InputStream decode(byte[] data, String seed) {
+    return new SignedChunkInputStream(new ByteArrayInputStream(data), Algorithm.RSA_SHA256_PSS,
+        keyPair.getPublic(), seed);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream read = new ByteArrayOutputStream();
+    byte[] buffer = new byte[300];
+    int count;
+    while ((count = in.read(buffer)) != -1) {
+      read.write(buffer, 0, count);
+    }
+    return read.toByteArray();
+  }
+
+  /**
+   * Split an encoded body into its chunks, each with its header and trailing CRLF.
+   */
+  private static List<byte[]> chunks(byte[] data) {
+    List<byte[]> chunks = new ArrayList<>();
+    int start = 0;
+    while (start < data.length) {
+      int crlf = indexOfCrlf(data, start);
+      String header = new String(data, start, crlf - start, StandardCharsets.US_ASCII);
+      int size = Integer.parseInt(header.substring(0, header.indexOf(SignedChunks.CHUNK_SIGNATURE)),
+          16);
+      int end = crlf + 2 + size + 2;
+      chunks.add(Arrays.copyOfRange(data, start, end));
+      start = end;
+    }
+    return chunks;
+  }
+
+  private static byte[] join(List<byte[]> chunks) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    chunks.forEach(chunk -> out.write(chunk, 0, chunk.length));
+    return out.toByteArray();
+  }
+
+  private static int indexOfCrlf(byte[] data, int from) {
+    for (int i = from; i < data.length - 1; i++) {
+      if (data[i] == '\r' && data[i + 1] == '\n') {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("No CRLF");
+  }
+}
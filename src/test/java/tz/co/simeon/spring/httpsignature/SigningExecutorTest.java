@@ -0,0 +1,101 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SigningExecutorTest {
+
+  @Test
+  void errorsCompleteTheFuture() throws Exception {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).queueCapacity(1).build();
+    AssertionError error = new AssertionError("signer bug");
+
+    CompletableFuture<String> future = executor.submit(() -> {
+      throw error;
+    }, Algorithm.RSA_SHA256, HttpSignatureMetrics.NOOP);
+
+    ExecutionException failed =
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertSame(error, failed.getCause());
+    executor.shutdown();
+  }
+
+  @Test
+  void fullQueueIsCountedAsRejected() throws Exception {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).queueCapacity(1).build();
+    RejectionCounter metrics = new RejectionCounter();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    executor.submit(() -> {
+      running.countDown();
+      await(release);
+      return "first";
+    }, Algorithm.RSA_SHA256, metrics);
+    running.await(5, TimeUnit.SECONDS);
+    executor.submit(() -> "queued", Algorithm.RSA_SHA256, metrics);
+
+    CompletableFuture<String> rejected =
+        executor.submit(() -> "rejected", Algorithm.RSA_SHA256, metrics);
+
+    assertTrue(rejected.isCompletedExceptionally());
+    assertEquals(1, metrics.rejected.get());
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  void shutdownIsNotCountedAsRejected() {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).queueCapacity(1).build();
+    RejectionCounter metrics = new RejectionCounter();
+    executor.shutdown();
+
+    CompletableFuture<String> future = executor.submit(() -> "late", Algorithm.RSA_SHA256,
+        metrics);
+
+    ExecutionException failed = assertThrows(ExecutionException.class, future::get);
+    assertEquals("Signing pool is shut down", failed.getCause().getMessage());
+    assertEquals(0, metrics.rejected.get());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class RejectionCounter implements HttpSignatureMetrics {
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    @Override
+    public long start() {
+      return 0L;
+    }
+
+    @Override
+    public void stop(Stage stage, Algorithm algorithm, long start) {
+    }
+
+    @Override
+    public void bodySize(long bytes) {
+    }
+
+    @Override
+    public void failure(FailureReason reason, Algorithm algorithm) {
+    }
+
+    @Override
+    public void signingRejected(Algorithm algorithm) {
+      rejected.incrementAndGet();
+    }
+  }
+}
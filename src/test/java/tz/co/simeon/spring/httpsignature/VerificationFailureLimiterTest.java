@@ -0,0 +1,84 @@
+package tz.co.simeon.spring.httpsignature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import com.google.common.base.Ticker;
+
+class VerificationFailureLimiterTest {
+  private static final long INTERVAL = TimeUnit.SECONDS.toNanos(6);
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final VerificationFailureLimiter limiter = VerificationFailureLimiter.builder()
+      .burst(3).addressBurst(5).refillInterval(Duration.ofNanos(INTERVAL)).ticker(ticker).build();
+
+  @Test
+  void burstIsAcceptedThenRejected() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0L, limiter.retryAfterNanos("key", "10.0.0.1"));
+      limiter.failed("key", "10.0.0.1");
+    }
+    assertEquals(INTERVAL, limiter.retryAfterNanos("key", "10.0.0.1"));
+  }
+
+  @Test
+  void oneFailureIsEarnedBackPerInterval() {
+    fail("key", "10.0.0.1", 3);
+
+    ticker.advance(INTERVAL - 1);
+    assertEquals(1L, limiter.retryAfterNanos("key", "10.0.0.1"));
+    ticker.advance(1);
+    assertEquals(0L, limiter.retryAfterNanos("key", "10.0.0.1"));
+    limiter.failed("key", "10.0.0.1");
+    assertEquals(INTERVAL, limiter.retryAfterNanos("key", "10.0.0.1"));
+
+    ticker.advance(3 * INTERVAL);
+    fail("key", "10.0.0.1", 3);
+    assertEquals(INTERVAL, limiter.retryAfterNanos("key", "10.0.0.1"));
+  }
+
+  @Test
+  void failuresWhileRejectedDoNotExtendTheWait() {
+    fail("key", "10.0.0.1", 3);
+    fail("key", "10.0.0.1", 100);
+    assertEquals(INTERVAL, limiter.retryAfterNanos("key", "10.0.0.1"));
+  }
+
+  @Test
+  void otherClientsAreNotLimited() {
+    fail("key", "10.0.0.1", 3);
+    assertEquals(0L, limiter.retryAfterNanos("other", "10.0.0.1"));
+    assertEquals(0L, limiter.retryAfterNanos("key", "10.0.0.2"));
+  }
+
+  @Test
+  void rotatingKeyIdsAreLimitedPerAddress() {
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0L, limiter.retryAfterNanos("key-" + i, "10.0.0.1"));
+      limiter.failed("key-" + i, "10.0.0.1");
+    }
+    assertTrue(limiter.retryAfterNanos("key-5", "10.0.0.1") > 0);
+    assertEquals(0L, limiter.retryAfterNanos("key-5", "10.0.0.2"));
+  }
+
+  private void fail(String keyId, String address, int times) {
+    for (int i = 0; i < times; i++) {
+      limiter.failed(keyId, address);
+    }
+  }
+
+  private static final class FakeTicker extends Ticker {
+    private long nanos = 1_000_000_000L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    private void advance(long duration) {
+      nanos += duration;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureHeader;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.SignedHeadersConfig;
+import tz.co.simeon.spring.httpsignature.SigningExecutor;
+
+class SignedWebhookDispatcherTest {
+  private static final URI URI = java.net.URI.create("https://hooks.example.com/events");
+  private static final OutboundTargetDefinition TARGET = new OutboundTargetDefinition("webhooks",
+      Algorithm.HMAC_SHA256, null, HttpSignatureHeader.SIGNATURE,
+      "webhook secret".getBytes(StandardCharsets.UTF_8), SignedHeadersConfig.builder().build());
+
+  @Test
+  void inlineCompletionsDoNotRecurse() throws Exception {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).build();
+    CompletableFuture<Integer> first = new CompletableFuture<>();
+    AtomicInteger posts = new AtomicInteger();
+    SignedWebhookDispatcher dispatcher = SignedWebhookDispatcher
+        .builder((uri, headers, body) -> posts.getAndIncrement() == 0 ? first
+            : CompletableFuture.completedFuture(200), executor)
+        .maxConcurrency(1)
+        .build();
+    List<SignedWebhookDispatcher.Subscriber> subscribers = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      subscribers.add(new SignedWebhookDispatcher.Subscriber(URI, TARGET));
+    }
+
+    // hold the signing thread, so that every delivery is queued behind the first one
+    CountDownLatch blocked = new CountDownLatch(1);
+    OutboundRequestSigner signer = new OutboundRequestSigner(TARGET);
+    signer.signAsync("POST", URI, name -> {
+      await(blocked);
+      return null;
+    }, (String) null, executor);
+    CompletableFuture<List<SignedWebhookDispatcher.Delivery>> deliveries =
+        dispatcher.dispatch(new byte[] {'{', '}'}, "application/json", subscribers);
+    blocked.countDown();
+    signer.signAsync("POST", URI, name -> null, (String) null, executor).join();
+
+    first.complete(200);
+
+    List<SignedWebhookDispatcher.Delivery> outcomes = deliveries.get(30, TimeUnit.SECONDS);
+    assertEquals(subscribers.size(), outcomes.size());
+    assertTrue(outcomes.stream().allMatch(SignedWebhookDispatcher.Delivery::isDelivered));
+    assertEquals(subscribers.size(), posts.get());
+    dispatcher.shutdown();
+    executor.shutdown();
+  }
+
+  @Test
+  void retriesUntilDelivered() throws Exception {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).build();
+    AtomicInteger posts = new AtomicInteger();
+    SignedWebhookDispatcher dispatcher = SignedWebhookDispatcher
+        .builder((uri, headers, body) -> CompletableFuture
+            .completedFuture(posts.incrementAndGet() < 3 ? 503 : 204), executor)
+        .maxAttempts(3)
+        .initialBackoff(java.time.Duration.ofMillis(1))
+        .build();
+
+    SignedWebhookDispatcher.Delivery delivery = dispatcher
+        .dispatch(new byte[0], "application/json",
+            Collections.singletonList(new SignedWebhookDispatcher.Subscriber(URI, TARGET)))
+        .get(30, TimeUnit.SECONDS).get(0);
+
+    assertTrue(delivery.isDelivered());
+    assertEquals(3, delivery.getAttempts());
+    dispatcher.shutdown();
+    executor.shutdown();
+  }
+
+  @Test
+  void shutdownDuringDeliveryCompletesWithLastOutcome() throws Exception {
+    SigningExecutor executor = SigningExecutor.builder().threads(1).build();
+    AtomicReference<SignedWebhookDispatcher> dispatcher = new AtomicReference<>();
+    dispatcher.set(SignedWebhookDispatcher
+        .builder((uri, headers, body) -> {
+          // shut down between the response and the retry
+          dispatcher.get().shutdown();
+          return CompletableFuture.completedFuture(503);
+        }, executor)
+        .maxAttempts(3)
+        .build());
+
+    SignedWebhookDispatcher.Delivery delivery = dispatcher.get()
+        .dispatch(new byte[0], "application/json",
+            Collections.singletonList(new SignedWebhookDispatcher.Subscriber(URI, TARGET)))
+        .get(30, TimeUnit.SECONDS).get(0);
+
+    assertEquals(503, delivery.getStatus());
+    assertEquals(1, delivery.getAttempts());
+    executor.shutdown();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
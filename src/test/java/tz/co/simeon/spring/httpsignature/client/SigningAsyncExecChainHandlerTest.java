@@ -0,0 +1,227 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureHeader;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.SignedChunkInputStream;
+import tz.co.simeon.spring.httpsignature.SignedChunks;
+import tz.co.simeon.spring.httpsignature.SignedHeadersConfig;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class SigningAsyncExecChainHandlerTest {
+  private static final URI URI = java.net.URI.create("https://api.example.com/uploads");
+
+  private static KeyPair keyPair;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  void streamedEntityIsSentAsSignedChunksByDefault() throws Exception {
+    byte[] body = new byte[10_000];
+    new Random(7).nextBytes(body);
+    HttpRequest request = new BasicHttpRequest("POST", URI);
+    AsyncEntityProducer[] sent = new AsyncEntityProducer[1];
+
+    new SigningAsyncExecChainHandler(signer()).execute(request, new StreamedEntity(body),
+        null, (req, producer, scope, callback) -> sent[0] = producer, null);
+
+    assertEquals(SignedChunks.CONTENT_ENCODING, sent[0].getContentEncoding());
+    assertEquals(SignedChunks.STREAMING_DIGEST, request.getFirstHeader("Digest").getValue());
+    String signature = request.getFirstHeader("Signature").getValue();
+    assertNotNull(signature);
+
+    // a slow connection accepting a few bytes per write
+    SlowChannel channel = new SlowChannel(37);
+    for (int i = 0; i < 100_000 && !channel.ended; i++) {
+      sent[0].produce(channel);
+    }
+    assertTrue(channel.ended);
+    assertNull(channel.trailers);
+
+    InputStream decoded = new SignedChunkInputStream(
+        new ByteArrayInputStream(channel.data.toByteArray()), Algorithm.RSA_SHA256_PSS,
+        keyPair.getPublic(), seed(signature));
+    ByteArrayOutputStream read = new ByteArrayOutputStream();
+    byte[] buffer = new byte[512];
+    int count;
+    while ((count = decoded.read(buffer)) != -1) {
+      read.write(buffer, 0, count);
+    }
+    assertArrayEquals(body, read.toByteArray());
+  }
+
+  @Test
+  void streamedEntitySignsTrailersWhenEnabled() throws Exception {
+    byte[] body = "streamed".getBytes("UTF-8");
+    HttpRequest request = new BasicHttpRequest("POST", URI);
+    AsyncEntityProducer[] sent = new AsyncEntityProducer[1];
+
+    new SigningAsyncExecChainHandler(signer(),
+        SigningAsyncExecChainHandler.StreamedEntitySigning.TRAILERS).execute(request,
+            new StreamedEntity(body), null, (req, producer, scope, callback) -> sent[0] = producer,
+            null);
+
+    assertFalse(request.containsHeader("Signature"));
+    SlowChannel channel = new SlowChannel(Integer.MAX_VALUE);
+    for (int i = 0; i < 100 && !channel.ended; i++) {
+      sent[0].produce(channel);
+    }
+    assertTrue(channel.ended);
+    assertEquals(OutboundRequestSigner.digest(body), channel.trailers.get(0).getValue());
+    assertEquals("Signature", channel.trailers.get(1).getName());
+  }
+
+  private static OutboundRequestSigner signer() {
+    return new OutboundRequestSigner(new OutboundTargetDefinition("streaming",
+        Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null,
+        SignedHeadersConfig.builder().defaultConfig(SignedHeadersConfig.HeadersConfig
+            .create(Arrays.asList(SignedHeadersConfig.REQUEST_TARGET, "date", "digest")))
+            .build()));
+  }
+
+  private static String seed(String parameters) {
+    int start = parameters.indexOf("signature=\"") + "signature=\"".length();
+    return parameters.substring(start, parameters.indexOf('"', start));
+  }
+
+  /**
+   * Non-repeatable entity producing the body in pieces of 1000 bytes.
+   */
+  private static final class StreamedEntity implements AsyncEntityProducer {
+    private final ByteBuffer body;
+
+    private StreamedEntity(byte[] body) {
+      this.body = ByteBuffer.wrap(body);
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+      if (body.hasRemaining()) {
+        ByteBuffer piece = body.duplicate();
+        piece.limit(Math.min(body.limit(), body.position() + 1000));
+        body.position(body.position() + channel.write(piece));
+      }
+      if (!body.hasRemaining()) {
+        channel.endStream();
+      }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public String getContentType() {
+      return "application/octet-stream";
+    }
+
+    @Override
+    public String getContentEncoding() {
+      return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+      return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+      return null;
+    }
+
+    @Override
+    public int available() {
+      return body.remaining();
+    }
+
+    @Override
+    public void releaseResources() {
+    }
+  }
+
+  private static final class SlowChannel implements DataStreamChannel {
+    private final int capacity;
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private List<? extends Header> trailers;
+    private boolean ended;
+
+    private SlowChannel(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    public void requestOutput() {
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      assertFalse(ended, "write after end of stream");
+      int count = Math.min(capacity, src.remaining());
+      for (int i = 0; i < count; i++) {
+        data.write(src.get());
+      }
+      return count;
+    }
+
+    @Override
+    public void endStream() {
+      endStream(null);
+    }
+
+    @Override
+    public void endStream(List<? extends Header> trailers) {
+      assertFalse(ended, "stream ended twice");
+      this.trailers = trailers;
+      ended = true;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package tz.co.simeon.spring.httpsignature.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Collections;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import tz.co.simeon.spring.httpsignature.Algorithm;
+import tz.co.simeon.spring.httpsignature.HttpSignatureException;
+import tz.co.simeon.spring.httpsignature.HttpSignatureHeader;
+import tz.co.simeon.spring.httpsignature.OutboundRequestSigner;
+import tz.co.simeon.spring.httpsignature.OutboundTargetDefinition;
+import tz.co.simeon.spring.httpsignature.ResponseSignageService;
+import tz.co.simeon.spring.httpsignature.SignedHeadersConfig;
+import tz.co.simeon.spring.httpsignature.pki.KeyConfig;
+
+class VerifyingClientHttpRequestInterceptorTest {
+  private static final byte[] BODY = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static KeyPair keyPair;
+  private static ResponseSignageService signage;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+    signage = new ResponseSignageService(new OutboundTargetDefinition("server",
+        Algorithm.RSA_SHA256_PSS,
+        new KeyConfig(keyPair.getPrivate(), keyPair.getPublic(), null, Collections.emptyList(),
+            Collections.emptyList()),
+        HttpSignatureHeader.SIGNATURE, null, SignedHeadersConfig.builder().build()));
+  }
+
+  @Test
+  void readBodyIsVerified() throws IOException {
+    ClientHttpResponse response = intercept(signed(BODY));
+
+    assertArrayEquals(BODY, readAll(response.getBody()));
+    response.close();
+  }
+
+  @Test
+  void unreadTamperedBodyFailsOnClose() throws IOException {
+    MockClientHttpResponse tampered =
+        signed("{\"status\":\"no\"}".getBytes(StandardCharsets.UTF_8));
+    tampered.getHeaders().set("Digest", OutboundRequestSigner.digest(BODY));
+    ClientHttpResponse response = intercept(tampered);
+
+    assertThrows(HttpSignatureException.class, response::close);
+  }
+
+  @Test
+  void unreadUnsignedBodyFailsOnClose() throws IOException {
+    ClientHttpResponse response = intercept(new MockClientHttpResponse(BODY, HttpStatus.OK));
+
+    assertThrows(HttpSignatureException.class, response::close);
+  }
+
+  @Test
+  void unreadSignedBodyIsVerifiedOnClose() throws IOException {
+    intercept(signed(BODY)).close();
+  }
+
+  private static MockClientHttpResponse signed(byte[] body) {
+    MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+    response.getHeaders().set("Content-Type", "application/json");
+    signage.sign("application/json", OutboundRequestSigner.digest(body))
+        .forEach(response.getHeaders()::set);
+    return response;
+  }
+
+  private static ClientHttpResponse intercept(ClientHttpResponse response) throws IOException {
+    return new VerifyingClientHttpRequestInterceptor(keyId -> keyPair.getPublic())
+        .intercept(new MockClientHttpRequest(HttpMethod.GET, URI.create("https://api.example.com")),
+            new byte[0], (request, body) -> response);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[64];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+}